@@ -0,0 +1,49 @@
+package org.example.lmsbackend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class VideoUploadConfig {
+
+    @Value("${app.video.upload.pool-size:2}")
+    private int poolSize;
+
+    @Value("${app.video.upload.queue-capacity:10}")
+    private int queueCapacity;
+
+    @Value("${app.video.metadata.pool-size:2}")
+    private int metadataPoolSize;
+
+    @Value("${app.video.metadata.queue-capacity:20}")
+    private int metadataQueueCapacity;
+
+    // Pool giới hạn cho upload job: hàng đợi đầy thì từ chối (TaskRejectedException) thay vì tràn bộ nhớ
+    @Bean(name = "videoUploadExecutor")
+    public ThreadPoolTaskExecutor videoUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("video-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(120);
+        return executor;
+    }
+
+    // Pool riêng cho đọc metadata (ffprobe), chạy song song với upload lên storage
+    @Bean(name = "videoMetadataExecutor")
+    public ThreadPoolTaskExecutor videoMetadataExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(metadataPoolSize);
+        executor.setMaxPoolSize(metadataPoolSize);
+        executor.setQueueCapacity(metadataQueueCapacity);
+        executor.setThreadNamePrefix("video-metadata-");
+        // Probe đang chạy / trong hàng đợi giữ file tạm, chỉ được xóa khi probe xong
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(120);
+        return executor;
+    }
+}
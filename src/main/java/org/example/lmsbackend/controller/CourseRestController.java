@@ -2,16 +2,21 @@ package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.dto.CourseDTO;
+import org.example.lmsbackend.dto.CourseRatingStatsDTO;
+import org.example.lmsbackend.service.CourseCatalogService;
 import org.example.lmsbackend.service.CourseService;
 import org.example.lmsbackend.service.CourseReviewService;
 import org.example.lmsbackend.security.CustomUserDetails;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.ArrayList;
@@ -29,12 +34,22 @@ public class CourseRestController {
     @Autowired
     private CourseReviewService courseReviewService;
 
+    @Autowired
+    private CourseCatalogService courseCatalogService;
+
     // API public: lấy tất cả khóa học công khai (không cần đăng nhập)
+    // ✅ Trả về từ snapshot trong bộ nhớ, hỗ trợ If-None-Match -> 304
     @GetMapping("/public")
-    public ResponseEntity<List<Course>> getPublicCourses() {
+    public ResponseEntity<List<Course>> getPublicCourses(WebRequest webRequest) {
         try {
-            List<Course> courses = courseService.getCourses(null, null, "published");
-            return ResponseEntity.ok(courses);
+            CourseCatalogService.Snapshot<List<Course>> snapshot = courseCatalogService.getPublicCourses();
+            if (webRequest.checkNotModified(snapshot.getETag())) {
+                return null; // 304 Not Modified đã được Spring thiết lập
+            }
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getETag())
+                .body(snapshot.getBody());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(null);
@@ -43,35 +58,17 @@ public class CourseRestController {
 
     // API public với rating stats: lấy tất cả khóa học công khai kèm đánh giá
     @GetMapping("/public-with-ratings")
-    public ResponseEntity<List<Map<String, Object>>> getPublicCoursesWithRatings() {
+    public ResponseEntity<List<Map<String, Object>>> getPublicCoursesWithRatings(WebRequest webRequest) {
         try {
-            List<Course> courses = courseService.getCourses(null, null, "published");
-            List<Map<String, Object>> result = new ArrayList<>();
-            
-            for (Course course : courses) {
-                Map<String, Object> item = new HashMap<>();
-                item.put("courseId", course.getCourseId());
-                item.put("title", course.getTitle());
-                item.put("description", course.getDescription());
-                item.put("price", course.getPrice());
-                item.put("thumbnailUrl", course.getThumbnailUrl());
-                item.put("createdAt", course.getCreatedAt());
-                item.put("instructorId", course.getInstructorId());
-                
-                // Add category name
-                if (course.getCategory() != null) {
-                    item.put("categoryName", course.getCategory().getName());
-                }
-                
-                // Add rating statistics
-                Map<String, Object> ratingStats = courseReviewService.getCourseRatingStats(course.getCourseId());
-                item.put("averageRating", ratingStats.get("averageRating"));
-                item.put("totalReviews", ratingStats.get("totalReviews"));
-                
-                result.add(item);
+            CourseCatalogService.Snapshot<List<Map<String, Object>>> snapshot =
+                courseCatalogService.getPublicCoursesWithRatings();
+            if (webRequest.checkNotModified(snapshot.getETag())) {
+                return null; // 304 Not Modified đã được Spring thiết lập
             }
-            
-            return ResponseEntity.ok(result);
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getETag())
+                .body(snapshot.getBody());
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -104,6 +101,9 @@ public class CourseRestController {
             enrolledCourseIds.add(dto.getCourseId());
         }
 
+        Map<Integer, CourseRatingStatsDTO> ratingStatsByCourse = courseReviewService.getCourseRatingStats(
+            allCourses.stream().map(Course::getCourseId).toList());
+
         List<Map<String, Object>> result = new java.util.ArrayList<>();
         for (Course course : allCourses) {
             Map<String, Object> item = new java.util.HashMap<>();
@@ -120,9 +120,9 @@ public class CourseRestController {
             item.put("enrolled", enrolledCourseIds.contains(course.getCourseId()));
             
             // Add rating statistics
-            Map<String, Object> ratingStats = courseReviewService.getCourseRatingStats(course.getCourseId());
-            item.put("averageRating", ratingStats.get("averageRating"));
-            item.put("totalReviews", ratingStats.get("totalReviews"));
+            CourseRatingStatsDTO ratingStats = ratingStatsByCourse.get(course.getCourseId());
+            item.put("averageRating", ratingStats.getAverageRating());
+            item.put("totalReviews", ratingStats.getReviewCount());
             
             result.add(item);
         }
@@ -152,9 +152,11 @@ public class CourseRestController {
 
     @GetMapping("/list")
     @PreAuthorize("hasRole('admin') or hasRole('instructor')")
-    public ResponseEntity<List<Course>> listCourses(
+    public ResponseEntity<?> listCourses(
             @RequestParam(required = false) Integer categoryId,
-            @RequestParam(required = false) String status
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
         Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         Integer instructorId = null;
@@ -167,6 +169,15 @@ public class CourseRestController {
             }
         }
 
+        // ✅ Có cursor/limit thì trả về từng trang (keyset theo course_id)
+        if (PageCursor.isRequested(cursor, limit)) {
+            try {
+                return ResponseEntity.ok(courseService.getCoursesPage(categoryId, instructorId, status, cursor, limit));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        }
+
         List<Course> courses = courseService.getCourses(categoryId, instructorId, status);
         return ResponseEntity.ok(courses);
     }
@@ -2,6 +2,7 @@ package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.dto.CourseReviewDTO;
 import org.example.lmsbackend.dto.ReviewRequestDTO;
+import org.example.lmsbackend.utils.PageCursor;
 import org.example.lmsbackend.service.CourseReviewService;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -105,11 +106,18 @@ public class CourseReviewController {
     // Get all reviews (admin only)
     @GetMapping("/all")
     @PreAuthorize("hasRole('admin')")
-    public ResponseEntity<List<CourseReviewDTO>> getAllReviews() {
+    public ResponseEntity<?> getAllReviews(@RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) {
         try {
+            // Paged (keyset on review id, newest first) when cursor/limit is given
+            if (PageCursor.isRequested(cursor, limit)) {
+                return ResponseEntity.ok(courseReviewService.getAllReviews(cursor, limit));
+            }
             List<CourseReviewDTO> reviews = courseReviewService.getAllReviews();
             return ResponseEntity.ok(reviews);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
@@ -148,4 +156,18 @@ public class CourseReviewController {
                 .body(Map.of("error", e.getMessage()));
         }
     }
+
+    // Rebuild rating statistics from course_reviews (admin only)
+    @PostMapping("/rating-stats/rebuild")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<?> rebuildRatingStats() {
+        try {
+            int rows = courseReviewService.rebuildRatingStats();
+            return ResponseEntity.ok(Map.of("message", "Rating stats rebuilt", "rows", rows));
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.dto.DiscussionDTO;
+import org.example.lmsbackend.dto.PageResponse;
+import org.example.lmsbackend.utils.PageCursor;
 import org.example.lmsbackend.service.DiscussionService;
 import org.example.lmsbackend.service.CourseService;
 import org.example.lmsbackend.service.EnrollmentsService;
-import org.example.lmsbackend.service.CloudinaryService;
+import org.example.lmsbackend.service.FileStorageService;
+import org.example.lmsbackend.service.FileDownloadService;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -16,7 +19,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -33,27 +35,46 @@ public class DiscussionController {
     @Autowired
     private EnrollmentsService enrollmentsService;
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
 
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
     @GetMapping
     @PreAuthorize("hasAnyRole('admin', 'instructor', 'student')")
-    public List<DiscussionDTO> getAllDiscussions(@RequestParam Integer courseId, @AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> getAllDiscussions(@RequestParam Integer courseId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @AuthenticationPrincipal CustomUserDetails userDetails) {
+        boolean paged = PageCursor.isRequested(cursor, limit);
         // Chỉ trả về thảo luận của khóa học mà user có quyền
-        if (userDetails.hasRole("instructor")) {
-            if (!courseService.isInstructorOfCourse(userDetails.getUserId(), courseId)) {
-                return List.of();
-            }
+        boolean allowed = true;
+        if (userDetails.hasRole("instructor")
+                && !courseService.isInstructorOfCourse(userDetails.getUserId(), courseId)) {
+            allowed = false;
         }
-        if (userDetails.hasRole("student")) {
-            if (!enrollmentsService.isStudentEnrolled(userDetails.getUserId(), courseId)) {
-                return List.of();
+        if (userDetails.hasRole("student")
+                && !enrollmentsService.isStudentEnrolled(userDetails.getUserId(), courseId)) {
+            allowed = false;
+        }
+        if (!allowed) {
+            return ResponseEntity.ok(paged
+                    ? new PageResponse<>(List.of(), null, false, PageCursor.resolveLimit(limit))
+                    : List.of());
+        }
+        if (paged) {
+            try {
+                // Keyset theo discussion_id, mới nhất trước
+                return ResponseEntity.ok(discussionService.getDiscussionsForUser(courseId, userDetails.getUserId(), cursor, limit));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
             }
         }
         // Use new method that filters by user permissions
-        return discussionService.getDiscussionsForUser(courseId, userDetails.getUserId());
+        return ResponseEntity.ok(discussionService.getDiscussionsForUser(courseId, userDetails.getUserId()));
     }
 
     @GetMapping("/course/{courseId}")
@@ -170,7 +191,7 @@ public class DiscussionController {
             }
 
             // Upload file to Cloudinary instead of local storage
-            String cloudinaryUrl = cloudinaryService.uploadDocument(file, "discussions");
+            String cloudinaryUrl = fileStorageService.saveFile(file, "discussions", "raw");
             System.out.println("✅ File uploaded to Cloudinary: " + cloudinaryUrl);
 
             // Return file information with Cloudinary URL
@@ -230,22 +251,8 @@ public class DiscussionController {
                                  courseId + File.separator + userId;
             Path filePath = Paths.get(discussionDir, filename);
 
-            // Check if file exists
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Return file as byte array
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .header("Content-Disposition", "inline; filename=\"" + filename + "\"")
-                    .body(fileContent);
+            // Stream file (hỗ trợ Range và ETag / Last-Modified)
+            return fileDownloadService.buildDownload(filePath, filename, true);
 
         } catch (IOException e) {
             System.err.println("❌ Error downloading file: " + e.getMessage());
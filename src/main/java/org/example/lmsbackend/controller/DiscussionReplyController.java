@@ -5,7 +5,8 @@ import org.example.lmsbackend.service.DiscussionReplyService;
 import org.example.lmsbackend.service.EnrollmentsService;
 import org.example.lmsbackend.service.DiscussionService;
 import org.example.lmsbackend.service.CourseService;
-import org.example.lmsbackend.service.CloudinaryService;
+import org.example.lmsbackend.service.FileStorageService;
+import org.example.lmsbackend.service.FileDownloadService;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,7 +20,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -43,7 +43,10 @@ public class DiscussionReplyController {
     private CourseService courseService;
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
 
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
@@ -199,7 +202,7 @@ public class DiscussionReplyController {
             }
 
             // Upload file to Cloudinary instead of local storage
-            String cloudinaryUrl = cloudinaryService.uploadDocument(file, "discussions/replies");
+            String cloudinaryUrl = fileStorageService.saveFile(file, "discussions/replies", "raw");
             System.out.println("✅ Reply file uploaded to Cloudinary: " + cloudinaryUrl);
 
             // Create file URL
@@ -249,22 +252,8 @@ public class DiscussionReplyController {
             
             Path path = Paths.get(filePath);
             
-            if (!Files.exists(path)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Get file content and type
-            byte[] content = Files.readAllBytes(path);
-            String contentType = Files.probeContentType(path);
-            
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                    .body(content);
+            // Stream file (hỗ trợ Range và ETag / Last-Modified)
+            return fileDownloadService.buildDownload(path, filename, false);
 
         } catch (IOException e) {
             System.err.println("File download error: " + e.getMessage());
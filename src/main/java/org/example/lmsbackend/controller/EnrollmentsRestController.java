@@ -5,6 +5,7 @@ import org.example.lmsbackend.dto.EnrollmentRequest;
 import org.example.lmsbackend.dto.EnrollmentsDTO;
 import org.example.lmsbackend.service.EnrollmentsService;
 import org.example.lmsbackend.dto.UserDTO;
+import org.example.lmsbackend.utils.PageCursor;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -14,6 +15,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
+import java.util.Map;
 @RestController
 @RequestMapping("/api/enrollments")
 public class EnrollmentsRestController {
@@ -112,10 +114,17 @@ public class EnrollmentsRestController {
     }
     @GetMapping("")  // Hoặc @GetMapping("/")
     @PreAuthorize("hasRole('admin')")  // Chỉ admin mới có thể xem tất cả enrollments
-    public ResponseEntity<List<EnrollmentsDTO>> getAllEnrollments() {
+    public ResponseEntity<?> getAllEnrollments(@RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit) {
         try {
+            // ✅ Có cursor/limit thì trả về từng trang (keyset theo enrollment_id)
+            if (PageCursor.isRequested(cursor, limit)) {
+                return ResponseEntity.ok(enrollmentService.getEnrollmentsPage(cursor, limit));
+            }
             List<EnrollmentsDTO> allEnrollments = enrollmentService.getAllEnrollments();
             return ResponseEntity.ok(allEnrollments);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
@@ -1,7 +1,8 @@
 package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.security.CustomUserDetails;
-import org.example.lmsbackend.service.CloudinaryService;
+import org.example.lmsbackend.service.FileStorageService;
+import org.example.lmsbackend.service.FileDownloadService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
@@ -26,7 +27,10 @@ public class FileUploadController {
     private String uploadDir;
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
 
     /**
      * Upload essay file for student submission
@@ -71,7 +75,7 @@ public class FileUploadController {
             }
 
             // Upload file to Cloudinary instead of local storage
-            String cloudinaryUrl = cloudinaryService.uploadDocument(file, "essays");
+            String cloudinaryUrl = fileStorageService.saveFile(file, "essays", "raw");
             System.out.println("✅ Essay file uploaded to Cloudinary: " + cloudinaryUrl);
 
             // Return file information
@@ -134,7 +138,7 @@ public class FileUploadController {
             }
 
             // Upload file to Cloudinary
-            String cloudinaryUrl = cloudinaryService.uploadDocument(file, "questions");
+            String cloudinaryUrl = fileStorageService.saveFile(file, "questions", "raw");
             System.out.println("✅ Question file uploaded to Cloudinary: " + cloudinaryUrl);
 
             // Return file information
@@ -190,25 +194,8 @@ public class FileUploadController {
                            courseId + File.separator + userId;
             Path filePath = Paths.get(testDir, filename);
 
-            // Check if file exists
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Read file content
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            System.out.println("✅ File found and ready for download: " + filePath.toAbsolutePath());
-
-            return ResponseEntity.ok()
-                .header("Content-Type", contentType)
-                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                .body(fileContent);
+            // Stream file (hỗ trợ Range và ETag / Last-Modified)
+            return fileDownloadService.buildDownload(filePath, filename, false);
 
         } catch (IOException e) {
             System.err.println("❌ Error downloading file: " + e.getMessage());
@@ -260,20 +247,8 @@ public class FileUploadController {
                 return ResponseEntity.notFound().build();
             }
 
-            // Read file content
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            System.out.println("✅ Question file found and ready for download: " + filePath.toAbsolutePath());
-
-            return ResponseEntity.ok()
-                .header("Content-Type", contentType)
-                .header("Content-Disposition", "attachment; filename=\"" + filename + "\"")
-                .body(fileContent);
+            // Stream file (hỗ trợ Range và ETag / Last-Modified)
+            return fileDownloadService.buildDownload(filePath, filename, false);
 
         } catch (IOException e) {
             System.err.println("❌ Error downloading question file: " + e.getMessage());
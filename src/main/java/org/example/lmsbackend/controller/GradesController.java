@@ -1,11 +1,13 @@
 package org.example.lmsbackend.controller;
 
+import org.example.lmsbackend.dto.EssayGradeDTO;
 import org.example.lmsbackend.dto.GradeDTO;
 import org.example.lmsbackend.model.UserAnswer;
 import org.example.lmsbackend.service.GradesService;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -93,7 +95,7 @@ public class GradesController {
             Integer score = (Integer) gradeData.get("score");
             String feedback = (String) gradeData.get("feedback");
 
-            boolean success = gradesService.gradeEssayAnswer(userAnswerId, score, feedback);
+            boolean success = gradesService.gradeEssayAnswer(userAnswerId, score, feedback, graderId(userDetails));
             
             if (success) {
                 return ResponseEntity.ok(Map.of(
@@ -107,6 +109,16 @@ public class GradesController {
                 ));
             }
 
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(403).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
         } catch (Exception e) {
             System.out.println("❌ Error grading essay: " + e.getMessage());
             e.printStackTrace();
@@ -117,6 +129,55 @@ public class GradesController {
         }
     }
 
+    /**
+     * Grade many essay answers at once (body: [{userAnswerId, score, feedback}, ...])
+     */
+    @PostMapping("/grade-essays")
+    @PreAuthorize("hasAnyRole('instructor', 'admin')")
+    public ResponseEntity<?> gradeEssays(@RequestBody List<EssayGradeDTO> grades,
+                                         @AuthenticationPrincipal CustomUserDetails userDetails) {
+        try {
+            System.out.println("=== Bulk Grade Essay Request ===");
+            System.out.println("Entries: " + (grades != null ? grades.size() : 0));
+
+            if (grades == null || grades.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Danh sách chấm điểm trống"
+                ));
+            }
+
+            Map<String, Object> result = gradesService.gradeEssayAnswers(grades, graderId(userDetails));
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "message", "Chấm điểm thành công",
+                "gradedCount", result.get("gradedCount"),
+                "attemptIds", result.get("attemptIds"),
+                "notFound", result.get("notFound"),
+                "notEssay", result.get("notEssay")
+            ));
+
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(403).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            System.out.println("❌ Error bulk grading essays: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Lỗi khi chấm điểm: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Get detailed essay answer for grading
      */
@@ -148,4 +209,11 @@ public class GradesController {
             ));
         }
     }
+
+    // Giảng viên chấm bài: id để kiểm tra quyền theo khóa học; admin (null) chấm được mọi khóa học
+    private Integer graderId(CustomUserDetails userDetails) {
+        boolean isAdmin = userDetails.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_admin"));
+        return isAdmin ? null : userDetails.getUserId();
+    }
 }
@@ -3,15 +3,15 @@ package org.example.lmsbackend.controller;
 import org.example.lmsbackend.dto.ModulesDTO;
 import org.example.lmsbackend.dto.ContentResponseDTO;
 import org.example.lmsbackend.dto.ModuleResponseDTO;
+import org.example.lmsbackend.dto.ModuleProgressSummaryDTO;
 import org.example.lmsbackend.dto.CourseCompletionDTO;
 import org.example.lmsbackend.dto.VideoDTO;
 import org.example.lmsbackend.model.Modules;
 import org.example.lmsbackend.model.Content;
-import org.example.lmsbackend.model.ModuleProgress;
 import org.example.lmsbackend.model.Quizzes;
 import org.example.lmsbackend.service.ContentService;
 import org.example.lmsbackend.service.ModulesService;
-import org.example.lmsbackend.service.ModuleProgressService;
+import org.example.lmsbackend.service.CourseCompletionService;
 import org.example.lmsbackend.service.VideoService;
 import org.example.lmsbackend.service.QuizzesService;
 import org.example.lmsbackend.repository.ContentRepository;
@@ -41,7 +41,7 @@ public class ModulesRestController {
     private ContentService contentService;
 
     @Autowired
-    private ModuleProgressService moduleProgressService;
+    private CourseCompletionService courseCompletionService;
 
     @Autowired
     private VideoService videoService;
@@ -317,6 +317,9 @@ public class ModulesRestController {
     @PreAuthorize("hasRole('student') or hasRole('instructor') or hasRole('admin')")
     public ResponseEntity<List<ModuleResponseDTO>> getPublishedModulesByCourse(@PathVariable int courseId) {
         List<Modules> modules = moduleService.getPublishedModulesByCourseId(courseId);
+
+        // Add progress information for authenticated users: one aggregated query for all modules
+        Map<Integer, ModuleProgressSummaryDTO> progressByModule = getProgressSummariesForCurrentUser(courseId);
         List<ModuleResponseDTO> dtos = modules.stream().map(module -> {
             ModuleResponseDTO dto = new ModuleResponseDTO();
             dto.setModuleId(module.getId());
@@ -327,88 +330,9 @@ public class ModulesRestController {
             dto.setCourseId(module.getCourse().getCourseId());
             dto.setCourseTitle(module.getCourse().getTitle());
 
-            // Add progress information for authenticated users
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && !authentication.getName().equals("anonymousUser")) {
-                try {
-                    // Get userId from CustomUserDetails
-                    Object principal = authentication.getPrincipal();
-                    if (principal instanceof CustomUserDetails userDetails) {
-                        Integer userId = userDetails.getUserId();
-                        System.out.println("🔍 Getting progress for userId: " + userId + ", moduleId: " + module.getId());
-                        ModuleProgress progress = moduleProgressService.getModuleProgress(userId, module.getId());
-                        if (progress != null) {
-                            System.out.println("✅ Found progress: " + progress.getContentCompleted() + "/" + progress.getVideoCompleted() + "/" + progress.getTestCompleted());
-
-                            // Calculate completion percentage based on actual item counts
-                            int totalItems = 0;
-                            int completedItems = 0;
-
-                            // Count content items
-                            int totalContentItems = getTotalContentItems(module);
-                            int completedContentItems = getCompletedContentItems(module, userId);
-                            totalItems += totalContentItems;
-                            completedItems += completedContentItems;
-
-                            // Count video items
-                            int totalVideoItems = getTotalVideoItems(module);
-                            int completedVideoItems = getCompletedVideoItems(module, userId);
-                            totalItems += totalVideoItems;
-                            completedItems += completedVideoItems;
-
-                            // Count quiz/test items
-                            int totalQuizItems = getTotalQuizItems(module);
-                            int completedQuizItems = getCompletedQuizItems(module, userId);
-                            totalItems += totalQuizItems;
-                            completedItems += completedQuizItems;
-
-                            // Set completion flags based on individual item completion
-                            dto.setContentCompleted(totalContentItems > 0 && completedContentItems == totalContentItems);
-                            dto.setVideoCompleted(totalVideoItems > 0 && completedVideoItems == totalVideoItems);
-                            dto.setTestCompleted(totalQuizItems > 0 && completedQuizItems == totalQuizItems);
-                            dto.setModuleCompleted(totalItems > 0 && completedItems == totalItems);
-
-                            // Calculate percentage based on actual completion ratio
-                            dto.setCompletionPercentage(totalItems > 0 ? (double) completedItems * 100.0 / totalItems : 0.0);
-
-                            System.out.println("📊 Module " + module.getId() + " progress: " + completedItems + "/" + totalItems +
-                                " (" + String.format("%.1f", dto.getCompletionPercentage()) + "%)");
-                            System.out.println("📝 Details - Content: " + completedContentItems + "/" + totalContentItems +
-                                ", Video: " + completedVideoItems + "/" + totalVideoItems +
-                                ", Quiz: " + completedQuizItems + "/" + totalQuizItems);
-
-                            dto.setCompletionPercentage(totalItems > 0 ? (double) completedItems * 100.0 / totalItems : 0.0);
-                        } else {
-                            dto.setContentCompleted(false);
-                            dto.setVideoCompleted(false);
-                            dto.setTestCompleted(false);
-                            dto.setModuleCompleted(false);
-                            dto.setCompletionPercentage(0.0);
-                        }
-                    } else {
-                        dto.setContentCompleted(false);
-                        dto.setVideoCompleted(false);
-                        dto.setTestCompleted(false);
-                        dto.setModuleCompleted(false);
-                        dto.setCompletionPercentage(0.0);
-                    }
-                } catch (Exception e) {
-                    // If error getting progress, set defaults
-                    System.out.println("❌ Error getting progress for module " + module.getId() + ": " + e.getMessage());
-                    e.printStackTrace();
-                    dto.setContentCompleted(false);
-                    dto.setVideoCompleted(false);
-                    dto.setTestCompleted(false);
-                    dto.setModuleCompleted(false);
-                    dto.setCompletionPercentage(0.0);
-                }
-            } else {
-                dto.setContentCompleted(false);
-                dto.setVideoCompleted(false);
-                dto.setTestCompleted(false);
-                dto.setModuleCompleted(false);
-                dto.setCompletionPercentage(0.0);
-            }
+            // Module không có item hoặc user chưa đăng nhập -> tất cả cờ false, 0%
+            ModuleProgressSummaryDTO summary = progressByModule != null ? progressByModule.get(module.getId()) : null;
+            (summary != null ? summary : new ModuleProgressSummaryDTO(module.getId())).applyTo(dto);
 
             return dto;
         }).toList();
@@ -416,6 +340,23 @@ public class ModulesRestController {
         return ResponseEntity.ok(dtos);
     }
 
+    // Tiến độ từng module của user hiện tại, null nếu chưa đăng nhập hoặc có lỗi
+    private Map<Integer, ModuleProgressSummaryDTO> getProgressSummariesForCurrentUser(int courseId) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof CustomUserDetails userDetails)) {
+            return null;
+        }
+        try {
+            return courseCompletionService.getModuleProgressSummaries(courseId, userDetails.getUserId());
+        } catch (Exception e) {
+            // If error getting progress, set defaults
+            System.out.println("❌ Error getting progress for course " + courseId + ": " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     // Helper methods to check what content types a module has
     private boolean hasContentItems(Modules module) {
         try {
@@ -444,95 +385,6 @@ public class ModulesRestController {
         }
     }
 
-    // Methods to count total items in module
-    private int getTotalContentItems(Modules module) {
-        try {
-            List<Content> contents = contentRepository.findByModuleIdAndPublishedTrueOrderByOrderNumber(module.getId());
-            return contents != null ? contents.size() : 0;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-
-    private int getTotalVideoItems(Modules module) {
-        try {
-            List<org.example.lmsbackend.model.Video> videos = videoRepository.findByModuleIdAndPublished(module.getId());
-            return videos != null ? videos.size() : 0;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-
-    private int getTotalQuizItems(Modules module) {
-        try {
-            List<Quizzes> quizzes = quizzesRepository.findByModuleIdAndPublishTrue(module.getId());
-            return quizzes != null ? quizzes.size() : 0;
-        } catch (Exception e) {
-            return 0;
-        }
-    }
-
-    // Methods to count completed items for a user
-    private int getCompletedContentItems(Modules module, Integer userId) {
-        try {
-            List<Content> allContents = contentRepository.findByModuleIdAndPublishedTrueOrderByOrderNumber(module.getId());
-            if (allContents == null || allContents.isEmpty()) return 0;
-
-            int completedCount = 0;
-            for (Content content : allContents) {
-                // Check if user has completed this specific content
-                boolean isCompleted = moduleProgressService.hasCompletedSpecificContent(userId, content.getId());
-                if (isCompleted) {
-                    completedCount++;
-                }
-            }
-            return completedCount;
-        } catch (Exception e) {
-            System.err.println("❌ Error counting completed content items: " + e.getMessage());
-            return 0;
-        }
-    }
-
-    private int getCompletedVideoItems(Modules module, Integer userId) {
-        try {
-            List<org.example.lmsbackend.model.Video> allVideos = videoRepository.findByModuleIdAndPublished(module.getId());
-            if (allVideos == null || allVideos.isEmpty()) return 0;
-
-            int completedCount = 0;
-            for (org.example.lmsbackend.model.Video video : allVideos) {
-                // Check if user has completed this specific video
-                boolean isCompleted = moduleProgressService.hasCompletedSpecificVideo(userId, video.getVideoId().intValue());
-                if (isCompleted) {
-                    completedCount++;
-                }
-            }
-            return completedCount;
-        } catch (Exception e) {
-            System.err.println("❌ Error counting completed video items: " + e.getMessage());
-            return 0;
-        }
-    }
-
-    private int getCompletedQuizItems(Modules module, Integer userId) {
-        try {
-            List<Quizzes> allQuizzes = quizzesRepository.findByModuleIdAndPublishTrue(module.getId());
-            if (allQuizzes == null || allQuizzes.isEmpty()) return 0;
-
-            int completedCount = 0;
-            for (Quizzes quiz : allQuizzes) {
-                // Check if user has completed this specific quiz
-                boolean isCompleted = moduleProgressService.hasCompletedSpecificQuiz(userId, quiz.getQuizId());
-                if (isCompleted) {
-                    completedCount++;
-                }
-            }
-            return completedCount;
-        } catch (Exception e) {
-            System.err.println("❌ Error counting completed quiz items: " + e.getMessage());
-            return 0;
-        }
-    }
-
     // ✅ API: Tính % hoàn thành khóa học cho user hiện tại
     @GetMapping("/course/{courseId}/completion")
     @PreAuthorize("hasRole('student') or hasRole('instructor') or hasRole('admin')")
@@ -559,4 +411,26 @@ public class ModulesRestController {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    // ✅ ADMIN API: Tính lại bảng course_completion cho một khóa học, hoặc toàn bộ khóa học nếu không truyền courseId
+    @PostMapping("/completion/rebuild")
+    @PreAuthorize("hasRole('admin')")
+    public ResponseEntity<?> rebuildCourseCompletion(@RequestParam(required = false) Integer courseId) {
+        try {
+            int rebuiltRows = courseId != null
+                    ? courseCompletionService.rebuildCourse(courseId)
+                    : courseCompletionService.rebuildAllCourses();
+
+            return ResponseEntity.ok().body(Map.of(
+                "message", "Đã tính lại tiến độ hoàn thành cho " + (courseId != null ? "khóa học " + courseId : "tất cả khóa học"),
+                "success", true,
+                "rebuiltRows", rebuiltRows
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "message", "Error: " + e.getMessage(),
+                "success", false
+            ));
+        }
+    }
 }
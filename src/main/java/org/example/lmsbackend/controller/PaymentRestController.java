@@ -6,6 +6,7 @@ import org.example.lmsbackend.dto.PaymentDTO;
 import org.example.lmsbackend.dto.PaymentRequest;
 import org.example.lmsbackend.dto.PaymentResponse;
 import org.example.lmsbackend.dto.ZaloPayRequest;
+import org.example.lmsbackend.utils.PageCursor;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.example.lmsbackend.service.PaymentService;
 import org.example.lmsbackend.service.VNPayService;
@@ -179,11 +180,19 @@ private BigDecimal parseBigDecimal(Object value) {
      */
     @GetMapping("/admin/all-payments")
     @PreAuthorize("hasRole('admin')")
-    public ResponseEntity<?> getAllPayments(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<?> getAllPayments(@AuthenticationPrincipal CustomUserDetails userDetails,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Integer limit) {
         try {
+            // Có cursor/limit thì trả về từng trang (keyset theo payment_id, mới nhất trước)
+            if (PageCursor.isRequested(cursor, limit)) {
+                return ResponseEntity.ok(paymentService.getPaymentsPage(cursor, limit));
+            }
             List<PaymentDTO> payments = paymentService.getAllPayments();
             return ResponseEntity.ok(payments);
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
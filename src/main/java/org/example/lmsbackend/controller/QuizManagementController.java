@@ -2,6 +2,7 @@ package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.service.QuizResultService;
 import org.example.lmsbackend.service.QuestionsService;
+import org.example.lmsbackend.service.QuizAnswerKeyCache;
 import org.example.lmsbackend.dto.QuestionsDTO;
 import org.example.lmsbackend.dto.QuizResultDTO;
 import org.example.lmsbackend.dto.QuizEditDTO;
@@ -29,6 +30,9 @@ public class QuizManagementController {
     @Autowired
     private QuizResultService quizResultService;
 
+    @Autowired
+    private QuizAnswerKeyCache quizAnswerKeyCache;
+
     /**
      * Lấy toàn bộ câu hỏi và đáp án của một quiz để chỉnh sửa
      */
@@ -109,6 +113,9 @@ public class QuizManagementController {
             
             // Xóa các câu hỏi không còn trong danh sách (nếu có)
             // TODO: Implement logic để xóa câu hỏi đã bị xóa
+
+            // Các câu hỏi được cập nhật trong transaction riêng, làm mới đáp án của quiz sau khi tất cả đã commit
+            quizAnswerKeyCache.invalidate(quizId);
             
             System.out.println("✅ Quiz updated successfully");
             return ResponseEntity.ok(Map.of(
@@ -0,0 +1,47 @@
+package org.example.lmsbackend.controller;
+
+import org.example.lmsbackend.service.FileDownloadService;
+import org.example.lmsbackend.service.FileStorageService;
+import org.example.lmsbackend.service.LocalStorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+// ✅ Tải file private của local storage backend (bài essay, file câu hỏi, đính kèm discussion, video)
+// Các file này không nằm dưới /uploads/** nên chỉ đọc được qua endpoint cần đăng nhập này
+@RestController
+@RequestMapping("/api/files/private")
+public class StoredFileController {
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @GetMapping("/{prefix}/{filename}")
+    @PreAuthorize("hasAnyRole('student', 'instructor', 'admin')")
+    public ResponseEntity<?> downloadPrivateFile(@PathVariable String prefix,
+                                                 @PathVariable String filename) {
+        try {
+            Path filePath = fileStorageService.resolveLocalPath(
+                    LocalStorageBackend.PRIVATE_URL_PREFIX + prefix + "/" + filename);
+            if (filePath == null) {
+                return ResponseEntity.notFound().build();
+            }
+            // Stream file (hỗ trợ Range và ETag / Last-Modified)
+            return fileDownloadService.buildDownload(filePath, filename, true);
+        } catch (IOException e) {
+            System.err.println("❌ Error downloading stored file: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Lỗi khi tải file: " + e.getMessage()
+            ));
+        }
+    }
+}
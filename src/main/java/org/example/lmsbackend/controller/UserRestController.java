@@ -6,6 +6,7 @@ import org.example.lmsbackend.security.CustomUserDetails;
 import org.example.lmsbackend.service.FileStorageService;
 import org.example.lmsbackend.service.UserService;
 import org.example.lmsbackend.utils.JwtTokenUtil;
+import org.example.lmsbackend.utils.PageCursor;
 import org.example.lmsbackend.repository.UserMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -146,11 +147,22 @@ public class UserRestController {
     // ✅ API lấy danh sách người dùng theo điều kiện
     @GetMapping("/list")
     @PreAuthorize("hasRole('admin')")
-    public ResponseEntity<List<User>> getUsers(
+    public ResponseEntity<?> getUsers(
             @RequestParam(required = false) Integer userId,
             @RequestParam(required = false) String role,
             @RequestParam(required = false) Boolean isVerified,
-            @RequestParam(required = false) String username) {
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+
+        // ✅ Có cursor/limit thì trả về từng trang (keyset theo user_id)
+        if (PageCursor.isRequested(cursor, limit)) {
+            try {
+                return ResponseEntity.ok(userService.getUsersPage(userId, role, isVerified, username, cursor, limit));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        }
 
         List<User> users = userService.getUsers(userId, role, isVerified, username);
         return ResponseEntity.ok(users);
@@ -2,12 +2,19 @@ package org.example.lmsbackend.controller;
 
 import org.example.lmsbackend.dto.VideoDTO;
 import org.example.lmsbackend.model.Video;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.ClientAbortException;
 import org.example.lmsbackend.service.VideoService;
+import org.example.lmsbackend.service.VideoStreamService;
+import org.example.lmsbackend.service.VideoUploadJobService;
+import org.example.lmsbackend.dto.VideoUploadJobDTO;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
 import org.example.lmsbackend.service.CourseService;
 import org.example.lmsbackend.service.EnrollmentsService;
 import org.example.lmsbackend.security.CustomUserDetails;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -15,6 +22,8 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
@@ -29,6 +38,10 @@ public class VideoController {
     private CourseService courseService;
     @Autowired
     private EnrollmentsService enrollmentsService;
+    @Autowired
+    private VideoStreamService videoStreamService;
+    @Autowired
+    private VideoUploadJobService videoUploadJobService;
 
     // Lấy danh sách video theo khóa học - có phân quyền
     @GetMapping("/course/{courseId}")
@@ -78,12 +91,61 @@ public class VideoController {
         return ResponseEntity.ok(videoDTO);
     }
 
+    // ✅ Upload video bất đồng bộ - trả về 202 ngay, upload lên Cloudinary chạy nền
+    @PostMapping("/upload-jobs")
+    @PreAuthorize("hasRole('instructor')")
+    public ResponseEntity<?> createUploadJob(@RequestParam("file") MultipartFile file,
+                                             @RequestParam("title") String title,
+                                             @RequestParam("description") String description,
+                                             @RequestParam("courseId") Integer courseId,
+                                             @RequestParam("moduleId") Integer moduleId,
+                                             @RequestParam(value = "published", defaultValue = "false") Boolean published,
+                                             @AuthenticationPrincipal CustomUserDetails userDetails) {
+        // Kiểm tra giảng viên có dạy khóa này không
+        if (!courseService.isInstructorOfCourse(userDetails.getUserId(), courseId)) {
+            return ResponseEntity.status(403).build();
+        }
+
+        try {
+            VideoUploadJobDTO job = videoUploadJobService.submit(file, title, description, courseId, moduleId, published, userDetails.getUserId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/videos/upload-jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("message", "Too many uploads in progress, please try again later"));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.badRequest().body(Map.of("message", "Upload failed: " + e.getMessage()));
+        }
+    }
+
+    // Theo dõi tiến độ / kết quả upload job
+    @GetMapping("/upload-jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('admin', 'instructor')")
+    public ResponseEntity<VideoUploadJobDTO> getUploadJob(@PathVariable Integer jobId,
+                                                          @AuthenticationPrincipal CustomUserDetails userDetails) {
+        VideoUploadJobDTO job = videoUploadJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (userDetails.hasRole("instructor") && !userDetails.hasRole("admin")
+                && !userDetails.getUserId().equals(job.getInstructorId())
+                && !videoService.isInstructorOfVideo(jobId.longValue(), userDetails.getUserId())) {
+            return ResponseEntity.status(403).build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
     // Stream video - có phân quyền xem
+    // ✅ Hỗ trợ Range request (206 Partial Content) để tua video không phải tải lại toàn bộ file
     @GetMapping("/stream/{videoId}")
     @PreAuthorize("hasAnyRole('admin', 'instructor', 'student')")
-    public ResponseEntity<Resource> streamVideo(@PathVariable Long videoId,
-                                              @AuthenticationPrincipal CustomUserDetails userDetails) {
-        System.out.println("🎥 Stream request: videoId=" + videoId + ", userId=" + userDetails.getUserId() + ", role=" + userDetails.getAuthorities());
+    public void streamVideo(@PathVariable Long videoId,
+                            @AuthenticationPrincipal CustomUserDetails userDetails,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        System.out.println("🎥 Stream request: videoId=" + videoId + ", userId=" + userDetails.getUserId() + ", range=" + request.getHeader("Range"));
         
         // Admin có quyền xem tất cả video
         if (userDetails.hasRole("admin")) {
@@ -92,21 +154,23 @@ public class VideoController {
         // Kiểm tra quyền xem video cho instructor và student
         else if (userDetails.hasRole("instructor") && !videoService.isInstructorOfVideo(videoId, userDetails.getUserId())) {
             System.out.println("❌ Instructor access denied for video " + videoId);
-            return ResponseEntity.status(403).build();
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
         else if (userDetails.hasRole("student") && !videoService.canStudentAccessVideo(videoId, userDetails.getUserId())) {
             System.out.println("❌ Student access denied for video " + videoId);
-            return ResponseEntity.status(403).build();
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
         }
         
-        Resource videoResource = videoService.getVideoResource(videoId);
-        if (videoResource == null) {
-            return ResponseEntity.notFound().build();
+        Video video = videoService.findVideo(videoId);
+        try {
+            if (!videoStreamService.streamVideo(video, request, response)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            }
+        } catch (ClientAbortException e) {
+            // Trình duyệt hủy kết nối khi người dùng tua video - không phải lỗi
         }
-        
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(videoResource);
     }
 
     // Xem chi tiết video - có phân quyền
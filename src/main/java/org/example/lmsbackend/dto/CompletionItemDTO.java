@@ -0,0 +1,56 @@
+package org.example.lmsbackend.dto;
+
+// One learning item (content / video / quiz) of a module, as returned by CourseCompletionMapper
+public class CompletionItemDTO {
+    public static final String TYPE_CONTENT = "content";
+    public static final String TYPE_VIDEO = "video";
+    public static final String TYPE_QUIZ = "quiz";
+
+    private String itemType;
+    private Integer courseId;
+    private Integer moduleId;
+    private Integer itemId;
+
+    // Constructors
+    public CompletionItemDTO() {}
+
+    public CompletionItemDTO(String itemType, Integer courseId, Integer moduleId, Integer itemId) {
+        this.itemType = itemType;
+        this.courseId = courseId;
+        this.moduleId = moduleId;
+        this.itemId = itemId;
+    }
+
+    // Getters and Setters
+    public String getItemType() {
+        return itemType;
+    }
+
+    public void setItemType(String itemType) {
+        this.itemType = itemType;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    public Integer getModuleId() {
+        return moduleId;
+    }
+
+    public void setModuleId(Integer moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public Integer getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(Integer itemId) {
+        this.itemId = itemId;
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.lmsbackend.dto;
+
+// Module / course của một content và việc user đã hoàn thành content đó chưa
+public class ContentViewStateDTO {
+    private Integer moduleId;
+    private Integer courseId;
+    private Boolean completed;
+
+    // Getters and Setters
+    public Integer getModuleId() {
+        return moduleId;
+    }
+
+    public void setModuleId(Integer moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+}
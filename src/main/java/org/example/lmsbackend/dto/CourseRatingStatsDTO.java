@@ -0,0 +1,108 @@
+package org.example.lmsbackend.dto;
+
+// Thống kê đánh giá của một khóa học; cũng dùng làm "delta" khi thêm/sửa/xóa review
+public class CourseRatingStatsDTO {
+    private Integer courseId;
+    private int reviewCount;
+    private int ratingSum;
+    private int rating1;
+    private int rating2;
+    private int rating3;
+    private int rating4;
+    private int rating5;
+
+    // Constructors
+    public CourseRatingStatsDTO() {}
+
+    public CourseRatingStatsDTO(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    // Thêm (sign = 1) hoặc bớt (sign = -1) một review có số sao rating
+    public CourseRatingStatsDTO addRating(int rating, int sign) {
+        reviewCount += sign;
+        ratingSum += sign * rating;
+        switch (rating) {
+            case 1 -> rating1 += sign;
+            case 2 -> rating2 += sign;
+            case 3 -> rating3 += sign;
+            case 4 -> rating4 += sign;
+            case 5 -> rating5 += sign;
+            default -> throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+        return this;
+    }
+
+    // Làm tròn 1 chữ số thập phân
+    public double getAverageRating() {
+        if (reviewCount <= 0) {
+            return 0.0;
+        }
+        return Math.round((double) ratingSum / reviewCount * 10.0) / 10.0;
+    }
+
+    // Getters and Setters
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(int reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public int getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(int ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public int getRating1() {
+        return rating1;
+    }
+
+    public void setRating1(int rating1) {
+        this.rating1 = rating1;
+    }
+
+    public int getRating2() {
+        return rating2;
+    }
+
+    public void setRating2(int rating2) {
+        this.rating2 = rating2;
+    }
+
+    public int getRating3() {
+        return rating3;
+    }
+
+    public void setRating3(int rating3) {
+        this.rating3 = rating3;
+    }
+
+    public int getRating4() {
+        return rating4;
+    }
+
+    public void setRating4(int rating4) {
+        this.rating4 = rating4;
+    }
+
+    public int getRating5() {
+        return rating5;
+    }
+
+    public void setRating5(int rating5) {
+        this.rating5 = rating5;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.lmsbackend.dto;
 
 public class EnrollmentsDTO {
+    private Integer enrollmentId;
     private int courseId;
     private String courseTitle;
     private int userId; // 👈 Thêm trường này
@@ -18,6 +19,14 @@ public class EnrollmentsDTO {
     }
 
     // Getters and setters
+    public Integer getEnrollmentId() {
+        return enrollmentId;
+    }
+
+    public void setEnrollmentId(Integer enrollmentId) {
+        this.enrollmentId = enrollmentId;
+    }
+
     public int getCourseId() {
         return courseId;
     }
@@ -0,0 +1,41 @@
+package org.example.lmsbackend.dto;
+
+// Điểm và nhận xét của giảng viên cho một câu trả lời tự luận (dùng cho chấm nhiều bài một lần)
+public class EssayGradeDTO {
+    private Integer userAnswerId;
+    private Integer score;
+    private String feedback;
+
+    public EssayGradeDTO() {}
+
+    public EssayGradeDTO(Integer userAnswerId, Integer score, String feedback) {
+        this.userAnswerId = userAnswerId;
+        this.score = score;
+        this.feedback = feedback;
+    }
+
+    // Getters and Setters
+    public Integer getUserAnswerId() {
+        return userAnswerId;
+    }
+
+    public void setUserAnswerId(Integer userAnswerId) {
+        this.userAnswerId = userAnswerId;
+    }
+
+    public Integer getScore() {
+        return score;
+    }
+
+    public void setScore(Integer score) {
+        this.score = score;
+    }
+
+    public String getFeedback() {
+        return feedback;
+    }
+
+    public void setFeedback(String feedback) {
+        this.feedback = feedback;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.lmsbackend.dto;
+
+// Tổng số item đã xuất bản và số item user đã hoàn thành của một module
+public class ModuleProgressSummaryDTO {
+    private Integer moduleId;
+    private int totalContents;
+    private int completedContents;
+    private int totalVideos;
+    private int completedVideos;
+    private int totalQuizzes;
+    private int completedQuizzes;
+
+    // Constructors
+    public ModuleProgressSummaryDTO() {}
+
+    public ModuleProgressSummaryDTO(Integer moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public int getTotalItems() {
+        return totalContents + totalVideos + totalQuizzes;
+    }
+
+    public int getCompletedItems() {
+        return completedContents + completedVideos + completedQuizzes;
+    }
+
+    // Ghi các cờ hoàn thành và % hoàn thành vào ModuleResponseDTO
+    public void applyTo(ModuleResponseDTO dto) {
+        int totalItems = getTotalItems();
+        int completedItems = getCompletedItems();
+        dto.setContentCompleted(totalContents > 0 && completedContents == totalContents);
+        dto.setVideoCompleted(totalVideos > 0 && completedVideos == totalVideos);
+        dto.setTestCompleted(totalQuizzes > 0 && completedQuizzes == totalQuizzes);
+        dto.setModuleCompleted(totalItems > 0 && completedItems == totalItems);
+        dto.setCompletionPercentage(totalItems > 0 ? (double) completedItems * 100.0 / totalItems : 0.0);
+    }
+
+    // Getters and Setters
+    public Integer getModuleId() {
+        return moduleId;
+    }
+
+    public void setModuleId(Integer moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public int getTotalContents() {
+        return totalContents;
+    }
+
+    public void setTotalContents(int totalContents) {
+        this.totalContents = totalContents;
+    }
+
+    public int getCompletedContents() {
+        return completedContents;
+    }
+
+    public void setCompletedContents(int completedContents) {
+        this.completedContents = completedContents;
+    }
+
+    public int getTotalVideos() {
+        return totalVideos;
+    }
+
+    public void setTotalVideos(int totalVideos) {
+        this.totalVideos = totalVideos;
+    }
+
+    public int getCompletedVideos() {
+        return completedVideos;
+    }
+
+    public void setCompletedVideos(int completedVideos) {
+        this.completedVideos = completedVideos;
+    }
+
+    public int getTotalQuizzes() {
+        return totalQuizzes;
+    }
+
+    public void setTotalQuizzes(int totalQuizzes) {
+        this.totalQuizzes = totalQuizzes;
+    }
+
+    public int getCompletedQuizzes() {
+        return completedQuizzes;
+    }
+
+    public void setCompletedQuizzes(int completedQuizzes) {
+        this.completedQuizzes = completedQuizzes;
+    }
+}
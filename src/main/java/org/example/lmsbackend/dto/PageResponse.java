@@ -0,0 +1,64 @@
+package org.example.lmsbackend.dto;
+
+import org.example.lmsbackend.utils.PageCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Một trang kết quả keyset; nextCursor = null khi đã hết dữ liệu
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    private int limit;
+
+    public PageResponse() {}
+
+    public PageResponse(List<T> items, String nextCursor, boolean hasMore, int limit) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.limit = limit;
+    }
+
+    // rows được truy vấn với limit + 1 dòng để biết còn trang sau hay không
+    public static <T> PageResponse<T> of(List<T> rows, int limit, Function<T, Integer> keyOf) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? PageCursor.encode(keyOf.apply(items.get(items.size() - 1))) : null;
+        return new PageResponse<>(items, nextCursor, hasMore, limit);
+    }
+
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
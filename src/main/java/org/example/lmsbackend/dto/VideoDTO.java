@@ -20,6 +20,10 @@ public class VideoDTO {
     private Integer moduleId;
     private Integer orderNumber;
     private Boolean published;
+    private String processingStatus;
+    private Integer width;
+    private Integer height;
+    private Integer bitRate;
 
     // Constructors
     public VideoDTO() {}
@@ -161,4 +165,36 @@ public class VideoDTO {
     public void setPublished(Boolean published) {
         this.published = published;
     }
+
+    public String getProcessingStatus() {
+        return processingStatus;
+    }
+
+    public void setProcessingStatus(String processingStatus) {
+        this.processingStatus = processingStatus;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getBitRate() {
+        return bitRate;
+    }
+
+    public void setBitRate(Integer bitRate) {
+        this.bitRate = bitRate;
+    }
 }
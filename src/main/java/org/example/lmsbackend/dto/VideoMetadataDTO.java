@@ -0,0 +1,38 @@
+package org.example.lmsbackend.dto;
+
+// Metadata đọc từ file video (ffprobe qua JAVE), giá trị 0 / null khi không đọc được
+public class VideoMetadataDTO {
+    public static final VideoMetadataDTO EMPTY = new VideoMetadataDTO(0, null, null, null);
+
+    private final int durationSeconds;
+    private final Integer width;
+    private final Integer height;
+    private final Integer bitRate;
+
+    public VideoMetadataDTO(int durationSeconds, Integer width, Integer height, Integer bitRate) {
+        this.durationSeconds = durationSeconds;
+        this.width = width;
+        this.height = height;
+        this.bitRate = bitRate;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public Integer getBitRate() {
+        return bitRate;
+    }
+
+    public boolean isEmpty() {
+        return durationSeconds <= 0 && width == null;
+    }
+}
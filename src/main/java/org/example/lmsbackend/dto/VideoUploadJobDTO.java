@@ -0,0 +1,137 @@
+package org.example.lmsbackend.dto;
+
+import java.time.LocalDateTime;
+
+// Trạng thái của một upload job (jobId = videoId), được cập nhật bởi thread upload
+public class VideoUploadJobDTO {
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_UPLOADING = "UPLOADING";
+    public static final String STATUS_EXTRACTING_METADATA = "EXTRACTING_METADATA";
+    public static final String STATUS_PROCESSING = "PROCESSING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private Integer jobId;
+    private Integer videoId;
+    private Integer instructorId;
+    private volatile String status;
+    private volatile long bytesUploaded;
+    private volatile long totalBytes;
+    private volatile String error;
+    private volatile VideoDTO video;
+    private LocalDateTime createdAt;
+    private volatile LocalDateTime updatedAt;
+
+    // Constructors
+    public VideoUploadJobDTO() {}
+
+    public VideoUploadJobDTO(Integer videoId, Integer instructorId, long totalBytes, String status) {
+        this.jobId = videoId;
+        this.videoId = videoId;
+        this.instructorId = instructorId;
+        this.totalBytes = totalBytes;
+        this.status = status;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public void updateProgress(long bytesUploaded, long totalBytes) {
+        this.bytesUploaded = bytesUploaded;
+        if (totalBytes > 0) {
+            this.totalBytes = totalBytes;
+        }
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public int getProgress() {
+        if (STATUS_COMPLETED.equals(status)) return 100;
+        if (totalBytes <= 0) return 0;
+        return (int) Math.min(100, bytesUploaded * 100 / totalBytes);
+    }
+
+    public boolean isFinished() {
+        return STATUS_COMPLETED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    // Getters and Setters
+    public Integer getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(Integer jobId) {
+        this.jobId = jobId;
+    }
+
+    public Integer getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Integer videoId) {
+        this.videoId = videoId;
+    }
+
+    public Integer getInstructorId() {
+        return instructorId;
+    }
+
+    public void setInstructorId(Integer instructorId) {
+        this.instructorId = instructorId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    public void setBytesUploaded(long bytesUploaded) {
+        this.bytesUploaded = bytesUploaded;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public VideoDTO getVideo() {
+        return video;
+    }
+
+    public void setVideo(VideoDTO video) {
+        this.video = video;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
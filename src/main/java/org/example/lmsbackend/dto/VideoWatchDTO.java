@@ -0,0 +1,90 @@
+package org.example.lmsbackend.dto;
+
+import java.time.LocalDateTime;
+
+// Vị trí xem video mới nhất của một user (heartbeat của player), kèm module / course của video
+public class VideoWatchDTO {
+    private Integer userId;
+    private Integer videoId;
+    private Integer moduleId;
+    private Integer courseId;
+    private Integer watchedDuration;
+    private Integer totalDuration;
+    private LocalDateTime lastWatchedAt;
+
+    // Constructors
+    public VideoWatchDTO() {}
+
+    public VideoWatchDTO(Integer userId, Integer videoId, Integer watchedDuration, Integer totalDuration,
+                         LocalDateTime lastWatchedAt) {
+        this.userId = userId;
+        this.videoId = videoId;
+        this.watchedDuration = watchedDuration;
+        this.totalDuration = totalDuration;
+        this.lastWatchedAt = lastWatchedAt;
+    }
+
+    // Xem >= 90% thời lượng thì video được tính là hoàn thành
+    public boolean isCompleted() {
+        return totalDuration != null && totalDuration > 0
+            && watchedDuration != null
+            && (double) watchedDuration / totalDuration * 100 >= 90;
+    }
+
+    // Getters and Setters
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Integer userId) {
+        this.userId = userId;
+    }
+
+    public Integer getVideoId() {
+        return videoId;
+    }
+
+    public void setVideoId(Integer videoId) {
+        this.videoId = videoId;
+    }
+
+    public Integer getModuleId() {
+        return moduleId;
+    }
+
+    public void setModuleId(Integer moduleId) {
+        this.moduleId = moduleId;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public void setCourseId(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    public Integer getWatchedDuration() {
+        return watchedDuration;
+    }
+
+    public void setWatchedDuration(Integer watchedDuration) {
+        this.watchedDuration = watchedDuration;
+    }
+
+    public Integer getTotalDuration() {
+        return totalDuration;
+    }
+
+    public void setTotalDuration(Integer totalDuration) {
+        this.totalDuration = totalDuration;
+    }
+
+    public LocalDateTime getLastWatchedAt() {
+        return lastWatchedAt;
+    }
+
+    public void setLastWatchedAt(LocalDateTime lastWatchedAt) {
+        this.lastWatchedAt = lastWatchedAt;
+    }
+}
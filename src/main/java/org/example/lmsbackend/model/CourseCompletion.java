@@ -0,0 +1,203 @@
+package org.example.lmsbackend.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// Bảng tổng hợp % hoàn thành khóa học theo (user, course), được cập nhật khi có tiến độ mới
+@Entity
+@Table(name = "course_completion",
+       uniqueConstraints = @UniqueConstraint(name = "uk_course_completion_user_course", columnNames = {"user_id", "course_id"}))
+public class CourseCompletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "completion_id", nullable = false)
+    private Integer completionId;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @JoinColumn(name = "course_id", nullable = false)
+    private Course course;
+
+    @Column(name = "total_modules", nullable = false)
+    private Integer totalModules = 0;
+
+    @Column(name = "completed_modules", nullable = false)
+    private Integer completedModules = 0;
+
+    @Column(name = "total_items", nullable = false)
+    private Integer totalItems = 0;
+
+    @Column(name = "completed_items", nullable = false)
+    private Integer completedItems = 0;
+
+    @Column(name = "total_contents", nullable = false)
+    private Integer totalContents = 0;
+
+    @Column(name = "completed_contents", nullable = false)
+    private Integer completedContents = 0;
+
+    @Column(name = "total_videos", nullable = false)
+    private Integer totalVideos = 0;
+
+    @Column(name = "completed_videos", nullable = false)
+    private Integer completedVideos = 0;
+
+    @Column(name = "total_quizzes", nullable = false)
+    private Integer totalQuizzes = 0;
+
+    @Column(name = "completed_quizzes", nullable = false)
+    private Integer completedQuizzes = 0;
+
+    @Column(name = "completion_percentage", nullable = false)
+    private Double completionPercentage = 0.0;
+
+    // true khi cấu trúc khóa học (publish module/content/video/quiz) đã thay đổi, cần tính lại
+    @Column(name = "stale", nullable = false)
+    private Boolean stale = false;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Integer getCompletionId() {
+        return completionId;
+    }
+
+    public void setCompletionId(Integer completionId) {
+        this.completionId = completionId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public void setCourse(Course course) {
+        this.course = course;
+    }
+
+    public Integer getTotalModules() {
+        return totalModules;
+    }
+
+    public void setTotalModules(Integer totalModules) {
+        this.totalModules = totalModules;
+    }
+
+    public Integer getCompletedModules() {
+        return completedModules;
+    }
+
+    public void setCompletedModules(Integer completedModules) {
+        this.completedModules = completedModules;
+    }
+
+    public Integer getTotalItems() {
+        return totalItems;
+    }
+
+    public void setTotalItems(Integer totalItems) {
+        this.totalItems = totalItems;
+    }
+
+    public Integer getCompletedItems() {
+        return completedItems;
+    }
+
+    public void setCompletedItems(Integer completedItems) {
+        this.completedItems = completedItems;
+    }
+
+    public Integer getTotalContents() {
+        return totalContents;
+    }
+
+    public void setTotalContents(Integer totalContents) {
+        this.totalContents = totalContents;
+    }
+
+    public Integer getCompletedContents() {
+        return completedContents;
+    }
+
+    public void setCompletedContents(Integer completedContents) {
+        this.completedContents = completedContents;
+    }
+
+    public Integer getTotalVideos() {
+        return totalVideos;
+    }
+
+    public void setTotalVideos(Integer totalVideos) {
+        this.totalVideos = totalVideos;
+    }
+
+    public Integer getCompletedVideos() {
+        return completedVideos;
+    }
+
+    public void setCompletedVideos(Integer completedVideos) {
+        this.completedVideos = completedVideos;
+    }
+
+    public Integer getTotalQuizzes() {
+        return totalQuizzes;
+    }
+
+    public void setTotalQuizzes(Integer totalQuizzes) {
+        this.totalQuizzes = totalQuizzes;
+    }
+
+    public Integer getCompletedQuizzes() {
+        return completedQuizzes;
+    }
+
+    public void setCompletedQuizzes(Integer completedQuizzes) {
+        this.completedQuizzes = completedQuizzes;
+    }
+
+    public Double getCompletionPercentage() {
+        return completionPercentage;
+    }
+
+    public void setCompletionPercentage(Double completionPercentage) {
+        this.completionPercentage = completionPercentage;
+    }
+
+    public Boolean getStale() {
+        return stale;
+    }
+
+    public void setStale(Boolean stale) {
+        this.stale = stale;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -7,7 +7,8 @@ import org.hibernate.annotations.OnDeleteAction;
 import java.time.Instant;
 
 @Entity
-@Table(name = "course_reviews")
+@Table(name = "course_reviews",
+       indexes = @Index(name = "idx_course_reviews_user_course", columnList = "user_id, course_id"))
 public class CourseReview {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "module_progress")
+@Table(name = "module_progress",
+       uniqueConstraints = @UniqueConstraint(name = "uk_module_progress_user_module", columnNames = {"user_id", "module_id"}))
 public class ModuleProgress {
     
     @Id
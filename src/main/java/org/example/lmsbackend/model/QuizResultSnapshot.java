@@ -0,0 +1,51 @@
+package org.example.lmsbackend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Kết quả chấm của một attempt (QuizResultDTO dạng JSON), ghi khi nộp bài / chấm tự luận và trả thẳng cho trang kết quả
+@Entity
+@Table(name = "quiz_result_snapshots")
+public class QuizResultSnapshot {
+    @Id
+    @Column(name = "attempt_id", nullable = false)
+    private Integer attemptId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Column(name = "graded_at")
+    private LocalDateTime gradedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        this.gradedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Integer getAttemptId() {
+        return attemptId;
+    }
+
+    public void setAttemptId(Integer attemptId) {
+        this.attemptId = attemptId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getGradedAt() {
+        return gradedAt;
+    }
+
+    public void setGradedAt(LocalDateTime gradedAt) {
+        this.gradedAt = gradedAt;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.lmsbackend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// File đã lưu trên storage backend, định danh theo SHA-256 nội dung để upload trùng chỉ lưu một lần
+@Entity
+@Table(name = "stored_files",
+       uniqueConstraints = @UniqueConstraint(name = "uk_stored_files_hash_type_backend",
+               columnNames = {"content_hash", "resource_type", "backend"}))
+public class StoredFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "stored_file_id", nullable = false)
+    private Long storedFileId;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "resource_type", nullable = false, length = 20)
+    private String resourceType;
+
+    @Column(name = "backend", nullable = false, length = 20)
+    private String backend;
+
+    @Column(name = "url", nullable = false, length = 1000)
+    private String url;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getStoredFileId() {
+        return storedFileId;
+    }
+
+    public void setStoredFileId(Long storedFileId) {
+        this.storedFileId = storedFileId;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public void setBackend(String backend) {
+        this.backend = backend;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
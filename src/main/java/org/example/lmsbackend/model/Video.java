@@ -19,6 +19,16 @@ public class Video {
 
     private Integer duration; // in seconds
 
+    // Độ phân giải và bitrate đọc từ file lúc upload (VideoMetadataService)
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    @Column(name = "bit_rate")
+    private Integer bitRate; // bits per second
+
     @Column(name = "file_size")
     private Long fileSize; // in bytes
 
@@ -47,6 +57,19 @@ public class Video {
     @Column(name = "published", nullable = false)
     private Boolean published = false;
 
+    // PROCESSING khi đang upload lên Cloudinary (upload job), null với video cũ = READY
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_status", length = 20)
+    private ProcessingStatus processingStatus = ProcessingStatus.READY;
+
+    // Instance chạy upload job cập nhật định kỳ, quá hạn thì job coi như đã bị gián đoạn
+    @Column(name = "processing_heartbeat_at")
+    private LocalDateTime processingHeartbeatAt;
+
+    public enum ProcessingStatus {
+        PROCESSING, READY, FAILED
+    }
+
     @PrePersist
     protected void onCreate() {
         this.uploadedAt = LocalDateTime.now();
@@ -157,4 +180,44 @@ public class Video {
     public void setPublished(Boolean published) {
         this.published = published;
     }
+
+    public ProcessingStatus getProcessingStatus() {
+        return processingStatus;
+    }
+
+    public void setProcessingStatus(ProcessingStatus processingStatus) {
+        this.processingStatus = processingStatus;
+    }
+
+    public LocalDateTime getProcessingHeartbeatAt() {
+        return processingHeartbeatAt;
+    }
+
+    public void setProcessingHeartbeatAt(LocalDateTime processingHeartbeatAt) {
+        this.processingHeartbeatAt = processingHeartbeatAt;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public Integer getBitRate() {
+        return bitRate;
+    }
+
+    public void setBitRate(Integer bitRate) {
+        this.bitRate = bitRate;
+    }
 }
@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "video_progress")
+@Table(name = "video_progress",
+       uniqueConstraints = @UniqueConstraint(name = "uk_video_progress_user_video", columnNames = {"user_id", "video_id"}))
 public class VideoProgress {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
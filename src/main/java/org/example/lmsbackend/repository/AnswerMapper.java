@@ -3,6 +3,7 @@ package org.example.lmsbackend.repository;
 import org.apache.ibatis.annotations.*;
 import org.example.lmsbackend.model.Answer;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -59,4 +60,41 @@ public interface AnswerMapper {
             @Result(property = "orderNumber", column = "order_number")
     })
     Answer findById(@Param("answerId") Integer answerId);
+
+    // ✅ Tất cả answers của một quiz trong một query (nộp bài không phải query từng câu)
+    @Select("""
+        SELECT a.answer_id, a.question_id, a.answer_text, a.is_correct, a.order_number
+        FROM answers a
+        JOIN questions q ON a.question_id = q.question_id
+        WHERE q.quiz_id = #{quizId}
+        ORDER BY a.question_id ASC, a.order_number ASC
+    """)
+    @Results({
+            @Result(property = "answerId", column = "answer_id"),
+            @Result(property = "question.questionId", column = "question_id"),
+            @Result(property = "answerText", column = "answer_text"),
+            @Result(property = "isCorrect", column = "is_correct"),
+            @Result(property = "orderNumber", column = "order_number")
+    })
+    List<Answer> findByQuizId(@Param("quizId") Integer quizId);
+
+    // ✅ Answers của nhiều quiz trong một query (nạp đáp án cho cache)
+    @Select("""
+        <script>
+        SELECT a.answer_id, a.question_id, a.answer_text, a.is_correct, a.order_number
+        FROM answers a
+        JOIN questions q ON a.question_id = q.question_id
+        WHERE q.quiz_id IN
+        <foreach collection="quizIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        ORDER BY a.question_id ASC, a.order_number ASC
+        </script>
+    """)
+    @Results({
+            @Result(property = "answerId", column = "answer_id"),
+            @Result(property = "question.questionId", column = "question_id"),
+            @Result(property = "answerText", column = "answer_text"),
+            @Result(property = "isCorrect", column = "is_correct"),
+            @Result(property = "orderNumber", column = "order_number")
+    })
+    List<Answer> findByQuizIds(@Param("quizIds") Collection<Integer> quizIds);
 }
@@ -0,0 +1,33 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.ContentViewStateDTO;
+
+import java.time.Instant;
+
+@Mapper
+public interface ContentProgressMapper {
+
+    // ✅ Module / course của content và trạng thái hoàn thành hiện tại của user, null nếu content không tồn tại
+    @Select("""
+        SELECT c.module_id AS moduleId, m.course_id AS courseId,
+            COALESCE(cp.status = 'completed', false) AS completed
+        FROM contents c
+        JOIN modules m ON c.module_id = m.module_id
+        LEFT JOIN content_progress cp ON cp.content_id = c.content_id AND cp.user_id = #{userId}
+        WHERE c.content_id = #{contentId}
+        LIMIT 1
+    """)
+    ContentViewStateDTO findViewState(@Param("userId") Integer userId, @Param("contentId") Integer contentId);
+
+    // ✅ Đánh dấu content đã xem trong một câu lệnh, dựa trên unique key (user_id, content_id)
+    @Insert("""
+        INSERT INTO content_progress (user_id, content_id, status, accessed_at, completed_at)
+        VALUES (#{userId}, #{contentId}, 'completed', #{now}, #{now})
+        ON DUPLICATE KEY UPDATE
+            status = 'completed',
+            completed_at = #{now}
+    """)
+    int upsertCompleted(@Param("userId") Integer userId, @Param("contentId") Integer contentId,
+                        @Param("now") Instant now);
+}
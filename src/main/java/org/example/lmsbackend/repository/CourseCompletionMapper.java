@@ -0,0 +1,177 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.CompletionItemDTO;
+import org.example.lmsbackend.dto.CourseCompletionDTO;
+import org.example.lmsbackend.dto.ModuleProgressSummaryDTO;
+
+import java.util.List;
+
+@Mapper
+public interface CourseCompletionMapper {
+
+    // ✅ Tất cả content/video/quiz đã xuất bản trong các module đã xuất bản của các khóa học
+    @Select("""
+        <script>
+        SELECT 'content' AS itemType, m.course_id AS courseId, m.module_id AS moduleId, c.content_id AS itemId
+        FROM modules m
+        JOIN contents c ON c.module_id = m.module_id
+        WHERE m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+          AND m.published = true AND c.published = true
+        UNION ALL
+        SELECT 'video' AS itemType, m.course_id AS courseId, m.module_id AS moduleId, v.video_id AS itemId
+        FROM modules m
+        JOIN videos v ON v.module_id = m.module_id
+        WHERE m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+          AND m.published = true AND v.published = true
+        UNION ALL
+        SELECT 'quiz' AS itemType, m.course_id AS courseId, m.module_id AS moduleId, q.quiz_id AS itemId
+        FROM modules m
+        JOIN quizzes q ON q.module_id = m.module_id
+        WHERE m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+          AND m.published = true AND q.publish = true
+        </script>
+    """)
+    List<CompletionItemDTO> findPublishedItemsByCourses(@Param("courseIds") List<Integer> courseIds);
+
+    // ✅ Các item user đã hoàn thành trong các khóa học
+    // content: status = 'completed', video: xem >= 90%, quiz: đã có ít nhất một lần làm bài
+    @Select("""
+        <script>
+        SELECT 'content' AS itemType, m.course_id AS courseId, c.module_id AS moduleId, c.content_id AS itemId
+        FROM content_progress cp
+        JOIN contents c ON cp.content_id = c.content_id
+        JOIN modules m ON c.module_id = m.module_id
+        WHERE cp.user_id = #{userId} AND cp.status = 'completed'
+          AND m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        UNION ALL
+        SELECT 'video' AS itemType, m.course_id AS courseId, v.module_id AS moduleId, v.video_id AS itemId
+        FROM video_progress vp
+        JOIN videos v ON vp.video_id = v.video_id
+        JOIN modules m ON v.module_id = m.module_id
+        WHERE vp.user_id = #{userId}
+          AND vp.total_duration > 0 AND vp.watched_duration * 100 >= vp.total_duration * 90
+          AND m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        UNION ALL
+        SELECT DISTINCT 'quiz' AS itemType, m.course_id AS courseId, q.module_id AS moduleId, q.quiz_id AS itemId
+        FROM user_quiz_attempts a
+        JOIN quizzes q ON a.quiz_id = q.quiz_id
+        JOIN modules m ON q.module_id = m.module_id
+        WHERE a.user_id = #{userId}
+          AND m.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    List<CompletionItemDTO> findCompletedItemsByUserAndCourses(@Param("userId") Integer userId,
+                                                               @Param("courseIds") List<Integer> courseIds);
+
+    // ✅ Tổng số item và số item user đã hoàn thành của từng module đã xuất bản, gom trong một lần GROUP BY
+    // Module không có item nào sẽ không có dòng kết quả
+    @Select("""
+        SELECT i.module_id AS moduleId,
+            SUM(i.item_type = 'content') AS totalContents,
+            SUM(i.item_type = 'content' AND i.done) AS completedContents,
+            SUM(i.item_type = 'video') AS totalVideos,
+            SUM(i.item_type = 'video' AND i.done) AS completedVideos,
+            SUM(i.item_type = 'quiz') AS totalQuizzes,
+            SUM(i.item_type = 'quiz' AND i.done) AS completedQuizzes
+        FROM (
+            SELECT 'content' AS item_type, c.module_id,
+                EXISTS (SELECT 1 FROM content_progress cp
+                        WHERE cp.content_id = c.content_id AND cp.user_id = #{userId}
+                          AND cp.status = 'completed') AS done
+            FROM modules m
+            JOIN contents c ON c.module_id = m.module_id
+            WHERE m.course_id = #{courseId} AND m.published = true AND c.published = true
+            UNION ALL
+            SELECT 'video' AS item_type, v.module_id,
+                EXISTS (SELECT 1 FROM video_progress vp
+                        WHERE vp.video_id = v.video_id AND vp.user_id = #{userId}
+                          AND vp.total_duration > 0 AND vp.watched_duration * 100 >= vp.total_duration * 90) AS done
+            FROM modules m
+            JOIN videos v ON v.module_id = m.module_id
+            WHERE m.course_id = #{courseId} AND m.published = true AND v.published = true
+            UNION ALL
+            SELECT 'quiz' AS item_type, q.module_id,
+                EXISTS (SELECT 1 FROM user_quiz_attempts a
+                        WHERE a.quiz_id = q.quiz_id AND a.user_id = #{userId}) AS done
+            FROM modules m
+            JOIN quizzes q ON q.module_id = m.module_id
+            WHERE m.course_id = #{courseId} AND m.published = true AND q.publish = true
+        ) i
+        GROUP BY i.module_id
+    """)
+    List<ModuleProgressSummaryDTO> findModuleProgressSummaries(@Param("userId") Integer userId,
+                                                               @Param("courseId") Integer courseId);
+
+    // ===== Bảng course_completion (kết quả đã tính sẵn) =====
+
+    // ✅ Lấy kết quả đã tính sẵn, chỉ trả về khi chưa bị đánh dấu stale
+    @Select("""
+        SELECT cc.course_id AS courseId, c.title AS courseTitle,
+            cc.completion_percentage AS completionPercentage,
+            cc.total_modules AS totalModules, cc.completed_modules AS completedModules,
+            cc.total_items AS totalItems, cc.completed_items AS completedItems,
+            cc.total_contents AS totalContents, cc.completed_contents AS completedContents,
+            cc.total_videos AS totalVideos, cc.completed_videos AS completedVideos,
+            cc.total_quizzes AS totalQuizzes, cc.completed_quizzes AS completedQuizzes
+        FROM course_completion cc
+        JOIN courses c ON cc.course_id = c.course_id
+        WHERE cc.user_id = #{userId} AND cc.course_id = #{courseId} AND cc.stale = false
+    """)
+    CourseCompletionDTO findFreshCompletion(@Param("userId") Integer userId, @Param("courseId") Integer courseId);
+
+    // ✅ Như trên nhưng cho nhiều khóa học của cùng một user trong một truy vấn
+    @Select("""
+        <script>
+        SELECT cc.course_id AS courseId, c.title AS courseTitle,
+            cc.completion_percentage AS completionPercentage,
+            cc.total_modules AS totalModules, cc.completed_modules AS completedModules,
+            cc.total_items AS totalItems, cc.completed_items AS completedItems,
+            cc.total_contents AS totalContents, cc.completed_contents AS completedContents,
+            cc.total_videos AS totalVideos, cc.completed_videos AS completedVideos,
+            cc.total_quizzes AS totalQuizzes, cc.completed_quizzes AS completedQuizzes
+        FROM course_completion cc
+        JOIN courses c ON cc.course_id = c.course_id
+        WHERE cc.user_id = #{userId} AND cc.stale = false
+          AND cc.course_id IN <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    List<CourseCompletionDTO> findFreshCompletions(@Param("userId") Integer userId,
+                                                   @Param("courseIds") List<Integer> courseIds);
+
+    @Insert("""
+        INSERT INTO course_completion (user_id, course_id, total_modules, completed_modules,
+            total_items, completed_items, total_contents, completed_contents,
+            total_videos, completed_videos, total_quizzes, completed_quizzes,
+            completion_percentage, stale, updated_at)
+        VALUES (#{userId}, #{c.courseId}, #{c.totalModules}, #{c.completedModules},
+            #{c.totalItems}, #{c.completedItems}, #{c.totalContents}, #{c.completedContents},
+            #{c.totalVideos}, #{c.completedVideos}, #{c.totalQuizzes}, #{c.completedQuizzes},
+            #{c.completionPercentage}, false, NOW())
+        ON DUPLICATE KEY UPDATE
+            total_modules = VALUES(total_modules),
+            completed_modules = VALUES(completed_modules),
+            total_items = VALUES(total_items),
+            completed_items = VALUES(completed_items),
+            total_contents = VALUES(total_contents),
+            completed_contents = VALUES(completed_contents),
+            total_videos = VALUES(total_videos),
+            completed_videos = VALUES(completed_videos),
+            total_quizzes = VALUES(total_quizzes),
+            completed_quizzes = VALUES(completed_quizzes),
+            completion_percentage = VALUES(completion_percentage),
+            stale = false,
+            updated_at = NOW()
+    """)
+    int upsertCompletion(@Param("userId") Integer userId, @Param("c") CourseCompletionDTO completion);
+
+    // ✅ Đánh dấu toàn bộ kết quả của khóa học cần tính lại (khi trạng thái xuất bản thay đổi)
+    @Update("UPDATE course_completion SET stale = true WHERE course_id = #{courseId}")
+    int markCourseStale(@Param("courseId") Integer courseId);
+
+    @Select("SELECT DISTINCT user_id FROM enrollments WHERE course_id = #{courseId}")
+    List<Integer> findEnrolledUserIds(@Param("courseId") Integer courseId);
+
+    @Select("SELECT course_id FROM courses ORDER BY course_id")
+    List<Integer> findAllCourseIds();
+}
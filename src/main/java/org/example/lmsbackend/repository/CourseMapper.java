@@ -34,12 +34,17 @@ public interface CourseMapper {
         <if test="categoryId != null">AND c.category_id = #{categoryId}</if>
         <if test="instructorId != null">AND c.instructor_id = #{instructorId}</if>
         <if test="status != null">AND c.status = #{status}</if>
+        <if test="afterId != null">AND c.course_id &gt; #{afterId}</if>
+    ORDER BY c.course_id
+    <if test="limit != null">LIMIT #{limit}</if>
     </script>
 """)
     List<Course> findCourses(
             @Param("categoryId") Integer categoryId,
             @Param("instructorId") Integer instructorId,
-            @Param("status") String status
+            @Param("status") String status,
+            @Param("afterId") Integer afterId,
+            @Param("limit") Integer limit
     );
 
 
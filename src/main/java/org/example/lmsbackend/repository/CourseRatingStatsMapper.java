@@ -0,0 +1,91 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.CourseRatingStatsDTO;
+
+import java.util.List;
+
+@Mapper
+public interface CourseRatingStatsMapper {
+
+    @Select("""
+        <script>
+        SELECT course_id AS courseId, review_count AS reviewCount, rating_sum AS ratingSum,
+            rating_1 AS rating1, rating_2 AS rating2, rating_3 AS rating3, rating_4 AS rating4, rating_5 AS rating5
+        FROM course_rating_stats
+        WHERE course_id IN
+        <foreach collection="courseIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    List<CourseRatingStatsDTO> findByCourseIds(@Param("courseIds") List<Integer> courseIds);
+
+    // ✅ Cộng dồn thay đổi (delta) vào thống kê, tạo dòng mới nếu khóa học chưa có
+    @Insert("""
+        INSERT INTO course_rating_stats (course_id, review_count, rating_sum,
+            rating_1, rating_2, rating_3, rating_4, rating_5, updated_at)
+        VALUES (#{courseId}, #{reviewCount}, #{ratingSum},
+            #{rating1}, #{rating2}, #{rating3}, #{rating4}, #{rating5}, NOW())
+        ON DUPLICATE KEY UPDATE
+            review_count = review_count + VALUES(review_count),
+            rating_sum = rating_sum + VALUES(rating_sum),
+            rating_1 = rating_1 + VALUES(rating_1),
+            rating_2 = rating_2 + VALUES(rating_2),
+            rating_3 = rating_3 + VALUES(rating_3),
+            rating_4 = rating_4 + VALUES(rating_4),
+            rating_5 = rating_5 + VALUES(rating_5),
+            updated_at = NOW()
+    """)
+    int applyDelta(CourseRatingStatsDTO delta);
+
+    // ✅ Trừ các đánh giá của một user khỏi thống kê (chạy trước khi xóa user, đánh giá bị xóa theo ON DELETE CASCADE)
+    @Update("""
+        UPDATE course_rating_stats s
+        JOIN (
+            SELECT course_id, COUNT(*) AS review_count, SUM(rating) AS rating_sum,
+                SUM(rating = 1) AS rating_1, SUM(rating = 2) AS rating_2, SUM(rating = 3) AS rating_3,
+                SUM(rating = 4) AS rating_4, SUM(rating = 5) AS rating_5
+            FROM course_reviews
+            WHERE user_id = #{userId}
+            GROUP BY course_id
+        ) d ON d.course_id = s.course_id
+        SET s.review_count = s.review_count - d.review_count,
+            s.rating_sum = s.rating_sum - d.rating_sum,
+            s.rating_1 = s.rating_1 - d.rating_1,
+            s.rating_2 = s.rating_2 - d.rating_2,
+            s.rating_3 = s.rating_3 - d.rating_3,
+            s.rating_4 = s.rating_4 - d.rating_4,
+            s.rating_5 = s.rating_5 - d.rating_5,
+            s.updated_at = NOW()
+    """)
+    int subtractReviewsOfUser(@Param("userId") int userId);
+
+    @Update("""
+        UPDATE course_rating_stats SET review_count = 0, rating_sum = 0,
+            rating_1 = 0, rating_2 = 0, rating_3 = 0, rating_4 = 0, rating_5 = 0, updated_at = NOW()
+    """)
+    int resetAll();
+
+    // Bảng thống kê đã có dữ liệu (được cập nhật theo delta từ lần chạy trước)
+    @Select("SELECT EXISTS(SELECT 1 FROM course_rating_stats)")
+    boolean hasAnyStats();
+
+    // ✅ Tính lại toàn bộ thống kê từ bảng course_reviews
+    @Insert("""
+        INSERT INTO course_rating_stats (course_id, review_count, rating_sum,
+            rating_1, rating_2, rating_3, rating_4, rating_5, updated_at)
+        SELECT course_id, COUNT(*), SUM(rating),
+            SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), SUM(rating = 4), SUM(rating = 5), NOW()
+        FROM course_reviews
+        GROUP BY course_id
+        ON DUPLICATE KEY UPDATE
+            review_count = VALUES(review_count),
+            rating_sum = VALUES(rating_sum),
+            rating_1 = VALUES(rating_1),
+            rating_2 = VALUES(rating_2),
+            rating_3 = VALUES(rating_3),
+            rating_4 = VALUES(rating_4),
+            rating_5 = VALUES(rating_5),
+            updated_at = NOW()
+    """)
+    int rebuildFromReviews();
+}
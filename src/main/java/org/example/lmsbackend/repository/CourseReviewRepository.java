@@ -1,6 +1,7 @@
 package org.example.lmsbackend.repository;
 
 import org.example.lmsbackend.model.CourseReview;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -26,6 +27,10 @@ public interface CourseReviewRepository extends JpaRepository<CourseReview, Inte
            "WHERE cr.user.userId = :userId AND c.courseId = :courseId")
     Optional<CourseReview> findByUserIdAndCourseId(@Param("userId") Integer userId, @Param("courseId") Integer courseId);
 
+    // Course IDs the user has already reviewed (one query for eligibility checks)
+    @Query("SELECT cr.course.courseId FROM CourseReview cr WHERE cr.user.userId = :userId")
+    List<Integer> findReviewedCourseIdsByUserId(@Param("userId") Integer userId);
+
     // Find all reviews by a specific user
     @Query("SELECT cr FROM CourseReview cr " +
            "JOIN FETCH cr.course c " +
@@ -41,6 +46,14 @@ public interface CourseReviewRepository extends JpaRepository<CourseReview, Inte
            "ORDER BY c.title ASC, cr.createdAt DESC")
     List<CourseReview> findByInstructorId(@Param("instructorId") Integer instructorId);
 
+    // Keyset page of all reviews, newest first (pageable chỉ dùng để giới hạn số dòng)
+    @Query("SELECT cr FROM CourseReview cr " +
+           "JOIN FETCH cr.user u " +
+           "JOIN FETCH cr.course c " +
+           "WHERE (:afterId IS NULL OR cr.reviewId < :afterId) " +
+           "ORDER BY cr.reviewId DESC")
+    List<CourseReview> findPage(@Param("afterId") Integer afterId, Pageable pageable);
+
     // Get average rating for a course
     @Query("SELECT AVG(cr.rating) FROM CourseReview cr " +
            "JOIN cr.course c WHERE c.courseId = :courseId")
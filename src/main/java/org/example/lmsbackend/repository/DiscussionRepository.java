@@ -1,6 +1,7 @@
 package org.example.lmsbackend.repository;
 
 import org.example.lmsbackend.model.Discussion;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -20,6 +21,10 @@ public interface DiscussionRepository extends JpaRepository<Discussion, Integer>
     @Query("SELECT d FROM Discussion d WHERE d.course.courseId = :courseId AND (d.type = 'PUBLIC' OR (d.type = 'PRIVATE' AND (d.user.userId = :userId OR d.targetUser.userId = :userId))) ORDER BY d.createdAt DESC")
     List<Discussion> findDiscussionsForUser(@Param("courseId") Integer courseId, @Param("userId") Integer userId);
     
+    // Keyset page of the discussions above, newest first (pageable chỉ dùng để giới hạn số dòng)
+    @Query("SELECT d FROM Discussion d WHERE d.course.courseId = :courseId AND (d.type = 'PUBLIC' OR (d.type = 'PRIVATE' AND (d.user.userId = :userId OR d.targetUser.userId = :userId))) AND (:afterId IS NULL OR d.discussionId < :afterId) ORDER BY d.discussionId DESC")
+    List<Discussion> findDiscussionsForUserPage(@Param("courseId") Integer courseId, @Param("userId") Integer userId, @Param("afterId") Integer afterId, Pageable pageable);
+
     // Get discussions by user
     List<Discussion> findByUser_UserId(Integer userId);
 }
@@ -35,6 +35,7 @@ public interface EnrollmentsMapper {
     int deleteEnrollment(@Param("userId") int userId, @Param("courseId") int courseId);
     @Select("""
     SELECT 
+        e.enrollment_id AS enrollmentId,
         e.course_id AS courseId,
         c.title AS courseTitle,
         e.user_id AS userId,
@@ -45,6 +46,25 @@ public interface EnrollmentsMapper {
 """)
     List<EnrollmentsDTO> getAllEnrollments();
 
+    // ✅ Phân trang keyset theo enrollment_id
+    @Select("""
+    <script>
+    SELECT 
+        e.enrollment_id AS enrollmentId,
+        e.course_id AS courseId,
+        c.title AS courseTitle,
+        e.user_id AS userId,
+        e.status,
+        e.enrolled_at AS enrolledAt
+    FROM enrollments e
+    JOIN courses c ON e.course_id = c.course_id
+    <if test="afterId != null">WHERE e.enrollment_id &gt; #{afterId}</if>
+    ORDER BY e.enrollment_id
+    LIMIT #{limit}
+    </script>
+""")
+    List<EnrollmentsDTO> getEnrollmentsPage(@Param("afterId") Integer afterId, @Param("limit") int limit);
+
     @Select("""
     SELECT 
         u.user_id AS userId,
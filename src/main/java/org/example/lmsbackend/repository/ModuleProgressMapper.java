@@ -88,4 +88,62 @@ public interface ModuleProgressMapper {
         @Result(property = "lastUpdated", column = "last_updated")
     })
     List<ModuleProgress> findByCourseAndUser(@Param("userId") Integer userId, @Param("courseId") Integer courseId);
+
+    // ✅ Tạo dòng tiến độ rỗng nếu chưa có; an toàn khi nhiều request cùng tạo (unique user_id, module_id)
+    @Insert("""
+        INSERT INTO module_progress (user_id, module_id, content_completed, video_completed,
+                                   test_completed, test_unlocked, module_completed, last_updated)
+        VALUES (#{userId}, #{moduleId}, false, false, false, false, false, NOW())
+        ON DUPLICATE KEY UPDATE progress_id = progress_id
+    """)
+    int insertIfMissing(@Param("userId") Integer userId, @Param("moduleId") Integer moduleId);
+
+    // ✅ Đặt một hoặc nhiều cờ trong một câu lệnh, tạo dòng nếu chưa có; tham số null = giữ nguyên
+    @Insert("""
+        INSERT INTO module_progress (user_id, module_id, content_completed, video_completed,
+                                   test_completed, test_unlocked, module_completed, last_updated)
+        VALUES (#{userId}, #{moduleId},
+                COALESCE(#{contentCompleted,jdbcType=BOOLEAN}, false),
+                COALESCE(#{videoCompleted,jdbcType=BOOLEAN}, false),
+                COALESCE(#{testCompleted,jdbcType=BOOLEAN}, false),
+                false, false, NOW())
+        ON DUPLICATE KEY UPDATE
+            content_completed = COALESCE(#{contentCompleted,jdbcType=BOOLEAN}, content_completed),
+            video_completed = COALESCE(#{videoCompleted,jdbcType=BOOLEAN}, video_completed),
+            test_completed = COALESCE(#{testCompleted,jdbcType=BOOLEAN}, test_completed),
+            last_updated = NOW()
+    """)
+    int upsertFlags(@Param("userId") Integer userId, @Param("moduleId") Integer moduleId,
+                    @Param("contentCompleted") Boolean contentCompleted,
+                    @Param("videoCompleted") Boolean videoCompleted,
+                    @Param("testCompleted") Boolean testCompleted);
+
+    // ✅ Tính lại và ghi cả ba cờ trong một câu lệnh (tạo dòng nếu chưa có)
+    // content: có ít nhất một content hoàn thành, video: có ít nhất một video xem >= 90%,
+    // test: giữ cờ test_completed đã ghi khi nộp bài; completed_at chỉ được đặt lần đầu module hoàn thành
+    @Insert("""
+        INSERT INTO module_progress (user_id, module_id, content_completed, video_completed,
+                                   test_completed, test_unlocked, module_completed, last_updated)
+        SELECT #{userId}, m.module_id,
+            EXISTS (SELECT 1 FROM content_progress cp
+                    JOIN contents c ON cp.content_id = c.content_id
+                    WHERE c.module_id = m.module_id AND cp.user_id = #{userId}
+                      AND cp.status = 'completed'),
+            EXISTS (SELECT 1 FROM video_progress vp
+                    JOIN videos v ON vp.video_id = v.video_id
+                    WHERE v.module_id = m.module_id AND vp.user_id = #{userId}
+                      AND vp.total_duration > 0 AND vp.watched_duration * 100 >= vp.total_duration * 90),
+            false, false, false, NOW()
+        FROM modules m
+        WHERE m.module_id = #{moduleId}
+        ON DUPLICATE KEY UPDATE
+            completed_at = CASE
+                WHEN VALUES(content_completed) AND VALUES(video_completed) AND test_completed AND completed_at IS NULL
+                THEN NOW() ELSE completed_at END,
+            module_completed = VALUES(content_completed) AND VALUES(video_completed) AND test_completed,
+            content_completed = VALUES(content_completed),
+            video_completed = VALUES(video_completed),
+            last_updated = NOW()
+    """)
+    int recomputeFlags(@Param("userId") Integer userId, @Param("moduleId") Integer moduleId);
 }
@@ -3,6 +3,7 @@ package org.example.lmsbackend.repository;
 import org.example.lmsbackend.model.Modules;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ModulesRepository extends JpaRepository<Modules, Integer> {
@@ -11,4 +12,7 @@ public interface ModulesRepository extends JpaRepository<Modules, Integer> {
     
     // ✅ STUDENT API: Lấy modules đã xuất bản theo courseId và sắp xếp theo order_number
     List<Modules> findByCourse_CourseIdAndPublishedTrueOrderByOrderNumber(Integer courseId);
+
+    // ✅ Modules đã xuất bản của nhiều khóa học (tính tiến độ hàng loạt)
+    List<Modules> findByCourse_CourseIdInAndPublishedTrue(Collection<Integer> courseIds);
 }
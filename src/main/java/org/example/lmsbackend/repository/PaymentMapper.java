@@ -96,6 +96,32 @@ public interface PaymentMapper {
     })
     List<PaymentDTO> getAllPayments();
 
+    // ✅ Phân trang keyset theo payment_id giảm dần (mới nhất trước)
+    @Select("<script>" +
+            "SELECT p.payment_id, p.user_id, p.course_id, c.title as course_title, " +
+            "u.username as user_name, u.email as user_email, " +
+            "p.amount, p.status, p.payment_method, p.transaction_id, p.created_at, p.paid_at " +
+            "FROM payments p " +
+            "JOIN courses c ON p.course_id = c.course_id " +
+            "JOIN users u ON p.user_id = u.user_id " +
+            "<if test='afterId != null'>WHERE p.payment_id &lt; #{afterId} </if>" +
+            "ORDER BY p.payment_id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    @Results({
+            @Result(property = "paymentId", column = "payment_id"),
+            @Result(property = "userId", column = "user_id"),
+            @Result(property = "courseId", column = "course_id"),
+            @Result(property = "courseTitle", column = "course_title"),
+            @Result(property = "userName", column = "user_name"),
+            @Result(property = "userEmail", column = "user_email"),
+            @Result(property = "paymentMethod", column = "payment_method"),
+            @Result(property = "transactionId", column = "transaction_id"),
+            @Result(property = "createdAt", column = "created_at"),
+            @Result(property = "paidAt", column = "paid_at")
+    })
+    List<PaymentDTO> getPaymentsPage(@Param("afterId") Integer afterId, @Param("limit") int limit);
+
     @Select("SELECT * FROM payments WHERE transaction_id = #{transactionId}")
     @Results({
             @Result(property = "paymentId", column = "payment_id"),
@@ -0,0 +1,79 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+
+// Dọn dòng tiến độ trùng và thêm unique key (user_id, ...) cho database tạo trước khi có các key này
+// ${table} / ${column} / ${index} chỉ nhận hằng số từ ProgressKeyMaintenance, không bao giờ từ request
+@Mapper
+public interface ProgressMaintenanceMapper {
+
+    @Select("""
+        SELECT COUNT(*) FROM information_schema.statistics
+        WHERE table_schema = DATABASE() AND table_name = #{table} AND index_name = #{index}
+    """)
+    int countIndex(@Param("table") String table, @Param("index") String index);
+
+    // ✅ Gộp các cờ của dòng trùng vào dòng mới nhất trước khi xóa
+    @Update("""
+        UPDATE module_progress keep_row
+        JOIN (
+            SELECT MAX(progress_id) AS keep_id,
+                MAX(content_completed) AS content_completed, MAX(video_completed) AS video_completed,
+                MAX(test_completed) AS test_completed, MAX(test_unlocked) AS test_unlocked,
+                MAX(module_completed) AS module_completed, MIN(completed_at) AS completed_at
+            FROM module_progress
+            GROUP BY user_id, module_id
+            HAVING COUNT(*) > 1
+        ) d ON keep_row.progress_id = d.keep_id
+        SET keep_row.content_completed = d.content_completed,
+            keep_row.video_completed = d.video_completed,
+            keep_row.test_completed = d.test_completed,
+            keep_row.test_unlocked = d.test_unlocked,
+            keep_row.module_completed = d.module_completed,
+            keep_row.completed_at = d.completed_at
+    """)
+    int mergeDuplicateModuleProgress();
+
+    @Update("""
+        UPDATE content_progress keep_row
+        JOIN (
+            SELECT MAX(progress_id) AS keep_id, MAX(status = 'completed') AS any_completed,
+                MIN(accessed_at) AS accessed_at, MIN(completed_at) AS completed_at
+            FROM content_progress
+            GROUP BY user_id, content_id
+            HAVING COUNT(*) > 1
+        ) d ON keep_row.progress_id = d.keep_id
+        SET keep_row.status = IF(d.any_completed, 'completed', keep_row.status),
+            keep_row.accessed_at = COALESCE(d.accessed_at, keep_row.accessed_at),
+            keep_row.completed_at = COALESCE(keep_row.completed_at, d.completed_at)
+    """)
+    int mergeDuplicateContentProgress();
+
+    @Update("""
+        UPDATE video_progress keep_row
+        JOIN (
+            SELECT MAX(progress_id) AS keep_id, MAX(watched_duration) AS watched_duration,
+                MAX(total_duration) AS total_duration, MAX(last_watched_at) AS last_watched_at
+            FROM video_progress
+            GROUP BY user_id, video_id
+            HAVING COUNT(*) > 1
+        ) d ON keep_row.progress_id = d.keep_id
+        SET keep_row.watched_duration = d.watched_duration,
+            keep_row.total_duration = d.total_duration,
+            keep_row.last_watched_at = d.last_watched_at
+    """)
+    int mergeDuplicateVideoProgress();
+
+    // ✅ Giữ lại dòng có progress_id lớn nhất của mỗi (user_id, column)
+    @Delete("""
+        DELETE old_row FROM ${table} old_row
+        JOIN ${table} keep_row
+          ON keep_row.user_id = old_row.user_id
+         AND keep_row.${column} = old_row.${column}
+         AND keep_row.progress_id > old_row.progress_id
+    """)
+    int deleteDuplicates(@Param("table") String table, @Param("column") String column);
+
+    @Update("ALTER TABLE ${table} ADD CONSTRAINT ${index} UNIQUE (user_id, ${column})")
+    void addUniqueKey(@Param("table") String table, @Param("index") String index, @Param("column") String column);
+}
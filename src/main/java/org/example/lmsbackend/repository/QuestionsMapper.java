@@ -3,6 +3,7 @@ package org.example.lmsbackend.repository;
 import org.apache.ibatis.annotations.*;
 import org.example.lmsbackend.model.Questions;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -40,6 +41,44 @@ public interface QuestionsMapper {
     })
     List<Questions> findByQuizId(@Param("quizId") int quizId);
 
+    // ✅ Câu hỏi của quiz không kèm quiz / answers (không chạy select lồng cho từng câu)
+    @Select("""
+        SELECT question_id, question_text, type, points, question_file_url, question_file_name
+        FROM questions
+        WHERE quiz_id = #{quizId}
+        ORDER BY question_id ASC
+    """)
+    @Results({
+        @Result(property = "questionId", column = "question_id"),
+        @Result(property = "questionText", column = "question_text"),
+        @Result(property = "type", column = "type"),
+        @Result(property = "points", column = "points"),
+        @Result(property = "questionFileUrl", column = "question_file_url"),
+        @Result(property = "questionFileName", column = "question_file_name")
+    })
+    List<Questions> findPlainByQuizId(@Param("quizId") int quizId);
+
+    // ✅ Câu hỏi (không kèm answers) của nhiều quiz trong một query, sắp theo quiz rồi question_id
+    @Select("""
+        <script>
+        SELECT question_id, quiz_id, question_text, type, points, question_file_url, question_file_name
+        FROM questions
+        WHERE quiz_id IN
+        <foreach collection="quizIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        ORDER BY quiz_id ASC, question_id ASC
+        </script>
+    """)
+    @Results({
+        @Result(property = "questionId", column = "question_id"),
+        @Result(property = "quiz.quizId", column = "quiz_id"),
+        @Result(property = "questionText", column = "question_text"),
+        @Result(property = "type", column = "type"),
+        @Result(property = "points", column = "points"),
+        @Result(property = "questionFileUrl", column = "question_file_url"),
+        @Result(property = "questionFileName", column = "question_file_name")
+    })
+    List<Questions> findPlainByQuizIds(@Param("quizIds") Collection<Integer> quizIds);
+
     // Lấy câu hỏi theo ID
     @Select("""
         SELECT q.question_id, q.quiz_id, q.question_text, q.type, q.points, q.question_file_url, q.question_file_name,
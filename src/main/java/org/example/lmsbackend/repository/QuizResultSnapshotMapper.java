@@ -0,0 +1,33 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+
+import java.util.Collection;
+
+@Mapper
+public interface QuizResultSnapshotMapper {
+
+    @Select("SELECT payload FROM quiz_result_snapshots WHERE attempt_id = #{attemptId}")
+    String findPayload(@Param("attemptId") Integer attemptId);
+
+    // ✅ Ghi (hoặc ghi đè) kết quả đã chấm của attempt
+    @Insert("""
+        INSERT INTO quiz_result_snapshots (attempt_id, payload, graded_at)
+        VALUES (#{attemptId}, #{payload}, NOW())
+        ON DUPLICATE KEY UPDATE
+            payload = VALUES(payload),
+            graded_at = NOW()
+    """)
+    int upsert(@Param("attemptId") Integer attemptId, @Param("payload") String payload);
+
+    @Delete("DELETE FROM quiz_result_snapshots WHERE attempt_id = #{attemptId}")
+    int delete(@Param("attemptId") Integer attemptId);
+
+    @Delete("""
+        <script>
+        DELETE FROM quiz_result_snapshots WHERE attempt_id IN
+        <foreach collection="attemptIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    int deleteByAttemptIds(@Param("attemptIds") Collection<Integer> attemptIds);
+}
@@ -0,0 +1,13 @@
+package org.example.lmsbackend.repository;
+
+import org.example.lmsbackend.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    Optional<StoredFile> findByContentHashAndResourceTypeAndBackend(String contentHash, String resourceType, String backend);
+}
@@ -1,6 +1,7 @@
 package org.example.lmsbackend.repository;
 
 import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.EssayGradeDTO;
 import org.example.lmsbackend.model.UserAnswer;
 
 import java.util.List;
@@ -13,6 +14,19 @@ public interface UserAnswerMapper {
     @Options(useGeneratedKeys = true, keyProperty = "user_answerId", keyColumn = "user_answer_id")
     void insertUserAnswer(UserAnswer userAnswer);
 
+    // ✅ Ghi tất cả câu trả lời của một lần nộp bài trong một câu lệnh
+    @Insert("""
+        <script>
+        INSERT INTO user_answers (attempt_id, question_id, answer_id, answer_text, is_correct, link_answer, file_name, file_path)
+        VALUES
+        <foreach collection="rows" item="r" separator=",">
+            (#{r.attempt.id}, #{r.question.questionId}, #{r.answer.answerId}, #{r.answerText}, #{r.isCorrect},
+             #{r.linkAnswer}, #{r.fileName}, #{r.filePath})
+        </foreach>
+        </script>
+    """)
+    int insertBatch(@Param("rows") List<UserAnswer> rows);
+
     @Select("SELECT ua.*, " +
             "a.attempt_id, " +
             "q.question_id, q.question_text, q.type, q.points, " +
@@ -84,4 +98,43 @@ public interface UserAnswerMapper {
             "manual_score = #{manualScore} " +
             "WHERE user_answer_id = #{user_answerId}")
     void updateUserAnswer(UserAnswer userAnswer);
+
+    // Attempt, khóa học và loại câu hỏi của các câu trả lời (câu trả lời không tồn tại không có trong kết quả)
+    @Select("""
+        <script>
+        SELECT ua.user_answer_id, ua.attempt_id, qz.course_id, q.type
+        FROM user_answers ua
+        JOIN user_quiz_attempts a ON ua.attempt_id = a.attempt_id
+        JOIN quizzes qz ON a.quiz_id = qz.quiz_id
+        JOIN questions q ON ua.question_id = q.question_id
+        WHERE ua.user_answer_id IN
+        <foreach collection="userAnswerIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    @Results({
+        @Result(property = "user_answerId", column = "user_answer_id"),
+        @Result(property = "attempt.attemptId", column = "attempt_id"),
+        @Result(property = "attempt.quiz.courseId", column = "course_id"),
+        @Result(property = "question.type", column = "type")
+    })
+    List<UserAnswer> findAttemptRefs(@Param("userAnswerIds") List<Integer> userAnswerIds);
+
+    // ✅ Chấm nhiều câu tự luận trong một câu lệnh: ghi điểm, nhận xét và is_correct (đạt >= 50% điểm câu hỏi)
+    // Chỉ cập nhật câu ESSAY, câu trắc nghiệm giữ điểm tự chấm
+    @Update("""
+        <script>
+        UPDATE user_answers ua
+        JOIN questions q ON ua.question_id = q.question_id
+        JOIN (
+            <foreach collection="grades" item="g" separator=" UNION ALL ">
+            SELECT #{g.userAnswerId} AS user_answer_id, #{g.score} AS score, #{g.feedback} AS feedback
+            </foreach>
+        ) g ON g.user_answer_id = ua.user_answer_id
+        SET ua.manual_score = g.score,
+            ua.instructor_feedback = g.feedback,
+            ua.is_correct = (LEAST(g.score, COALESCE(q.points, 1)) >= COALESCE(q.points, 1) * 0.5)
+        WHERE q.type = 'ESSAY'
+        </script>
+    """)
+    int applyEssayGrades(@Param("grades") List<EssayGradeDTO> grades);
 }
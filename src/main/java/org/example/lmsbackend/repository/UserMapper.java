@@ -114,14 +114,23 @@ public interface UserMapper {
             <if test="username != null and username != ''">
                 AND username LIKE CONCAT('%', #{username}, '%')
             </if>
+            <if test="afterId != null">
+                AND user_id &gt; #{afterId}
+            </if>
         </where>
+        ORDER BY user_id
+        <if test="limit != null">
+            LIMIT #{limit}
+        </if>
     </script>
     """)
     @Lang(XMLLanguageDriver.class)
     List<User> findUsersByConditions(@Param("userId") Integer userId,
                                      @Param("role") String role,
                                      @Param("isVerified") Boolean isVerified,
-                                     @Param("username") String username);
+                                     @Param("username") String username,
+                                     @Param("afterId") Integer afterId,
+                                     @Param("limit") Integer limit);
 
 
     // 🔄 Cập nhật người dùng (cập nhật avatar luôn nếu cần)
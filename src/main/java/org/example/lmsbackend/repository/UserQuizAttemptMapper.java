@@ -1,7 +1,9 @@
 package org.example.lmsbackend.repository;
 
 import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.GradeDTO;
 import org.example.lmsbackend.model.UserQuizAttempt;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -15,6 +17,24 @@ public interface UserQuizAttemptMapper {
     @Update("UPDATE user_quiz_attempts SET score = #{score} WHERE attempt_id = #{attemptId}")
     void updateAttemptScore(@Param("attemptId") Integer attemptId, @Param("score") Integer score);
 
+    // ✅ Điểm attempt = tổng điểm chấm tay (không vượt điểm tối đa của câu hỏi), tính trong SQL cho nhiều attempt
+    @Update("""
+        <script>
+        UPDATE user_quiz_attempts a
+        JOIN (
+            SELECT ua.attempt_id, SUM(LEAST(ua.manual_score, COALESCE(q.points, 1))) AS total
+            FROM user_answers ua
+            JOIN questions q ON ua.question_id = q.question_id
+            WHERE ua.manual_score IS NOT NULL
+              AND ua.attempt_id IN
+              <foreach collection="attemptIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+            GROUP BY ua.attempt_id
+        ) s ON s.attempt_id = a.attempt_id
+        SET a.score = s.total
+        </script>
+    """)
+    int recomputeManualScores(@Param("attemptIds") Collection<Integer> attemptIds);
+
     @Select("SELECT a.*, u.user_id, u.username, u.full_name, u.email, " +
             "q.quiz_id, q.title, q.description " +
             "FROM user_quiz_attempts a " +
@@ -105,6 +125,34 @@ public interface UserQuizAttemptMapper {
     })
     List<UserQuizAttempt> findByCourseId(@Param("courseId") Integer courseId);
 
+    // ✅ Bảng điểm của khóa học trong một query: attempt, sinh viên, quiz và trạng thái chấm bài tự luận
+    // (điểm tối đa lấy từ QuizAnswerKeyCache); quizType = null lấy tất cả loại bài
+    @Select("""
+        <script>
+        SELECT a.attempt_id AS attemptId, u.user_id AS userId, u.full_name AS studentName,
+            q.quiz_id AS quizId, q.title AS quizTitle, COALESCE(q.quiz_type, 'UNKNOWN') AS quizType,
+            a.score AS score, a.attempted_at AS submittedAt,
+            CASE WHEN q.quiz_type = 'ESSAY' AND ua.ungraded > 0 THEN 'PENDING_GRADE' ELSE 'COMPLETED' END AS status,
+            CASE WHEN q.quiz_type = 'ESSAY' THEN ua.first_answer_id END AS userAnswerId
+        FROM user_quiz_attempts a
+        JOIN users u ON a.user_id = u.user_id
+        JOIN quizzes q ON a.quiz_id = q.quiz_id
+        LEFT JOIN (
+            SELECT ans.attempt_id, SUM(ans.manual_score IS NULL) AS ungraded, MIN(ans.user_answer_id) AS first_answer_id
+            FROM user_answers ans
+            JOIN user_quiz_attempts ta ON ans.attempt_id = ta.attempt_id
+            JOIN quizzes qz ON ta.quiz_id = qz.quiz_id
+            WHERE qz.course_id = #{courseId}
+            <if test="quizType != null">AND qz.quiz_type = #{quizType}</if>
+            GROUP BY ans.attempt_id
+        ) ua ON ua.attempt_id = a.attempt_id
+        WHERE q.course_id = #{courseId}
+        <if test="quizType != null">AND q.quiz_type = #{quizType}</if>
+        ORDER BY a.attempted_at DESC
+        </script>
+    """)
+    List<GradeDTO> findGradebookByCourseId(@Param("courseId") Integer courseId, @Param("quizType") String quizType);
+
     @Select("SELECT a.*, u.user_id, u.username, u.full_name, u.email, " +
             "q.quiz_id, q.title, q.description, q.quiz_type, q.course_id " +
             "FROM user_quiz_attempts a " +
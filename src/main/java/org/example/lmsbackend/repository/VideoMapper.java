@@ -1,15 +1,17 @@
 package org.example.lmsbackend.repository;
 
+import org.example.lmsbackend.dto.VideoMetadataDTO;
 import org.example.lmsbackend.model.Video;
 import org.apache.ibatis.annotations.*;
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
 public interface VideoMapper {
 
     @Insert("""
-        INSERT INTO videos (title, description, file_url, duration, file_size, mime_type, course_id, instructor_id, module_id, order_number, uploaded_at, published)
-        VALUES (#{title}, #{description}, #{fileUrl}, #{duration}, #{fileSize}, #{mimeType}, #{course.courseId}, #{instructor.userId}, #{module.id}, #{orderNumber}, NOW(), #{published})
+        INSERT INTO videos (title, description, file_url, duration, width, height, bit_rate, file_size, mime_type, course_id, instructor_id, module_id, order_number, uploaded_at, published, processing_status, processing_heartbeat_at)
+        VALUES (#{title}, #{description}, #{fileUrl}, #{duration}, #{width}, #{height}, #{bitRate}, #{fileSize}, #{mimeType}, #{course.courseId}, #{instructor.userId}, #{module.id}, #{orderNumber}, NOW(), #{published}, #{processingStatus}, NOW())
     """)
     @Options(useGeneratedKeys = true, keyProperty = "videoId")
     int insertVideo(Video video);
@@ -48,6 +50,10 @@ public interface VideoMapper {
             @Result(property = "mimeType", column = "mime_type"),
             @Result(property = "uploadedAt", column = "uploaded_at"),
             @Result(property = "published", column = "published"),
+            @Result(property = "processingStatus", column = "processing_status"),
+            @Result(property = "width", column = "width"),
+            @Result(property = "height", column = "height"),
+            @Result(property = "bitRate", column = "bit_rate"),
             @Result(property = "course", column = "course_id",
                     one = @One(select = "org.example.lmsbackend.repository.CourseMapper.findById")),
             @Result(property = "instructor", column = "instructor_id", 
@@ -96,6 +102,10 @@ public interface VideoMapper {
             @Result(property = "mimeType", column = "mime_type"),
             @Result(property = "uploadedAt", column = "uploaded_at"),
             @Result(property = "published", column = "published"),
+            @Result(property = "processingStatus", column = "processing_status"),
+            @Result(property = "width", column = "width"),
+            @Result(property = "height", column = "height"),
+            @Result(property = "bitRate", column = "bit_rate"),
             @Result(property = "course", column = "course_id",
                     one = @One(select = "org.example.lmsbackend.repository.CourseMapper.findById")),
             @Result(property = "instructor", column = "instructor_id", 
@@ -116,6 +126,10 @@ public interface VideoMapper {
             @Result(property = "orderNumber", column = "order_number"),
             @Result(property = "uploadedAt", column = "uploaded_at"),
             @Result(property = "published", column = "published"),
+            @Result(property = "processingStatus", column = "processing_status"),
+            @Result(property = "width", column = "width"),
+            @Result(property = "height", column = "height"),
+            @Result(property = "bitRate", column = "bit_rate"),
             @Result(property = "course", column = "course_id",
                     one = @One(select = "org.example.lmsbackend.repository.CourseMapper.findById")),
             @Result(property = "instructor", column = "instructor_id", 
@@ -125,4 +139,52 @@ public interface VideoMapper {
     })
     List<Video> findVideosByModuleId(@Param("moduleId") Integer moduleId);
 
-}
\ No newline at end of file
+
+    // ✅ Upload job hoàn tất: ghi URL, metadata (thời lượng, độ phân giải, bitrate) và trạng thái xuất bản đã yêu cầu
+    @Update("""
+        UPDATE videos
+        SET file_url = #{fileUrl}, duration = #{m.durationSeconds}, width = #{m.width}, height = #{m.height},
+            bit_rate = #{m.bitRate}, published = #{published}, processing_status = 'READY'
+        WHERE video_id = #{videoId}
+    """)
+    int completeProcessing(@Param("videoId") Integer videoId, @Param("fileUrl") String fileUrl,
+                           @Param("m") VideoMetadataDTO metadata, @Param("published") Boolean published);
+
+    // Metadata đọc xong sau khi video đã được lưu (upload đồng bộ không chờ ffprobe)
+    @Update("""
+        UPDATE videos
+        SET duration = #{m.durationSeconds}, width = #{m.width}, height = #{m.height}, bit_rate = #{m.bitRate}
+        WHERE video_id = #{videoId}
+    """)
+    int updateMetadata(@Param("videoId") Integer videoId, @Param("m") VideoMetadataDTO metadata);
+
+    @Update("UPDATE videos SET processing_status = #{status} WHERE video_id = #{videoId}")
+    int updateProcessingStatus(@Param("videoId") Integer videoId, @Param("status") Video.ProcessingStatus status);
+
+    // Instance đang chạy upload job cập nhật heartbeat định kỳ để instance khác biết job vẫn sống
+    @Update("""
+        <script>
+        UPDATE videos SET processing_heartbeat_at = NOW()
+        WHERE processing_status = 'PROCESSING' AND video_id IN
+        <foreach collection="videoIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </script>
+    """)
+    int touchProcessingHeartbeat(@Param("videoIds") Collection<Integer> videoIds);
+
+    // Upload job bị gián đoạn (server restart/crash) thì không thể tiếp tục vì file tạm đã mất.
+    // Chỉ fail video mà heartbeat đã quá hạn: job đang chạy trên instance khác vẫn cập nhật heartbeat.
+    // activeVideoIds: job đang chạy trong process này, không bao giờ bị fail dù heartbeat trễ
+    @Update("""
+        <script>
+        UPDATE videos SET processing_status = 'FAILED'
+        WHERE processing_status = 'PROCESSING'
+        AND COALESCE(processing_heartbeat_at, uploaded_at) &lt; NOW() - INTERVAL #{staleSeconds} SECOND
+        <if test="activeVideoIds != null and !activeVideoIds.isEmpty()">
+            AND video_id NOT IN
+            <foreach collection="activeVideoIds" item="id" open="(" separator="," close=")">#{id}</foreach>
+        </if>
+        </script>
+    """)
+    int failInterruptedProcessing(@Param("activeVideoIds") Collection<Integer> activeVideoIds,
+                                  @Param("staleSeconds") int staleSeconds);
+}
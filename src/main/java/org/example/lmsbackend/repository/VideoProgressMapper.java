@@ -0,0 +1,45 @@
+package org.example.lmsbackend.repository;
+
+import org.apache.ibatis.annotations.*;
+import org.example.lmsbackend.dto.VideoWatchDTO;
+
+import java.util.List;
+
+@Mapper
+public interface VideoProgressMapper {
+
+    // ✅ Module / course của video và tiến độ đã lưu của user (watched/total null nếu chưa xem lần nào)
+    @Select("""
+        SELECT v.video_id AS videoId, v.module_id AS moduleId, m.course_id AS courseId,
+            vp.watched_duration AS watchedDuration, vp.total_duration AS totalDuration,
+            vp.last_watched_at AS lastWatchedAt
+        FROM videos v
+        JOIN modules m ON v.module_id = m.module_id
+        LEFT JOIN video_progress vp ON vp.video_id = v.video_id AND vp.user_id = #{userId}
+        WHERE v.video_id = #{videoId}
+        LIMIT 1
+    """)
+    VideoWatchDTO findWatchState(@Param("userId") Integer userId, @Param("videoId") Integer videoId);
+
+    // ✅ Ghi nhiều heartbeat trong một câu lệnh, dựa trên unique key (user_id, video_id)
+    // Chỉ ghi đè khi heartbeat không cũ hơn dòng đang có: lô flush chụp trước một lần ghi ngay (vượt mốc 90%)
+    // có thể tới DB sau, không được làm mất vị trí mới hơn. last_watched_at phải được gán cuối cùng
+    // vì MySQL gán lần lượt và các điều kiện phía trên cần so với giá trị cũ.
+    @Insert("""
+        <script>
+        INSERT INTO video_progress (user_id, video_id, watched_duration, total_duration, last_watched_at)
+        VALUES
+        <foreach collection="rows" item="r" separator=",">
+            (#{r.userId}, #{r.videoId}, #{r.watchedDuration}, #{r.totalDuration}, #{r.lastWatchedAt})
+        </foreach>
+        ON DUPLICATE KEY UPDATE
+            watched_duration = IF(last_watched_at IS NULL OR VALUES(last_watched_at) &gt;= last_watched_at,
+                VALUES(watched_duration), watched_duration),
+            total_duration = IF(last_watched_at IS NULL OR VALUES(last_watched_at) &gt;= last_watched_at,
+                VALUES(total_duration), total_duration),
+            last_watched_at = IF(last_watched_at IS NULL OR VALUES(last_watched_at) &gt;= last_watched_at,
+                VALUES(last_watched_at), last_watched_at)
+        </script>
+    """)
+    int upsertBatch(@Param("rows") List<VideoWatchDTO> rows);
+}
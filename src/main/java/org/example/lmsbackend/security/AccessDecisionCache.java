@@ -0,0 +1,125 @@
+package org.example.lmsbackend.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// ✅ Cache kết quả kiểm tra quyền (instructor/enrolled) theo (userId, courseId) và (userId, videoId)
+// TTL ngắn + xóa chủ động khi enroll/unenroll hoặc đổi instructor của khóa học
+@Component
+public class AccessDecisionCache {
+
+    public enum Kind {
+        INSTRUCTOR_OF_COURSE,
+        ENROLLED_IN_COURSE,
+        INSTRUCTOR_OF_VIDEO,
+        STUDENT_OF_VIDEO
+    }
+
+    private static final int MAX_ENTRIES = 50_000;
+
+    private final Map<Key, Decision> decisions = new ConcurrentHashMap<>();
+    // Tăng mỗi lần invalidate: kết quả nạp trước một lần invalidate không được giữ lại trong cache
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.access-cache.allow-ttl-seconds:60}")
+    private long allowTtlSeconds;
+
+    // Kết quả "không có quyền" giữ ngắn hơn để quyền mới được cấp có hiệu lực nhanh
+    @Value("${app.access-cache.deny-ttl-seconds:10}")
+    private long denyTtlSeconds;
+
+    public boolean check(Kind kind, Integer userId, Number targetId, BooleanSupplier loader) {
+        if (userId == null || targetId == null) {
+            return loader.getAsBoolean();
+        }
+        Key key = new Key(kind, userId, targetId.longValue());
+        long now = System.currentTimeMillis();
+        Decision cached = decisions.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.allowed;
+        }
+
+        long loadGeneration = generation.get();
+        boolean allowed = loader.getAsBoolean();
+        long ttlMillis = (allowed ? allowTtlSeconds : denyTtlSeconds) * 1000;
+        // Cache đầy thì chỉ bỏ qua việc cache, quyết định hết hạn được dọn theo lịch (evictExpired)
+        if (decisions.size() >= MAX_ENTRIES) {
+            return allowed;
+        }
+        Decision decision = new Decision(allowed, now + ttlMillis);
+        decisions.put(key, decision);
+        // Invalidate chạy trong lúc nạp (kể cả ngay trước put) thì kết quả có thể đã cũ: bỏ khỏi cache
+        if (generation.get() != loadGeneration) {
+            decisions.remove(key, decision);
+        }
+        return allowed;
+    }
+
+    // Dọn quyết định hết hạn định kỳ thay vì quét cả cache trên request
+    @Scheduled(fixedDelayString = "${app.access-cache.evict-interval-ms:30000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        decisions.values().removeIf(d -> d.expiresAt <= now);
+    }
+
+    // Enroll/unenroll: quyền theo video không biết course, nên xóa toàn bộ quyết định của user
+    public void invalidateUser(int userId) {
+        generation.incrementAndGet();
+        decisions.keySet().removeIf(k -> k.userId == userId);
+    }
+
+    // Đổi instructor/xóa khóa học: quyền instructor theo video cũng phụ thuộc vào course
+    public void invalidateCourse(int courseId) {
+        generation.incrementAndGet();
+        decisions.keySet().removeIf(k ->
+                (k.targetId == courseId && (k.kind == Kind.INSTRUCTOR_OF_COURSE || k.kind == Kind.ENROLLED_IN_COURSE))
+                        || k.kind == Kind.INSTRUCTOR_OF_VIDEO);
+    }
+
+    public void invalidateVideo(long videoId) {
+        generation.incrementAndGet();
+        decisions.keySet().removeIf(k -> k.targetId == videoId
+                && (k.kind == Kind.INSTRUCTOR_OF_VIDEO || k.kind == Kind.STUDENT_OF_VIDEO));
+    }
+
+    private static final class Key {
+        private final Kind kind;
+        private final int userId;
+        private final long targetId;
+
+        private Key(Kind kind, int userId, long targetId) {
+            this.kind = kind;
+            this.userId = userId;
+            this.targetId = targetId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return kind == other.kind && userId == other.userId && targetId == other.targetId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, userId, targetId);
+        }
+    }
+
+    private static final class Decision {
+        private final boolean allowed;
+        private final long expiresAt;
+
+        private Decision(boolean allowed, long expiresAt) {
+            this.allowed = allowed;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
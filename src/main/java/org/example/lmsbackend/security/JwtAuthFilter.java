@@ -1,5 +1,6 @@
 package org.example.lmsbackend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,9 +32,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            String username = jwtTokenUtil.extractUsername(token);
-            Integer userId = jwtTokenUtil.extractUserId(token);
-            String role = jwtTokenUtil.extractRole(token);
+            Claims claims = jwtTokenUtil.parseClaims(token);
+            String username = claims.getSubject();
+            Integer userId = claims.get("userId", Integer.class);
+            String role = claims.get("role", String.class);
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                 CustomUserDetails customUser = new CustomUserDetails(
@@ -1,5 +1,6 @@
 package org.example.lmsbackend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,16 +40,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             String token = authHeader.substring(7);
-            String username = jwtTokenUtil.extractUsername(token);
-            String role = jwtTokenUtil.extractRole(token);
-            Integer userId = jwtTokenUtil.extractUserId(token);
+            // ✅ Parse & verify một lần cho cả request
+            Claims claims = jwtTokenUtil.parseClaims(token);
+            String username = claims.getSubject();
+            String role = claims.get("role", String.class);
+            Integer userId = claims.get("userId", Integer.class);
             
             System.out.println("🔍 JWT Filter - Extracted username: " + username);
             System.out.println("🔍 JWT Filter - Extracted role: " + role);
             System.out.println("🔍 JWT Filter - Extracted userId: " + userId);
 
             // Check if token is expired
-            if (jwtTokenUtil.isTokenExpired(token)) {
+            if (jwtTokenUtil.isExpired(claims)) {
                 System.out.println("❌ JWT Filter - Token is expired");
                 filterChain.doFilter(request, response);
                 return;
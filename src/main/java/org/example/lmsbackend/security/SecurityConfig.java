@@ -42,6 +42,7 @@ public class SecurityConfig {
                         .requestMatchers("/uploads/avatars/**").permitAll() // ✅ Cho phép ảnh avatar
                         .requestMatchers("/uploads/modules/**").permitAll() // ✅ Cho phép truy cập content files
                         .requestMatchers("/uploads/imagescourse/**").permitAll() // ✅ Cho phép ảnh khóa học
+                        .requestMatchers("/uploads/store/**").permitAll() // ✅ File public của local storage (ảnh, tài liệu module, CV); file private đi qua /api/files/private/**
                         .requestMatchers("/cvs/**").permitAll() // ✅ Cho phép truy cập file CV công khai
                         .anyRequest().authenticated()
                 )
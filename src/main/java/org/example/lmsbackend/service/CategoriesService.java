@@ -3,6 +3,7 @@ package org.example.lmsbackend.service;
 import org.example.lmsbackend.model.Categories;
 import org.example.lmsbackend.repository.CategoriesMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,6 +14,9 @@ public class CategoriesService {
     @Autowired
     private CategoriesMapper categoriesMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public void createCategory(Categories category) {
         categoriesMapper.insertCategory(category);
     }
@@ -22,9 +26,12 @@ public class CategoriesService {
     }
     public void updateCategory(Categories category) {
         categoriesMapper.updateCategory(category);
+        // Tên danh mục hiển thị trên catalog công khai
+        eventPublisher.publishEvent(new CourseCatalogChangedEvent("category " + category.getCategoryId() + " updated"));
     }
     public void deleteCategory(Integer id) {
         categoriesMapper.deleteCategory(id);
+        eventPublisher.publishEvent(new CourseCatalogChangedEvent("category " + id + " deleted"));
     }
 
 }
@@ -1,21 +1,36 @@
 package org.example.lmsbackend.service;
 
+import com.cloudinary.AuthToken;
 import com.cloudinary.Cloudinary;
+import com.cloudinary.ProgressCallback;
+import com.cloudinary.Transformation;
 import com.cloudinary.utils.ObjectUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.UUID;
 
 @Service
 public class CloudinaryService {
 
+    // File lớn hơn ngưỡng này được upload theo từng chunk (Cloudinary yêu cầu chunk >= 5MB)
+    private static final long CHUNKED_UPLOAD_THRESHOLD = 20L * 1024 * 1024;
+    private static final int CHUNK_SIZE = 6 * 1024 * 1024;
+
     @Autowired
     private Cloudinary cloudinary;
 
+    @Value("${cloudinary.auth-token-key:}")
+    private String authTokenKey;
+
     /**
      * Upload file to Cloudinary
      * @param file - MultipartFile to upload
@@ -24,9 +39,35 @@ public class CloudinaryService {
      * @return URL của file đã upload
      */
     public String uploadFile(MultipartFile file, String folder, String resourceType) {
+        Path tempFile = null;
+        try {
+            // Copy multipart sang file tạm (buffer cố định), không đọc toàn bộ vào heap
+            tempFile = copyToTempFile(file);
+            return uploadFile(tempFile, file.getOriginalFilename(), folder, resourceType, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload file to Cloudinary: " + e.getMessage(), e);
+        } finally {
+            deleteTempFile(tempFile);
+        }
+    }
+
+    /**
+     * Upload a file already on local disk (e.g. from a background upload job)
+     * @param progress - nhận số byte đã upload, có thể null
+     */
+    public String uploadFile(Path localFile, String originalFilename, String folder, String resourceType,
+                             ProgressCallback progress) {
+        return uploadFile(localFile, originalFilename, folder, resourceType, null, progress);
+    }
+
+    /**
+     * Upload a local file under a fixed name (e.g. its SHA-256), không ghi đè nếu public_id đã tồn tại
+     * @param name - tên file trong folder, null thì sinh UUID_filename
+     */
+    public String uploadFile(Path localFile, String originalFilename, String folder, String resourceType,
+                             String name, ProgressCallback progress) {
         try {
             // Generate unique public_id với extension
-            String originalFilename = file.getOriginalFilename();
             String extension = "";
             String filename = "file";
             
@@ -38,7 +79,7 @@ public class CloudinaryService {
             }
             
             // Tạo public_id với extension để đảm bảo file type được giữ lại
-            String publicId = folder + "/" + UUID.randomUUID().toString() + "_" + filename;
+            String publicId = folder + "/" + (name != null ? name : UUID.randomUUID().toString() + "_" + filename);
 
             // Upload options
             @SuppressWarnings("unchecked")
@@ -47,6 +88,10 @@ public class CloudinaryService {
                 "resource_type", resourceType,
                 "folder", folder
             );
+            if (name != null) {
+                // Cùng nội dung -> cùng public_id, upload lại chỉ trả về asset đã có
+                uploadOptions.put("overwrite", false);
+            }
             
             // Đối với documents (.doc, .docx, .pdf), đảm bảo format được set đúng
             if ("raw".equals(resourceType)) {
@@ -75,7 +120,7 @@ public class CloudinaryService {
                 uploadOptions.put("format", "mp4");
                 
                 // For large videos, use simplified approach
-                long fileSizeInMB = file.getSize() / (1024 * 1024);
+                long fileSizeInMB = Files.size(localFile) / (1024 * 1024);
                 if (fileSizeInMB > 10) { // Videos larger than 10MB
                     // Remove transformations that might cause issues, keep it simple
                     uploadOptions.remove("quality");
@@ -85,8 +130,7 @@ public class CloudinaryService {
             }
 
             // Upload to Cloudinary
-            @SuppressWarnings("unchecked")
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(file.getBytes(), uploadOptions);
+            Map<String, Object> uploadResult = uploadToCloudinary(localFile, uploadOptions, progress);
             
             String uploadUrl = uploadResult.get("secure_url").toString();
             
@@ -108,6 +152,49 @@ public class CloudinaryService {
         }
     }
 
+    /**
+     * Copy multipart upload to a temp file with a fixed-size stream buffer
+     */
+    public Path copyToTempFile(MultipartFile file) throws IOException {
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf('.'))
+                : "";
+        Path tempFile = Files.createTempFile("cloudinary-upload-", extension);
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteTempFile(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    public void deleteTempFile(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("Failed to delete temp file " + tempFile + ": " + e.getMessage());
+        }
+    }
+
+    // File lớn dùng chunked upload (upload_large) nên heap chỉ giữ một chunk
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> uploadToCloudinary(Path localFile, Map<String, Object> uploadOptions,
+                                                   ProgressCallback progress) throws IOException {
+        long size = Files.size(localFile);
+        if (size > CHUNKED_UPLOAD_THRESHOLD) {
+            System.out.println("Uploading in " + (CHUNK_SIZE / (1024 * 1024)) + "MB chunks: " + size + " bytes");
+            return progress != null
+                    ? cloudinary.uploader().uploadLarge(localFile.toFile(), uploadOptions, CHUNK_SIZE, progress)
+                    : cloudinary.uploader().uploadLarge(localFile.toFile(), uploadOptions, CHUNK_SIZE);
+        }
+        return progress != null
+                ? cloudinary.uploader().upload(localFile.toFile(), uploadOptions, progress)
+                : cloudinary.uploader().upload(localFile.toFile(), uploadOptions);
+    }
+
     /**
      * Upload image (avatar, course thumbnail)
      */
@@ -139,6 +226,38 @@ public class CloudinaryService {
         return result;
     }
 
+    /**
+     * Build a signed delivery URL for a video
+     * @param publicId - public_id của video
+     * @param streamingProfile - để trống: mp4 (q_auto); có giá trị: HLS adaptive streaming (m3u8) theo profile
+     * @param ttlSeconds - thời hạn của token, chỉ áp dụng khi cấu hình cloudinary.auth-token-key
+     * @return URL đã ký
+     */
+    @SuppressWarnings("rawtypes")
+    public String buildSignedVideoUrl(String publicId, String streamingProfile, long ttlSeconds) {
+        Transformation transformation = new Transformation();
+        String format;
+        if (streamingProfile != null && !streamingProfile.isBlank()) {
+            transformation.streamingProfile(streamingProfile);
+            format = "m3u8";
+        } else {
+            transformation.quality("auto");
+            format = "mp4";
+        }
+
+        com.cloudinary.Url url = cloudinary.url()
+                .resourceType("video")
+                .type("upload")
+                .secure(true)
+                .signed(true)
+                .transformation(transformation)
+                .format(format);
+        if (authTokenKey != null && !authTokenKey.isBlank()) {
+            url.authToken(new AuthToken(authTokenKey).duration(ttlSeconds));
+        }
+        return url.generate(publicId);
+    }
+
     /**
      * Delete file from Cloudinary
      */
@@ -0,0 +1,28 @@
+package org.example.lmsbackend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryStorageBackend implements StorageBackend {
+
+    @Autowired
+    private CloudinaryService cloudinaryService;
+
+    @Override
+    public String getName() {
+        return "cloudinary";
+    }
+
+    @Override
+    public String store(Path localFile, String contentHash, String originalFilename, String folder,
+                        String resourceType, ProgressListener progress) {
+        // public_id = folder/<sha256>, upload trùng nội dung không tạo asset mới
+        return cloudinaryService.uploadFile(localFile, originalFilename, folder, resourceType, contentHash,
+                progress != null ? progress::onProgress : null);
+    }
+}
@@ -21,7 +21,10 @@ public class ContentService {
     private ModulesService modulesService;
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private CourseCompletionService courseCompletionService;
 
     // ✅ Tạo content mới
     public Content createContent(int moduleId, String title, String contentType, String description, 
@@ -54,7 +57,7 @@ public class ContentService {
         // Handle file upload if provided
         if (file != null && !file.isEmpty()) {
             // Upload to Cloudinary instead of local storage
-            String cloudinaryUrl = cloudinaryService.uploadDocument(file, "modules");
+            String cloudinaryUrl = fileStorageService.saveFile(file, "modules", "raw");
             String fileName = file.getOriginalFilename();
             
             content.setFileName(fileName);
@@ -64,7 +67,9 @@ public class ContentService {
             }
         }
         
-        return contentRepository.save(content);
+        Content saved = contentRepository.save(content);
+        courseCompletionService.onCourseStructureChanged(module.getCourseId());
+        return saved;
     }
 
     // ✅ Lấy content theo moduleId
@@ -91,7 +96,7 @@ public class ContentService {
         }
 
         // Upload file to Cloudinary
-        String cloudinaryUrl = cloudinaryService.uploadDocument(file, "modules");
+        String cloudinaryUrl = fileStorageService.saveFile(file, "modules", "raw");
 
         // Tạo Content
         Content content = new Content();
@@ -105,6 +110,7 @@ public class ContentService {
         content.setPublished(module.isPublished()); // nội dung thừa hưởng trạng thái của module
 
         contentRepository.save(content);
+        courseCompletionService.onCourseStructureChanged(module.getCourseId());
     }
 
     // ✅ Cập nhật trạng thái của content
@@ -118,7 +124,9 @@ public class ContentService {
         }
 
         content.setPublished(published);
-        return contentRepository.save(content);
+        Content saved = contentRepository.save(content);
+        courseCompletionService.onCourseStructureChanged(content.getModule().getCourseId());
+        return saved;
     }
 
     // ✅ Hàm hỗ trợ: lấy orderNumber tiếp theo cho content trong module
@@ -170,7 +178,7 @@ public class ContentService {
         //     content.setDescription(description);
         // }
 
-        return contentRepository.save(content);
+        return saveAndNotify(content);
     }
 
     // ✅ Cập nhật content chỉ thông tin cơ bản (không lưu file mới)
@@ -196,7 +204,7 @@ public class ContentService {
         // }
 
         // Không thay đổi contentUrl, fileName - giữ nguyên file cũ
-        return contentRepository.save(content);
+        return saveAndNotify(content);
     }
 
     // ✅ Cập nhật content với contentUrl
@@ -244,7 +252,7 @@ public class ContentService {
         if (file != null && !file.isEmpty()) {
             try {
                 // Upload to Cloudinary
-                String cloudinaryUrl = cloudinaryService.uploadDocument(file, "modules");
+                String cloudinaryUrl = fileStorageService.saveFile(file, "modules", "raw");
                 String fileName = file.getOriginalFilename();
                 
                 // Update content URL và file name
@@ -257,7 +265,7 @@ public class ContentService {
             }
         }
         
-        return contentRepository.save(content);
+        return saveAndNotify(content);
     }
 
     // ✅ Xóa content
@@ -277,6 +285,14 @@ public class ContentService {
         }
         
         contentRepository.delete(content);
+        courseCompletionService.onCourseStructureChanged(content.getModule().getCourseId());
+    }
+
+    // Các hàm cập nhật có thể đổi trạng thái xuất bản: tổng số item của khóa học cần tính lại
+    private Content saveAndNotify(Content content) {
+        Content saved = contentRepository.save(content);
+        courseCompletionService.onCourseStructureChanged(content.getModule().getCourseId());
+        return saved;
     }
 
     // ✅ Đồng bộ trạng thái của tất cả content trong module (dùng khi cập nhật module)
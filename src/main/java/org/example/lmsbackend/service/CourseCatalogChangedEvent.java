@@ -0,0 +1,14 @@
+package org.example.lmsbackend.service;
+
+// Phát ra khi dữ liệu hiển thị trên catalog công khai thay đổi (khóa học, danh mục, đánh giá)
+public class CourseCatalogChangedEvent {
+    private final String reason;
+
+    public CourseCatalogChangedEvent(String reason) {
+        this.reason = reason;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.CourseRatingStatsDTO;
+import org.example.lmsbackend.model.Course;
+import org.example.lmsbackend.repository.CourseMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snapshot của catalog công khai giữ trong bộ nhớ, đọc lại DB khi có CourseCatalogChangedEvent
+// hoặc khi quá app.catalog.ttl-seconds (thay đổi từ instance khác không phát event tới instance này)
+@Service
+public class CourseCatalogService {
+
+    @Autowired
+    private CourseMapper courseMapper;
+
+    @Autowired
+    private CourseReviewService courseReviewService;
+
+    @Value("${app.catalog.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    // Phân biệt ETag giữa các lần khởi động vì version bắt đầu lại từ 0
+    private final long bootStamp = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot<List<Course>> publicCourses;
+    private volatile Snapshot<List<Map<String, Object>>> publicCoursesWithRatings;
+
+    public Snapshot<List<Course>> getPublicCourses() {
+        long currentVersion = version.get();
+        Snapshot<List<Course>> snapshot = publicCourses;
+        if (snapshot != null && snapshot.version == currentVersion) {
+            if (System.currentTimeMillis() - snapshot.loadedAt < ttlSeconds * 1000) {
+                return snapshot;
+            }
+            // Quá TTL: tăng version để ETag đổi và snapshot có rating cũng được nạp lại
+            version.compareAndSet(currentVersion, currentVersion + 1);
+            currentVersion = version.get();
+        }
+        List<Course> courses = Collections.unmodifiableList(
+                courseMapper.findCourses(null, null, "published", null, null));
+        snapshot = new Snapshot<>(currentVersion, buildETag("courses", currentVersion), courses);
+        publicCourses = snapshot;
+        return snapshot;
+    }
+
+    public Snapshot<List<Map<String, Object>>> getPublicCoursesWithRatings() {
+        // Dùng version của snapshot khóa học (đã xét TTL) làm version của snapshot có rating
+        Snapshot<List<Course>> coursesSnapshot = getPublicCourses();
+        long currentVersion = coursesSnapshot.version;
+        Snapshot<List<Map<String, Object>>> snapshot = publicCoursesWithRatings;
+        if (snapshot != null && snapshot.version == currentVersion) {
+            return snapshot;
+        }
+        List<Course> courses = coursesSnapshot.getBody();
+        // Lấy thống kê đánh giá của tất cả khóa học trong một lần
+        Map<Integer, CourseRatingStatsDTO> ratingStatsByCourse = courseReviewService.getCourseRatingStats(
+                courses.stream().map(Course::getCourseId).toList());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Course course : courses) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("courseId", course.getCourseId());
+            item.put("title", course.getTitle());
+            item.put("description", course.getDescription());
+            item.put("price", course.getPrice());
+            item.put("thumbnailUrl", course.getThumbnailUrl());
+            item.put("createdAt", course.getCreatedAt());
+            item.put("instructorId", course.getInstructorId());
+
+            // Add category name
+            if (course.getCategory() != null) {
+                item.put("categoryName", course.getCategory().getName());
+            }
+
+            // Add rating statistics
+            CourseRatingStatsDTO ratingStats = ratingStatsByCourse.get(course.getCourseId());
+            item.put("averageRating", ratingStats.getAverageRating());
+            item.put("totalReviews", ratingStats.getReviewCount());
+
+            result.add(Collections.unmodifiableMap(item));
+        }
+
+        snapshot = new Snapshot<>(currentVersion, buildETag("courses-with-ratings", currentVersion),
+                Collections.unmodifiableList(result));
+        publicCoursesWithRatings = snapshot;
+        return snapshot;
+    }
+
+    // ✅ Chạy sau khi transaction commit (hoặc ngay lập tức nếu không có transaction),
+    // tránh việc request đồng thời nạp lại dữ liệu cũ trước khi commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogChanged(CourseCatalogChangedEvent event) {
+        long newVersion = version.incrementAndGet();
+        System.out.println("🔄 Course catalog invalidated (" + event.getReason() + "), version=" + newVersion);
+    }
+
+    private String buildETag(String kind, long snapshotVersion) {
+        return "\"" + kind + "-" + Long.toHexString(bootStamp) + "-" + snapshotVersion + "\"";
+    }
+
+    // Dữ liệu catalog bất biến kèm version và strong ETag tương ứng
+    public static class Snapshot<T> {
+        private final long version;
+        private final String eTag;
+        private final T body;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Snapshot(long version, String eTag, T body) {
+            this.version = version;
+            this.eTag = eTag;
+            this.body = body;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public T getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.CompletionItemDTO;
+import org.example.lmsbackend.dto.CourseCompletionDTO;
+import org.example.lmsbackend.dto.ModuleProgressSummaryDTO;
+import org.example.lmsbackend.model.Course;
+import org.example.lmsbackend.model.Modules;
+import org.example.lmsbackend.repository.CourseCompletionMapper;
+import org.example.lmsbackend.repository.CourseRepository;
+import org.example.lmsbackend.repository.ModulesRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tính % hoàn thành khóa học bằng một số truy vấn cố định (khóa học, module, item đã xuất bản,
+ * item user đã hoàn thành) rồi ghép kết quả trong bộ nhớ, thay vì kiểm tra từng item một.
+ * Kết quả được lưu vào bảng course_completion và chỉ tính lại khi có tiến độ mới
+ * hoặc khi trạng thái xuất bản của khóa học thay đổi.
+ */
+@Service
+public class CourseCompletionService {
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private ModulesRepository modulesRepository;
+
+    @Autowired
+    private CourseCompletionMapper courseCompletionMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // ✅ Đọc kết quả đã lưu; nếu chưa có hoặc đã stale thì tính lại và lưu
+    public CourseCompletionDTO getCourseCompletion(Integer courseId, Integer userId) {
+        CourseCompletionDTO stored = courseCompletionMapper.findFreshCompletion(userId, courseId);
+        if (stored != null) {
+            return stored;
+        }
+        return refreshCompletion(userId, courseId);
+    }
+
+    public CourseCompletionDTO refreshCompletion(Integer userId, Integer courseId) {
+        CourseCompletionDTO dto = calculateCourseCompletion(courseId, userId);
+        courseCompletionMapper.upsertCompletion(userId, dto);
+        return dto;
+    }
+
+    // Gọi sau khi user có tiến độ mới trong khóa học; lỗi ở đây không làm hỏng việc ghi tiến độ
+    public void onProgressRecorded(Integer userId, Integer courseId) {
+        if (userId == null || courseId == null) {
+            return;
+        }
+        try {
+            refreshCompletion(userId, courseId);
+        } catch (Exception e) {
+            System.err.println("❌ Error refreshing course completion for user " + userId + ", course " + courseId + ": " + e.getMessage());
+        }
+    }
+
+    // Gọi khi tạo / xóa / đổi trạng thái xuất bản module/content/video/quiz: tổng số item của mọi user đều đổi.
+    // Đánh dấu stale sau khi transaction commit, để lần tính lại không đọc cấu trúc cũ
+    public void onCourseStructureChanged(Integer courseId) {
+        if (courseId != null) {
+            eventPublisher.publishEvent(new CourseStructureChangedEvent(courseId));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void markCourseStale(CourseStructureChangedEvent event) {
+        Integer courseId = event.getCourseId();
+        try {
+            courseCompletionMapper.markCourseStale(courseId);
+        } catch (Exception e) {
+            System.err.println("❌ Error invalidating course completion for course " + courseId + ": " + e.getMessage());
+        }
+    }
+
+    // ✅ Tính lại bảng course_completion cho mọi học viên của một khóa học, trả về số dòng đã ghi
+    public int rebuildCourse(Integer courseId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        // User không còn ghi danh vẫn có thể có dòng cũ: để tính lại khi đọc
+        courseCompletionMapper.markCourseStale(courseId);
+
+        List<Modules> publishedModules = modulesRepository.findByCourse_CourseIdAndPublishedTrueOrderByOrderNumber(courseId);
+        List<CompletionItemDTO> items = courseCompletionMapper.findPublishedItemsByCourses(List.of(courseId));
+
+        int rebuilt = 0;
+        for (Integer userId : courseCompletionMapper.findEnrolledUserIds(courseId)) {
+            List<CompletionItemDTO> completed = courseCompletionMapper.findCompletedItemsByUserAndCourses(userId, List.of(courseId));
+            courseCompletionMapper.upsertCompletion(userId, buildCompletion(course, publishedModules, items, completed));
+            rebuilt++;
+        }
+        return rebuilt;
+    }
+
+    public int rebuildAllCourses() {
+        int rebuilt = 0;
+        for (Integer courseId : courseCompletionMapper.findAllCourseIds()) {
+            rebuilt += rebuildCourse(courseId);
+        }
+        return rebuilt;
+    }
+
+    // Tính trực tiếp từ dữ liệu tiến độ, không đọc/ghi bảng course_completion
+    public CourseCompletionDTO calculateCourseCompletion(Integer courseId, Integer userId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        List<Modules> publishedModules = modulesRepository.findByCourse_CourseIdAndPublishedTrueOrderByOrderNumber(courseId);
+        List<CompletionItemDTO> items = courseCompletionMapper.findPublishedItemsByCourses(List.of(courseId));
+        List<CompletionItemDTO> completed = courseCompletionMapper.findCompletedItemsByUserAndCourses(userId, List.of(courseId));
+
+        return buildCompletion(course, publishedModules, items, completed);
+    }
+
+    // ✅ Tiến độ của một user trên nhiều khóa học (courseId -> kết quả): một truy vấn đọc kết quả đã lưu,
+    // các khóa học chưa có hoặc đã stale được tính cùng lúc bằng ba truy vấn gộp rồi lưu lại
+    public Map<Integer, CourseCompletionDTO> getCourseCompletions(Integer userId, List<Course> courses) {
+        Map<Integer, CourseCompletionDTO> result = new HashMap<>();
+        if (courses.isEmpty()) {
+            return result;
+        }
+
+        List<Integer> courseIds = courses.stream().map(Course::getCourseId).toList();
+        for (CourseCompletionDTO stored : courseCompletionMapper.findFreshCompletions(userId, courseIds)) {
+            result.put(stored.getCourseId(), stored);
+        }
+
+        List<Course> missing = courses.stream()
+                .filter(course -> !result.containsKey(course.getCourseId()))
+                .toList();
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<Integer> missingIds = missing.stream().map(Course::getCourseId).toList();
+        Map<Integer, List<Modules>> modulesByCourse = modulesRepository.findByCourse_CourseIdInAndPublishedTrue(missingIds)
+                .stream().collect(Collectors.groupingBy(Modules::getCourseId));
+        Map<Integer, List<CompletionItemDTO>> itemsByCourse = courseCompletionMapper.findPublishedItemsByCourses(missingIds)
+                .stream().collect(Collectors.groupingBy(CompletionItemDTO::getCourseId));
+        Map<Integer, List<CompletionItemDTO>> completedByCourse = courseCompletionMapper.findCompletedItemsByUserAndCourses(userId, missingIds)
+                .stream().collect(Collectors.groupingBy(CompletionItemDTO::getCourseId));
+
+        for (Course course : missing) {
+            Integer courseId = course.getCourseId();
+            CourseCompletionDTO dto = buildCompletion(course,
+                    modulesByCourse.getOrDefault(courseId, List.of()),
+                    itemsByCourse.getOrDefault(courseId, List.of()),
+                    completedByCourse.getOrDefault(courseId, List.of()));
+            courseCompletionMapper.upsertCompletion(userId, dto);
+            result.put(courseId, dto);
+        }
+        return result;
+    }
+
+    // Tiến độ từng module (moduleId -> tổng/đã hoàn thành) của user trong khóa học, một truy vấn duy nhất
+    public Map<Integer, ModuleProgressSummaryDTO> getModuleProgressSummaries(Integer courseId, Integer userId) {
+        Map<Integer, ModuleProgressSummaryDTO> summaries = new HashMap<>();
+        for (ModuleProgressSummaryDTO summary : courseCompletionMapper.findModuleProgressSummaries(userId, courseId)) {
+            summaries.put(summary.getModuleId(), summary);
+        }
+        return summaries;
+    }
+
+    // Ghép danh sách item và danh sách item đã hoàn thành thành CourseCompletionDTO
+    CourseCompletionDTO buildCompletion(Course course, List<Modules> publishedModules,
+                                        List<CompletionItemDTO> items, List<CompletionItemDTO> completed) {
+        CourseCompletionDTO dto = new CourseCompletionDTO(course.getCourseId(), course.getTitle());
+        dto.setTotalModules(publishedModules.size());
+
+        Set<Integer> completedContents = new HashSet<>();
+        Set<Integer> completedVideos = new HashSet<>();
+        Set<Integer> completedQuizzes = new HashSet<>();
+        for (CompletionItemDTO item : completed) {
+            idsOf(item.getItemType(), completedContents, completedVideos, completedQuizzes).add(item.getItemId());
+        }
+
+        int totalContents = 0, doneContents = 0;
+        int totalVideos = 0, doneVideos = 0;
+        int totalQuizzes = 0, doneQuizzes = 0;
+        // Module còn ít nhất một item chưa hoàn thành
+        Set<Integer> incompleteModules = new HashSet<>();
+
+        for (CompletionItemDTO item : items) {
+            boolean done = idsOf(item.getItemType(), completedContents, completedVideos, completedQuizzes)
+                    .contains(item.getItemId());
+            switch (item.getItemType()) {
+                case CompletionItemDTO.TYPE_CONTENT -> {
+                    totalContents++;
+                    if (done) doneContents++;
+                }
+                case CompletionItemDTO.TYPE_VIDEO -> {
+                    totalVideos++;
+                    if (done) doneVideos++;
+                }
+                default -> {
+                    totalQuizzes++;
+                    if (done) doneQuizzes++;
+                }
+            }
+            if (!done) {
+                incompleteModules.add(item.getModuleId());
+            }
+        }
+
+        int completedModules = 0;
+        for (Modules module : publishedModules) {
+            if (!incompleteModules.contains(module.getId())) {
+                completedModules++;
+            }
+        }
+
+        int totalItems = totalContents + totalVideos + totalQuizzes;
+        int completedItems = doneContents + doneVideos + doneQuizzes;
+
+        dto.setCompletedModules(completedModules);
+        dto.setTotalItems(totalItems);
+        dto.setCompletedItems(completedItems);
+        dto.setTotalContents(totalContents);
+        dto.setCompletedContents(doneContents);
+        dto.setTotalVideos(totalVideos);
+        dto.setCompletedVideos(doneVideos);
+        dto.setTotalQuizzes(totalQuizzes);
+        dto.setCompletedQuizzes(doneQuizzes);
+        dto.setCompletionPercentage(totalItems > 0 ? (double) completedItems * 100.0 / totalItems : 0.0);
+        return dto;
+    }
+
+    private Set<Integer> idsOf(String itemType, Set<Integer> contents, Set<Integer> videos, Set<Integer> quizzes) {
+        return switch (itemType) {
+            case CompletionItemDTO.TYPE_CONTENT -> contents;
+            case CompletionItemDTO.TYPE_VIDEO -> videos;
+            default -> quizzes;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.repository.CourseRatingStatsMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// ✅ Dựng thống kê đánh giá khi khởi động nếu bảng course_rating_stats còn trống (vừa được tạo).
+// Tách khỏi CourseReviewService để rebuildRatingStats được gọi qua proxy và chạy trong transaction.
+@Service
+public class CourseRatingStatsInitializer {
+
+    @Autowired
+    private CourseReviewService courseReviewService;
+
+    @Autowired
+    private CourseRatingStatsMapper courseRatingStatsMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildRatingStatsOnStartup() {
+        try {
+            // Bảng đã có dữ liệu thì được giữ đúng bằng delta khi thêm / sửa / xóa review
+            if (courseRatingStatsMapper.hasAnyStats()) {
+                return;
+            }
+            courseReviewService.rebuildRatingStats();
+        } catch (Exception e) {
+            System.err.println("Error rebuilding course rating stats: " + e.getMessage());
+        }
+    }
+}
@@ -1,25 +1,34 @@
 package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.dto.CourseCompletionDTO;
+import org.example.lmsbackend.dto.CourseRatingStatsDTO;
 import org.example.lmsbackend.dto.CourseReviewDTO;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.dto.ReviewRequestDTO;
 import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.model.CourseReview;
 import org.example.lmsbackend.model.User;
+import org.example.lmsbackend.repository.CourseRatingStatsMapper;
 import org.example.lmsbackend.repository.CourseRepository;
 import org.example.lmsbackend.repository.CourseReviewRepository;
+import org.example.lmsbackend.repository.EnrollmentsMapper;
 import org.example.lmsbackend.repository.UserRepository;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CourseReviewService {
@@ -36,6 +45,18 @@ public class CourseReviewService {
     @Autowired
     private ModulesService modulesService;
 
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
+    @Autowired
+    private EnrollmentsMapper enrollmentsMapper;
+
+    @Autowired
+    private CourseRatingStatsMapper courseRatingStatsMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private static final double MIN_COMPLETION_PERCENTAGE = 80.0;
 
     // Get eligible courses for review (completion >= 80%)
@@ -46,21 +67,27 @@ public class CourseReviewService {
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
             // Get all published courses that user is enrolled in
-            // For now, get all published courses (can be refined later with enrollment logic)
-            List<Course> enrolledCourses = courseRepository.findAll()
+            List<Integer> enrolledCourseIds = enrollmentsMapper.getEnrolledCourseIdsByUserId(userId);
+            List<CourseReviewDTO> eligibleCourses = new ArrayList<>();
+            if (enrolledCourseIds.isEmpty()) {
+                return eligibleCourses;
+            }
+
+            List<Course> enrolledCourses = courseRepository.findAllById(enrolledCourseIds)
                     .stream()
                     .filter(course -> course.getStatus() == Course.Status.published)
                     .toList();
-            List<CourseReviewDTO> eligibleCourses = new ArrayList<>();
+
+            // Completion of every enrolled course and the already-reviewed courses, each in one batch
+            Map<Integer, CourseCompletionDTO> completions = courseCompletionService.getCourseCompletions(userId, enrolledCourses);
+            Set<Integer> reviewedCourseIds = new HashSet<>(courseReviewRepository.findReviewedCourseIdsByUserId(userId));
 
             for (Course course : enrolledCourses) {
                 try {
-                    // Calculate completion percentage using existing logic
-                    CourseCompletionDTO completion = modulesService.calculateCourseCompletion(
-                        course.getCourseId(), userId);
+                    CourseCompletionDTO completion = completions.get(course.getCourseId());
 
                     // Only include courses with >= 80% completion
-                    if (completion.getCompletionPercentage() >= MIN_COMPLETION_PERCENTAGE) {
+                    if (completion != null && completion.getCompletionPercentage() >= MIN_COMPLETION_PERCENTAGE) {
                         CourseReviewDTO dto = new CourseReviewDTO();
                         dto.setCourseId(course.getCourseId());
                         dto.setCourseTitle(course.getTitle());
@@ -69,9 +96,7 @@ public class CourseReviewService {
                         dto.setCompletionPercentage(completion.getCompletionPercentage());
 
                         // Check if user has already reviewed this course
-                        Optional<CourseReview> existingReview = courseReviewRepository
-                                .findByUserIdAndCourseId(userId, course.getCourseId());
-                        dto.setHasReviewed(existingReview.isPresent());
+                        dto.setHasReviewed(reviewedCourseIds.contains(course.getCourseId()));
 
                         eligibleCourses.add(dto);
                     }
@@ -142,6 +167,16 @@ public class CourseReviewService {
         return reviewDTOs;
     }
 
+    // Get one keyset page of all reviews, newest first (admin only)
+    public PageResponse<CourseReviewDTO> getAllReviews(String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<CourseReviewDTO> reviewDTOs = new ArrayList<>();
+        for (CourseReview review : courseReviewRepository.findPage(PageCursor.decode(cursor), PageRequest.of(0, pageSize + 1))) {
+            reviewDTOs.add(convertToDTO(review));
+        }
+        return PageResponse.of(reviewDTOs, pageSize, CourseReviewDTO::getReviewId);
+    }
+
     // Create or update review
     @Transactional
     public CourseReviewDTO createOrUpdateReview(Integer userId, ReviewRequestDTO request) {
@@ -171,9 +206,11 @@ public class CourseReviewService {
                     .findByUserIdAndCourseId(userId, request.getCourseId());
 
             CourseReview review;
+            CourseRatingStatsDTO delta = new CourseRatingStatsDTO(course.getCourseId());
             if (existingReview.isPresent()) {
                 // Update existing review
                 review = existingReview.get();
+                delta.addRating(review.getRating(), -1);
                 review.setRating(request.getRating());
                 review.setComment(request.getComment());
                 // Keep original created date for updates
@@ -186,8 +223,12 @@ public class CourseReviewService {
                 review.setComment(request.getComment());
                 review.setCreatedAt(Instant.now());
             }
+            delta.addRating(request.getRating(), 1);
 
             CourseReview savedReview = courseReviewRepository.save(review);
+            // ✅ Cập nhật thống kê đánh giá trong cùng transaction
+            courseRatingStatsMapper.applyDelta(delta);
+            eventPublisher.publishEvent(new CourseCatalogChangedEvent("review saved for course " + course.getCourseId()));
             return convertToDTO(savedReview);
 
         } catch (Exception e) {
@@ -199,10 +240,12 @@ public class CourseReviewService {
     // Delete review (admin only)
     @Transactional
     public void deleteReview(Integer reviewId) {
-        if (!courseReviewRepository.existsById(reviewId)) {
-            throw new RuntimeException("Review not found");
-        }
-        courseReviewRepository.deleteById(reviewId);
+        CourseReview review = courseReviewRepository.findById(reviewId)
+                .orElseThrow(() -> new RuntimeException("Review not found"));
+        courseReviewRepository.delete(review);
+        courseRatingStatsMapper.applyDelta(
+                new CourseRatingStatsDTO(review.getCourse().getCourseId()).addRating(review.getRating(), -1));
+        eventPublisher.publishEvent(new CourseCatalogChangedEvent("review " + reviewId + " deleted"));
     }
 
     // Helper method to convert entity to DTO
@@ -225,25 +268,36 @@ public class CourseReviewService {
 
     // Method to get rating statistics for a course
     public Map<String, Object> getCourseRatingStats(Integer courseId) {
-        List<CourseReview> reviews = courseReviewRepository.findByCourseId(courseId);
-        
+        CourseRatingStatsDTO ratingStats = getCourseRatingStats(List.of(courseId)).get(courseId);
+
         Map<String, Object> stats = new HashMap<>();
-        
-        if (reviews.isEmpty()) {
-            stats.put("averageRating", 0.0);
-            stats.put("totalReviews", 0);
-            return stats;
-        }
-        
-        // Calculate average rating
-        double averageRating = reviews.stream()
-            .mapToInt(CourseReview::getRating)
-            .average()
-            .orElse(0.0);
-        
-        stats.put("averageRating", Math.round(averageRating * 10.0) / 10.0); // Round to 1 decimal place
-        stats.put("totalReviews", reviews.size());
-        
+        stats.put("averageRating", ratingStats.getAverageRating()); // Rounded to 1 decimal place
+        stats.put("totalReviews", ratingStats.getReviewCount());
         return stats;
     }
+
+    // ✅ Thống kê đánh giá của nhiều khóa học trong một truy vấn, khóa học chưa có review trả về 0
+    public Map<Integer, CourseRatingStatsDTO> getCourseRatingStats(List<Integer> courseIds) {
+        Map<Integer, CourseRatingStatsDTO> result = new HashMap<>();
+        if (courseIds.isEmpty()) {
+            return result;
+        }
+        for (CourseRatingStatsDTO stats : courseRatingStatsMapper.findByCourseIds(courseIds)) {
+            result.put(stats.getCourseId(), stats);
+        }
+        for (Integer courseId : courseIds) {
+            result.computeIfAbsent(courseId, CourseRatingStatsDTO::new);
+        }
+        return result;
+    }
+
+    // ✅ Tính lại toàn bộ thống kê đánh giá từ course_reviews
+    @Transactional
+    public int rebuildRatingStats() {
+        courseRatingStatsMapper.resetAll();
+        int rows = courseRatingStatsMapper.rebuildFromReviews();
+        eventPublisher.publishEvent(new CourseCatalogChangedEvent("rating stats rebuilt"));
+        System.out.println("📊 Rebuilt course rating stats from course_reviews");
+        return rows;
+    }
 }
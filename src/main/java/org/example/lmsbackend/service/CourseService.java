@@ -2,8 +2,12 @@ package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.dto.CourseDTO;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.repository.CourseMapper;
+import org.example.lmsbackend.security.AccessDecisionCache;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -22,6 +26,10 @@ public class CourseService {
     private QuizzesService quizzesService;
     @Autowired
     private CourseMapper courseMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
     public boolean createCourse(CourseDTO dto, MultipartFile imageFile) {
         try {
             Course course = new Course();
@@ -40,6 +48,9 @@ public class CourseService {
 
             int result = courseMapper.insertCourse(course);
             System.out.println("🔧 Insert result: " + result);
+            if (result > 0) {
+                eventPublisher.publishEvent(new CourseCatalogChangedEvent("course created"));
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("❌ Exception khi tạo khóa học:");
@@ -50,23 +61,39 @@ public class CourseService {
 
     public List<Course> getCourses(Integer categoryId, Integer instructorId, String status) {
         System.out.println("📦 getCourses with: categoryId=" + categoryId + ", instructorId=" + instructorId + ", status=" + status);
-        return courseMapper.findCourses(categoryId, instructorId, status);
+        return courseMapper.findCourses(categoryId, instructorId, status, null, null);
+    }
+
+    // ✅ Phân trang keyset theo course_id
+    public PageResponse<Course> getCoursesPage(Integer categoryId, Integer instructorId, String status,
+                                               String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<Course> rows = courseMapper.findCourses(categoryId, instructorId, status,
+                PageCursor.decode(cursor), pageSize + 1);
+        return PageResponse.of(rows, pageSize, Course::getCourseId);
     }
     public boolean isInstructorOfCourse(int instructorId, int courseId) {
-        return courseMapper.countByInstructorAndCourse(instructorId, courseId) > 0;
+        return accessDecisionCache.check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, instructorId, courseId,
+                () -> courseMapper.countByInstructorAndCourse(instructorId, courseId) > 0);
     }
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
 
     public boolean updateCourse(Course course, MultipartFile imageFile) {
         try {
             if (imageFile != null && !imageFile.isEmpty()) {
                 // Upload ảnh lên Cloudinary
-                String cloudinaryUrl = cloudinaryService.uploadImage(imageFile, "imagescourse");
+                String cloudinaryUrl = fileStorageService.saveFile(imageFile, "imagescourse", "image");
                 course.setThumbnailUrl(cloudinaryUrl);
             }
 
-            return courseMapper.updateCourse(course) > 0;
+            boolean updated = courseMapper.updateCourse(course) > 0;
+            if (updated) {
+                // instructor của khóa học có thể đã thay đổi
+                accessDecisionCache.invalidateCourse(course.getCourseId());
+                eventPublisher.publishEvent(new CourseCatalogChangedEvent("course " + course.getCourseId() + " updated"));
+            }
+            return updated;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -74,7 +101,12 @@ public class CourseService {
     }
     public boolean deleteCourse(Integer courseId) {
         try {
-            return courseMapper.deleteCourse(courseId) > 0;
+            boolean deleted = courseMapper.deleteCourse(courseId) > 0;
+            if (deleted) {
+                accessDecisionCache.invalidateCourse(courseId);
+                eventPublisher.publishEvent(new CourseCatalogChangedEvent("course " + courseId + " deleted"));
+            }
+            return deleted;
         } catch (org.springframework.dao.DataIntegrityViolationException e) {
             // 🛑 Constraint violation - không log error, chỉ return false
             System.out.println("ℹ️ Course " + courseId + " has related data, cannot delete - this is normal behavior");
@@ -95,7 +127,7 @@ public class CourseService {
     */
     private String saveImage(MultipartFile file) {
         try {
-            return cloudinaryService.uploadImage(file, "imagescourse");
+            return fileStorageService.saveFile(file, "imagescourse", "image");
         } catch (Exception e) {
             throw new RuntimeException("Lỗi khi lưu file ảnh", e);
         }
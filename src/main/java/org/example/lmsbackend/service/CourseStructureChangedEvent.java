@@ -0,0 +1,14 @@
+package org.example.lmsbackend.service;
+
+// Phát ra khi tập module/content/video/quiz đã xuất bản của một khóa học có thể đã thay đổi
+public class CourseStructureChangedEvent {
+    private final Integer courseId;
+
+    public CourseStructureChangedEvent(Integer courseId) {
+        this.courseId = courseId;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+}
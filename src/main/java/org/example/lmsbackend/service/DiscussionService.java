@@ -1,6 +1,7 @@
 package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.dto.DiscussionDTO;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.model.Discussion;
 import org.example.lmsbackend.model.Discussion.DiscussionType;
@@ -8,7 +9,9 @@ import org.example.lmsbackend.model.User;
 import org.example.lmsbackend.repository.CourseRepository;
 import org.example.lmsbackend.repository.DiscussionRepository;
 import org.example.lmsbackend.repository.UserRepository;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -42,6 +45,14 @@ public class DiscussionService {
                 .collect(Collectors.toList());
     }
 
+    public PageResponse<DiscussionDTO> getDiscussionsForUser(Integer courseId, Integer userId, String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<DiscussionDTO> rows = discussionRepository.findDiscussionsForUserPage(courseId, userId, PageCursor.decode(cursor), PageRequest.of(0, pageSize + 1)).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+        return PageResponse.of(rows, pageSize, DiscussionDTO::getId);
+    }
+
     public DiscussionDTO createDiscussion(DiscussionDTO dto) {
         System.out.println("🔥 Creating discussion - DTO title: '" + dto.getTitle() + "', type: " + dto.getType());
         Optional<Course> courseOpt = courseRepository.findById(dto.getCourseId());
@@ -1,9 +1,12 @@
 package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.dto.EnrollmentsDTO;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.model.Enrollment;
 import org.example.lmsbackend.repository.EnrollmentsMapper;
+import org.example.lmsbackend.security.AccessDecisionCache;
 import org.example.lmsbackend.dto.UserDTO;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,6 +20,8 @@ public class EnrollmentsService {
     }
     @Autowired
     private EnrollmentsMapper enrollmentMapper;
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
 
     public boolean enrollUserInCourse(int userId, int courseId) {
         int count = enrollmentMapper.countEnrollment(userId, courseId);
@@ -24,6 +29,7 @@ public class EnrollmentsService {
             return false;
         }
         enrollmentMapper.enrollCourse(userId, courseId);
+        accessDecisionCache.invalidateUser(userId);
         return true;
     }
 
@@ -32,21 +38,32 @@ public class EnrollmentsService {
     }
 
     public int deleteEnrollment(int userId, int courseId) {
-        return enrollmentMapper.deleteEnrollment(userId, courseId);
+        int rows = enrollmentMapper.deleteEnrollment(userId, courseId);
+        accessDecisionCache.invalidateUser(userId);
+        return rows;
     }
 
     public List<UserDTO> getEnrolledUsersByCourse(int courseId) {
         return enrollmentMapper.getUsersByCourseId(courseId);
     }
     public boolean isStudentEnrolled(int userId, int courseId) {
-        return enrollmentMapper.countEnrollment(userId, courseId) > 0;
+        return accessDecisionCache.check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, userId, courseId,
+                () -> enrollmentMapper.countEnrollment(userId, courseId) > 0);
     }
 
     public boolean isUserEnrolledInCourse(Integer userId, Integer courseId) {
-        return enrollmentMapper.countEnrollment(userId, courseId) > 0;
+        return accessDecisionCache.check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, userId, courseId,
+                () -> enrollmentMapper.countEnrollment(userId, courseId) > 0);
     }
 
     public List<EnrollmentsDTO> getAllEnrollments() {
         return enrollmentMapper.getAllEnrollments();
     }
+
+    // ✅ Phân trang keyset theo enrollment_id
+    public PageResponse<EnrollmentsDTO> getEnrollmentsPage(String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<EnrollmentsDTO> rows = enrollmentMapper.getEnrollmentsPage(PageCursor.decode(cursor), pageSize + 1);
+        return PageResponse.of(rows, pageSize, EnrollmentsDTO::getEnrollmentId);
+    }
 }
\ No newline at end of file
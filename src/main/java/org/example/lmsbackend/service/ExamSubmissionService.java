@@ -10,10 +10,14 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 public class ExamSubmissionService {
 
+    private static final int INSERT_BATCH_SIZE = 500;
+
     @Autowired
     private UserQuizAttemptMapper userQuizAttemptMapper;
 
@@ -35,9 +39,15 @@ public class ExamSubmissionService {
     @Autowired
     private QuizResultService quizResultService;
 
+    @Autowired
+    private QuizResultSnapshotService quizResultSnapshotService;
+
     @Autowired
     private ModuleProgressService moduleProgressService;
 
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
     /**
      * Submit exam and return result immediately for multiple choice
      */
@@ -61,165 +71,44 @@ public class ExamSubmissionService {
             // Insert attempt
             userQuizAttemptMapper.insertAttempt(attempt);
             
+            // ✅ Nạp sẵn câu hỏi và đáp án của quiz (2 query), chọn đáp án trong bộ nhớ
+            Map<Integer, Questions> questionsById = new HashMap<>();
+            for (Questions question : questionsMapper.findPlainByQuizId(quiz.getQuizId())) {
+                question.setAnswers(new ArrayList<>());
+                questionsById.put(question.getQuestionId(), question);
+            }
+            Map<Integer, Answer> answersById = new HashMap<>();
+            for (Answer answer : answerMapper.findByQuizId(quiz.getQuizId())) {
+                Questions question = questionsById.get(answer.getQuestion().getQuestionId());
+                if (question != null) {
+                    answer.setQuestion(question);
+                    question.getAnswers().add(answer);
+                    answersById.put(answer.getAnswerId(), answer);
+                }
+            }
+
             // Save user answers
             List<UserAnswer> userAnswers = new ArrayList<>();
             for (UserAnswerDTO answerDTO : submissionDTO.getAnswers()) {
+                Questions question = questionsById.get(answerDTO.getQuestionId());
+                if (question == null) {
+                    System.out.println("⚠️ Question " + answerDTO.getQuestionId() + " does not belong to quiz " + quiz.getQuizId() + ", skipped");
+                    continue;
+                }
+
                 UserAnswer userAnswer = new UserAnswer();
                 userAnswer.setAttempt(attempt);
-                
-                // Set question
-                Questions question = questionsMapper.findById(answerDTO.getQuestionId());
                 userAnswer.setQuestion(question);
-                
-                System.out.println("🔍 Processing Answer for Question ID: " + answerDTO.getQuestionId());
-                System.out.println("🔍 Question Type: " + (question != null ? question.getType() : "null"));
-                System.out.println("🔍 AnswerDTO - answerText: " + answerDTO.getAnswerText());
-                System.out.println("🔍 AnswerDTO - linkAnswer: " + answerDTO.getLinkAnswer());
-                System.out.println("🔍 AnswerDTO - answerId: " + answerDTO.getAnswerId());
-                System.out.println("🔍 AnswerDTO - selectedIndex: " + answerDTO.getSelectedIndex());
-                
-                // Handle different answer types
-                if (answerDTO.getAnswerId() != null) {
-                    // Multiple choice - find the selected answer by ID
-                    Answer selectedAnswer = answerMapper.findById(answerDTO.getAnswerId());
-                    userAnswer.setAnswer(selectedAnswer);
-                    userAnswer.setIsCorrect(selectedAnswer.getIsCorrect());
-                } else if (answerDTO.getSelectedIndex() != null && question.getType() == Questions.Type.MULTIPLE_CHOICE) {
-                    // Handle selected index for multiple choice (from frontend)
-                    try {
-                        List<Answer> questionAnswers = answerMapper.findByQuestionId(question.getQuestionId());
-                        questionAnswers.sort((a, b) -> (a.getOrderNumber() != null ? a.getOrderNumber() : 0) - 
-                                                     (b.getOrderNumber() != null ? b.getOrderNumber() : 0));
-                        
-                        // Get answer by selected index
-                        if (answerDTO.getSelectedIndex() >= 0 && answerDTO.getSelectedIndex() < questionAnswers.size()) {
-                            Answer selectedAnswer = questionAnswers.get(answerDTO.getSelectedIndex());
-                            userAnswer.setAnswer(selectedAnswer);
-                            userAnswer.setIsCorrect(selectedAnswer.getIsCorrect());
-                            System.out.println("✅ Selected answer by index " + answerDTO.getSelectedIndex() + 
-                                             ": " + selectedAnswer.getAnswerText() + 
-                                             " (Correct: " + selectedAnswer.getIsCorrect() + ")");
-                        } else {
-                            // Invalid index
-                            userAnswer.setAnswerText("Invalid selection");
-                            userAnswer.setIsCorrect(false);
-                            System.out.println("❌ Invalid selectedIndex: " + answerDTO.getSelectedIndex());
-                        }
-                    } catch (Exception e) {
-                        // Fallback: store as incorrect
-                        userAnswer.setAnswerText("Error processing selection");
-                        userAnswer.setIsCorrect(false);
-                        System.out.println("❌ Error processing selectedIndex: " + e.getMessage());
-                    }
-                } else if (answerDTO.getAnswerText() != null && !answerDTO.getAnswerText().trim().isEmpty()) {
-                    // Handle text answer matching for multiple choice or essay answers
-                    if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
-                        // Try to find answer by text match
-                        try {
-                            List<Answer> questionAnswers = answerMapper.findByQuestionId(question.getQuestionId());
-                            Answer matchedAnswer = questionAnswers.stream()
-                                .filter(ans -> ans.getAnswerText().equals(answerDTO.getAnswerText()))
-                                .findFirst()
-                                .orElse(null);
-                            
-                            if (matchedAnswer != null) {
-                                userAnswer.setAnswer(matchedAnswer);
-                                userAnswer.setIsCorrect(matchedAnswer.getIsCorrect());
-                            } else {
-                                // Store as text if no match found
-                                userAnswer.setAnswerText(answerDTO.getAnswerText());
-                                userAnswer.setIsCorrect(false);
-                            }
-                        } catch (Exception e) {
-                            // Fallback: store as text
-                            userAnswer.setAnswerText(answerDTO.getAnswerText());
-                            userAnswer.setIsCorrect(false);
-                        }
-                    } else {
-                        // Essay or text answer
-                        System.out.println("🔍 Processing Essay Question ID: " + answerDTO.getQuestionId());
-                        System.out.println("🔍 AnswerText: " + answerDTO.getAnswerText());
-                        System.out.println("🔍 LinkAnswer: " + answerDTO.getLinkAnswer());
-                        
-                        userAnswer.setAnswerText(answerDTO.getAnswerText());
-                        userAnswer.setIsCorrect(null); // Will be graded manually
-                        
-                        // Handle essay link submission
-                        if (answerDTO.getLinkAnswer() != null && !answerDTO.getLinkAnswer().trim().isEmpty()) {
-                            System.out.println("✅ Setting linkAnswer: " + answerDTO.getLinkAnswer());
-                            userAnswer.setLinkAnswer(answerDTO.getLinkAnswer());
-                        }
-                        
-                        // Handle essay file submission
-                        if (answerDTO.getFileName() != null && !answerDTO.getFileName().trim().isEmpty()) {
-                            System.out.println("🔍 Processing file submission for questionId: " + answerDTO.getQuestionId());
-                            System.out.println("🔍 FileName: " + answerDTO.getFileName());
-                            System.out.println("🔍 FilePath: " + answerDTO.getFilePath());
-                            
-                            userAnswer.setFileName(answerDTO.getFileName());
-                            System.out.println("✅ Set fileName: " + answerDTO.getFileName());
-                            
-                            // Also set filePath if provided
-                            if (answerDTO.getFilePath() != null && !answerDTO.getFilePath().trim().isEmpty()) {
-                                userAnswer.setFilePath(answerDTO.getFilePath());
-                                System.out.println("✅ Set filePath: " + answerDTO.getFilePath());
-                            } else {
-                                System.out.println("⚠️ FilePath is null or empty for file: " + answerDTO.getFileName());
-                            }
-                        }
-                    }
-                }
-                
-                // Handle essay questions with only linkAnswer or fileName (no answerText)
-                if (question.getType() == Questions.Type.ESSAY && 
-                    (answerDTO.getLinkAnswer() != null && !answerDTO.getLinkAnswer().trim().isEmpty()) ||
-                    (answerDTO.getFileName() != null && !answerDTO.getFileName().trim().isEmpty())) {
-                    
-                    System.out.println("🔍 Processing Essay Question (additional check) ID: " + answerDTO.getQuestionId());
-                    System.out.println("🔍 LinkAnswer: " + answerDTO.getLinkAnswer());
-                    System.out.println("🔍 FileName: " + answerDTO.getFileName());
-                    
-                    // Ensure answerText is set (can be empty)
-                    if (userAnswer.getAnswerText() == null) {
-                        userAnswer.setAnswerText(answerDTO.getAnswerText());
-                    }
-                    userAnswer.setIsCorrect(null); // Will be graded manually
-                    
-                    // Handle essay link submission
-                    if (answerDTO.getLinkAnswer() != null && !answerDTO.getLinkAnswer().trim().isEmpty()) {
-                        System.out.println("✅ Setting linkAnswer: " + answerDTO.getLinkAnswer());
-                        userAnswer.setLinkAnswer(answerDTO.getLinkAnswer());
-                    }
-                    
-                    // Handle essay file submission
-                    if (answerDTO.getFileName() != null && !answerDTO.getFileName().trim().isEmpty()) {
-                        System.out.println("🔍 Processing file submission for questionId: " + answerDTO.getQuestionId());
-                        System.out.println("🔍 FileName: " + answerDTO.getFileName());
-                        System.out.println("🔍 FilePath: " + answerDTO.getFilePath());
-                        
-                        userAnswer.setFileName(answerDTO.getFileName());
-                        System.out.println("✅ Set fileName: " + answerDTO.getFileName());
-                        
-                        // Also set filePath if provided
-                        if (answerDTO.getFilePath() != null && !answerDTO.getFilePath().trim().isEmpty()) {
-                            userAnswer.setFilePath(answerDTO.getFilePath());
-                            System.out.println("✅ Set filePath: " + answerDTO.getFilePath());
-                        } else {
-                            System.out.println("⚠️ FilePath is null or empty for file: " + answerDTO.getFileName());
-                        }
-                    }
-                }
-                
-                System.out.println("💾 About to insert UserAnswer:");
-                System.out.println("   fileName: " + userAnswer.getFileName());
-                System.out.println("   filePath: " + userAnswer.getFilePath());
-                System.out.println("   answerText: " + userAnswer.getAnswerText());
-                System.out.println("   linkAnswer: " + userAnswer.getLinkAnswer());
-                
-                userAnswerMapper.insertUserAnswer(userAnswer);
-                System.out.println("✅ UserAnswer inserted successfully");
+                resolveAnswer(userAnswer, question, answerDTO, answersById);
                 userAnswers.add(userAnswer);
             }
+
+            // Một câu lệnh INSERT nhiều dòng cho mỗi lô thay vì một INSERT cho từng câu
+            for (int from = 0; from < userAnswers.size(); from += INSERT_BATCH_SIZE) {
+                int to = Math.min(from + INSERT_BATCH_SIZE, userAnswers.size());
+                userAnswerMapper.insertBatch(userAnswers.subList(from, to));
+            }
+            System.out.println("✅ Inserted " + userAnswers.size() + " user answers for attempt " + attempt.getId());
             
             // Grade the quiz and get result
             QuizResultDTO result = quizResultService.gradeQuiz(attempt, userAnswers);
@@ -227,6 +116,9 @@ public class ExamSubmissionService {
             // Update attempt score with actual points earned (not percentage)
             attempt.setScore((int) Math.round(result.getEarnedPoints()));
             userQuizAttemptMapper.updateAttemptScore(attempt.getId(), attempt.getScore());
+
+            // Lưu kết quả đã chấm để trang kết quả không phải chấm lại
+            quizResultSnapshotService.save(result);
             
             // Update module progress when quiz is completed
             if (quiz.getModule() != null) {
@@ -234,6 +126,7 @@ public class ExamSubmissionService {
                 System.out.println("🎯 Updating test progress for user " + userId + " in module " + moduleId);
                 moduleProgressService.updateTestProgress(userId, moduleId, true);
             }
+            courseCompletionService.onProgressRecorded(userId, quiz.getCourseId());
 
             return result;
             
@@ -242,6 +135,90 @@ public class ExamSubmissionService {
         }
     }
 
+    /**
+     * Fill answer / text / link / file of a UserAnswer from the submitted DTO
+     * @param answersById đáp án của quiz đã nạp sẵn, theo answer_id
+     */
+    private void resolveAnswer(UserAnswer userAnswer, Questions question, UserAnswerDTO answerDTO,
+                               Map<Integer, Answer> answersById) {
+        if (answerDTO.getAnswerId() != null) {
+            // Multiple choice - find the selected answer by ID
+            Answer selectedAnswer = answersById.get(answerDTO.getAnswerId());
+            if (selectedAnswer != null && selectedAnswer.getQuestion() == question) {
+                userAnswer.setAnswer(selectedAnswer);
+                userAnswer.setIsCorrect(selectedAnswer.getIsCorrect());
+            } else {
+                userAnswer.setAnswerText("Invalid selection");
+                userAnswer.setIsCorrect(false);
+                System.out.println("❌ Answer " + answerDTO.getAnswerId() + " does not belong to question " + question.getQuestionId());
+            }
+        } else if (answerDTO.getSelectedIndex() != null && question.getType() == Questions.Type.MULTIPLE_CHOICE) {
+            // Handle selected index for multiple choice (from frontend), đáp án đã sắp theo order_number
+            List<Answer> questionAnswers = question.getAnswers();
+            if (answerDTO.getSelectedIndex() >= 0 && answerDTO.getSelectedIndex() < questionAnswers.size()) {
+                Answer selectedAnswer = questionAnswers.get(answerDTO.getSelectedIndex());
+                userAnswer.setAnswer(selectedAnswer);
+                userAnswer.setIsCorrect(selectedAnswer.getIsCorrect());
+            } else {
+                // Invalid index
+                userAnswer.setAnswerText("Invalid selection");
+                userAnswer.setIsCorrect(false);
+                System.out.println("❌ Invalid selectedIndex: " + answerDTO.getSelectedIndex());
+            }
+        } else if (answerDTO.getAnswerText() != null && !answerDTO.getAnswerText().trim().isEmpty()) {
+            if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
+                // Try to find answer by text match
+                Answer matchedAnswer = question.getAnswers().stream()
+                    .filter(ans -> answerDTO.getAnswerText().equals(ans.getAnswerText()))
+                    .findFirst()
+                    .orElse(null);
+
+                if (matchedAnswer != null) {
+                    userAnswer.setAnswer(matchedAnswer);
+                    userAnswer.setIsCorrect(matchedAnswer.getIsCorrect());
+                } else {
+                    // Store as text if no match found
+                    userAnswer.setAnswerText(answerDTO.getAnswerText());
+                    userAnswer.setIsCorrect(false);
+                }
+            } else {
+                // Essay or text answer
+                userAnswer.setAnswerText(answerDTO.getAnswerText());
+                userAnswer.setIsCorrect(null); // Will be graded manually
+                applyEssayAttachments(userAnswer, answerDTO);
+            }
+        }
+
+        // Handle essay questions with only linkAnswer or fileName (no answerText)
+        if (question.getType() == Questions.Type.ESSAY && (hasText(answerDTO.getLinkAnswer()) || hasText(answerDTO.getFileName()))) {
+            // Ensure answerText is set (can be empty)
+            if (userAnswer.getAnswerText() == null) {
+                userAnswer.setAnswerText(answerDTO.getAnswerText());
+            }
+            userAnswer.setIsCorrect(null); // Will be graded manually
+            applyEssayAttachments(userAnswer, answerDTO);
+        }
+    }
+
+    // Link / file nộp kèm bài tự luận
+    private void applyEssayAttachments(UserAnswer userAnswer, UserAnswerDTO answerDTO) {
+        if (hasText(answerDTO.getLinkAnswer())) {
+            userAnswer.setLinkAnswer(answerDTO.getLinkAnswer());
+        }
+        if (hasText(answerDTO.getFileName())) {
+            userAnswer.setFileName(answerDTO.getFileName());
+            if (hasText(answerDTO.getFilePath())) {
+                userAnswer.setFilePath(answerDTO.getFilePath());
+            } else {
+                System.out.println("⚠️ FilePath is null or empty for file: " + answerDTO.getFileName());
+            }
+        }
+    }
+
+    private boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
     /**
      * Check if user has already submitted a quiz
      */
@@ -351,11 +328,8 @@ public class ExamSubmissionService {
             
             System.out.println("Attempt found: " + attempt.getId());
             
-            List<UserAnswer> userAnswers = userAnswerMapper.findByAttemptId(attempt.getId());
-            System.out.println("Found " + userAnswers.size() + " user answers");
-            
-            QuizResultDTO result = quizResultService.gradeQuiz(attempt, userAnswers);
-            System.out.println("Grading completed: " + (result != null ? "Success" : "Failed"));
+            QuizResultDTO result = quizResultService.getAttemptResult(attempt);
+            System.out.println("Result loaded: " + (result != null ? "Success" : "Failed"));
             
             return result;
             
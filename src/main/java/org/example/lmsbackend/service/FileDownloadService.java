@@ -0,0 +1,81 @@
+package org.example.lmsbackend.service;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ✅ Trả file đính kèm (discussion, reply, bài essay, file câu hỏi) dạng stream, không đọc cả file vào heap
+// Spring MVC tự xử lý Range (206 / 416) cho body là Resource và If-None-Match / If-Modified-Since (304)
+@Service
+public class FileDownloadService {
+
+    // Số extension tối đa được cache, tránh map phình to vì tên file lạ
+    private static final int MAX_CACHED_CONTENT_TYPES = 1000;
+
+    // Kết quả Files.probeContentType theo extension (probe có thể phải đọc file / gọi OS)
+    private final Map<String, String> contentTypeCache = new ConcurrentHashMap<>();
+
+    /**
+     * Build a streaming download response for a local file
+     * @param inline - true: trình duyệt mở trực tiếp, false: tải về (attachment)
+     * @return 404 nếu file không tồn tại
+     */
+    public ResponseEntity<Resource> buildDownload(Path file, String filename, boolean inline) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        ContentDisposition disposition = (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                .filename(filename, StandardCharsets.UTF_8)
+                .build();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(probeContentType(file)))
+                .contentLength(length)
+                .lastModified(lastModified)
+                // File chỉ bị ghi đè khi upload lại nên size + thời gian sửa đủ để làm ETag
+                .eTag("W/\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(new FileSystemResource(file));
+    }
+
+    public String probeContentType(Path file) throws IOException {
+        String extension = extensionOf(file);
+        if (extension.isEmpty()) {
+            return orDefault(Files.probeContentType(file));
+        }
+        String cached = contentTypeCache.get(extension);
+        if (cached != null) {
+            return cached;
+        }
+        String contentType = orDefault(Files.probeContentType(file));
+        if (contentTypeCache.size() < MAX_CACHED_CONTENT_TYPES) {
+            contentTypeCache.put(extension, contentType);
+        }
+        return contentType;
+    }
+
+    private String orDefault(String contentType) {
+        return contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1).toLowerCase() : "";
+    }
+}
@@ -1,35 +1,185 @@
 package org.example.lmsbackend.service;
 
+import org.example.lmsbackend.model.StoredFile;
+import org.example.lmsbackend.repository.StoredFileRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
 @Service
 public class FileStorageService {
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
 
     /**
-     * Save file to Cloudinary
+     * Save file to the configured storage backend
      * @param file - MultipartFile to upload
      * @param subFolder - folder name (avatars, cvs, etc.)
      * @return URL của file đã upload
      */
     public String saveFile(MultipartFile file, String subFolder) {
+        return saveFile(file, subFolder, determineResourceType(file, subFolder));
+    }
+
+    /**
+     * Save file with an explicit resource type ("image", "video", "raw")
+     */
+    public String saveFile(MultipartFile file, String subFolder, String resourceType) {
+        Path tempFile = null;
         try {
-            // Determine resource type based on file type
-            String resourceType = determineResourceType(file, subFolder);
+            // Tính SHA-256 trong lúc copy ra file tạm, không đọc file hai lần
+            MessageDigest digest = sha256();
+            tempFile = createTempFile(file.getOriginalFilename());
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            return store(tempFile, contentHash, file.getOriginalFilename(), subFolder, resourceType, null);
+        } catch (Exception e) {
+            throw new RuntimeException("Lỗi khi lưu file: " + e.getMessage(), e);
+        } finally {
+            deleteTempFile(tempFile);
+        }
+    }
 
-            return cloudinaryService.uploadFile(file, subFolder, resourceType);
+    /**
+     * Save a file already on local disk (e.g. from a background upload job)
+     */
+    public String saveFile(Path localFile, String originalFilename, String subFolder, String resourceType,
+                           StorageBackend.ProgressListener progress) {
+        try {
+            return saveFile(localFile, hashFile(localFile), originalFilename, subFolder, resourceType, progress);
+        } catch (IOException e) {
+            throw new RuntimeException("Lỗi khi lưu file: " + e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Save a local file whose SHA-256 the caller already computed (see {@link #hashFile})
+     */
+    public String saveFile(Path localFile, String contentHash, String originalFilename, String subFolder,
+                           String resourceType, StorageBackend.ProgressListener progress) {
+        try {
+            return store(localFile, contentHash, originalFilename, subFolder, resourceType, progress);
         } catch (Exception e) {
             throw new RuntimeException("Lỗi khi lưu file: " + e.getMessage(), e);
         }
     }
 
     /**
-     * Determine Cloudinary resource type based on file and folder
+     * Copy multipart upload to a temp file (multipart bị xóa khi request kết thúc)
+     */
+    public Path copyToTempFile(MultipartFile file) throws IOException {
+        Path tempFile = createTempFile(file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteTempFile(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    public void deleteTempFile(Path tempFile) {
+        if (tempFile == null) return;
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            System.err.println("Failed to delete temp file " + tempFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Đường dẫn trên đĩa của file do local backend lưu, null với file trên Cloudinary / URL cũ
+     */
+    public Path resolveLocalPath(String url) {
+        return storageBackend.resolveLocalPath(url);
+    }
+
+    // ✅ Nội dung đã lưu trên backend hiện tại thì trả lại URL cũ, không upload lại
+    private String store(Path localFile, String contentHash, String originalFilename, String subFolder,
+                         String resourceType, StorageBackend.ProgressListener progress) throws IOException {
+        String backend = storageBackend.getDedupScope(subFolder);
+        Optional<StoredFile> existing = storedFileRepository
+                .findByContentHashAndResourceTypeAndBackend(contentHash, resourceType, backend);
+        if (existing.isPresent()) {
+            System.out.println("♻️ Duplicate upload, reusing stored file: " + existing.get().getUrl());
+            if (progress != null) {
+                long size = Files.size(localFile);
+                progress.onProgress(size, size);
+            }
+            return existing.get().getUrl();
+        }
+
+        String url = storageBackend.store(localFile, contentHash, originalFilename, subFolder, resourceType, progress);
+
+        StoredFile storedFile = new StoredFile();
+        storedFile.setContentHash(contentHash);
+        storedFile.setResourceType(resourceType);
+        storedFile.setBackend(backend);
+        storedFile.setUrl(url);
+        storedFile.setSizeBytes(Files.size(localFile));
+        storedFile.setOriginalFilename(originalFilename);
+        try {
+            storedFileRepository.save(storedFile);
+        } catch (DataIntegrityViolationException e) {
+            // Upload cùng nội dung chạy song song đã ghi trước: dùng bản ghi đó
+            return storedFileRepository
+                    .findByContentHashAndResourceTypeAndBackend(contentHash, resourceType, backend)
+                    .map(StoredFile::getUrl)
+                    .orElse(url);
+        }
+        return url;
+    }
+
+    /**
+     * SHA-256 (hex) of a local file
+     */
+    public String hashFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Path createTempFile(String originalFilename) throws IOException {
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf('.'))
+                : "";
+        return Files.createTempFile("upload-", extension);
+    }
+
+    /**
+     * Determine resource type based on file and folder
      */
     private String determineResourceType(MultipartFile file, String subFolder) {
         String contentType = file.getContentType();
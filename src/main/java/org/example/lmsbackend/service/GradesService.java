@@ -1,9 +1,11 @@
 package org.example.lmsbackend.service;
 
+import org.example.lmsbackend.dto.EssayGradeDTO;
 import org.example.lmsbackend.dto.GradeDTO;
 import org.example.lmsbackend.model.*;
 import org.example.lmsbackend.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -11,10 +13,15 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Service
 public class GradesService {
 
+    private static final int GRADE_BATCH_SIZE = 500;
+
     @Autowired
     private UserQuizAttemptMapper userQuizAttemptMapper;
 
@@ -30,6 +37,18 @@ public class GradesService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private QuizResultService quizResultService;
+
+    @Autowired
+    private QuizResultSnapshotService quizResultSnapshotService;
+
+    @Autowired
+    private QuizAnswerKeyCache quizAnswerKeyCache;
+
+    @Autowired
+    private CourseService courseService;
+
     /**
      * Get grades for instructor - can filter by type (MULTIPLE_CHOICE, ESSAY, ALL)
      */
@@ -37,63 +56,16 @@ public class GradesService {
         try {
             System.out.println("=== Getting instructor grades for course: " + courseId + ", type: " + type + " ===");
             
-            List<GradeDTO> grades = new ArrayList<>();
-            
-            // Get all quiz attempts for the course
-            List<UserQuizAttempt> attempts = userQuizAttemptMapper.findByCourseId(courseId);
-            System.out.println("Found " + attempts.size() + " attempts");
-            
-            for (UserQuizAttempt attempt : attempts) {
-                Quizzes quiz = attempt.getQuiz();
-                User student = attempt.getUser();
-                
-                // Skip if quiz type doesn't match filter
-                if (!type.equals("ALL")) {
-                    if (quiz.getQuizType() == null || !quiz.getQuizType().toString().equals(type)) {
-                        continue;
-                    }
-                }
-                
-                // Reload attempt to get latest score (in case it was just updated)
-                UserQuizAttempt latestAttempt = userQuizAttemptMapper.findById(attempt.getId());
-                if (latestAttempt != null) {
-                    System.out.println("Original score: " + attempt.getScore() + ", Latest score: " + latestAttempt.getScore());
-                    attempt = latestAttempt;
-                }
-                
-                GradeDTO grade = new GradeDTO();
-                grade.setAttemptId(attempt.getId());
-                grade.setUserId(student.getUserId());
-                grade.setStudentName(student.getFullName());
-                grade.setQuizId(quiz.getQuizId());
-                grade.setQuizTitle(quiz.getTitle());
-                grade.setQuizType(quiz.getQuizType() != null ? quiz.getQuizType().toString() : "UNKNOWN");
-                grade.setScore(attempt.getScore());
-                grade.setSubmittedAt(attempt.getAttemptedAt());
-                
-                // Calculate max score properly (sum of all question points)
-                List<Questions> questions = questionsMapper.findByQuizId(quiz.getQuizId());
-                int maxScore = questions.stream()
-                    .mapToInt(q -> q.getPoints() != null ? q.getPoints() : 1)
-                    .sum();
-                grade.setMaxScore(maxScore);
-                
-                // For essay questions, check if all are graded
-                if (quiz.getQuizType() == Quizzes.QuizType.ESSAY) {
-                    List<UserAnswer> answers = userAnswerMapper.findByAttemptId(attempt.getId());
-                    boolean allGraded = answers.stream()
-                        .allMatch(answer -> answer.getManualScore() != null);
-                    grade.setStatus(allGraded ? "COMPLETED" : "PENDING_GRADE");
-                    
-                    // Set userAnswerId for the first essay answer (for loading details)
-                    if (!answers.isEmpty()) {
-                        grade.setUserAnswerId(answers.get(0).getId());
-                    }
-                } else {
-                    grade.setStatus("COMPLETED");
-                }
-                
-                grades.add(grade);
+            // ✅ Một query trả về toàn bộ bảng điểm, lọc loại bài thi trong SQL
+            String quizType = (type == null || type.equals("ALL")) ? null : type;
+            List<GradeDTO> grades = userQuizAttemptMapper.findGradebookByCourseId(courseId, quizType);
+
+            // Điểm tối đa của các quiz trong bảng điểm (cache, nạp các quiz còn thiếu trong một query)
+            Map<Integer, QuizAnswerKeyCache.AnswerKey> keysByQuiz = quizAnswerKeyCache.getAll(
+                    grades.stream().map(GradeDTO::getQuizId).toList());
+            for (GradeDTO grade : grades) {
+                QuizAnswerKeyCache.AnswerKey key = keysByQuiz.get(grade.getQuizId());
+                grade.setMaxScore(key != null ? key.getTotalPoints() : 0);
             }
             
             System.out.println("Returning " + grades.size() + " grades");
@@ -118,6 +90,8 @@ public class GradesService {
             // Get all attempts by this student
             List<UserQuizAttempt> attempts = userQuizAttemptMapper.findByUserId(userId);
             System.out.println("Found " + attempts.size() + " attempts");
+            Map<Integer, QuizAnswerKeyCache.AnswerKey> keysByQuiz = quizAnswerKeyCache.getAll(
+                    attempts.stream().map(a -> a.getQuiz().getQuizId()).toList());
             
             for (UserQuizAttempt attempt : attempts) {
                 Quizzes quiz = attempt.getQuiz();
@@ -130,12 +104,9 @@ public class GradesService {
                 grade.setQuizType(quiz.getQuizType() != null ? quiz.getQuizType().toString() : "UNKNOWN");
                 grade.setSubmittedAt(attempt.getAttemptedAt());
                 
-                // Calculate scores properly (sum of all question points)
-                List<Questions> questions = questionsMapper.findByQuizId(quiz.getQuizId());
-                int maxScore = questions.stream()
-                    .mapToInt(q -> q.getPoints() != null ? q.getPoints() : 1)
-                    .sum();
-                grade.setMaxScore(maxScore);
+                // Max score = sum of all question points
+                QuizAnswerKeyCache.AnswerKey key = keysByQuiz.get(quiz.getQuizId());
+                grade.setMaxScore(key != null ? key.getTotalPoints() : 0);
                 
                 if (quiz.getQuizType() == Quizzes.QuizType.ESSAY) {
                     // For essay, calculate score based on manual grading
@@ -174,92 +145,111 @@ public class GradesService {
 
     /**
      * Grade an essay answer
+     * @param instructorId - giảng viên chấm bài, null nếu là admin
+     * @return false nếu không tìm thấy câu trả lời tự luận (không ghi gì)
+     * @throws AccessDeniedException nếu giảng viên không dạy khóa học của bài làm
+     * @throws IllegalArgumentException nếu điểm không hợp lệ
      */
     @Transactional
-    public boolean gradeEssayAnswer(Integer userAnswerId, Integer score, String feedback) {
-        try {
-            System.out.println("=== Grading essay answer: " + userAnswerId + " ===");
-            System.out.println("Score: " + score + ", Feedback: " + feedback);
-            
-            UserAnswer answer = userAnswerMapper.findById(userAnswerId);
-            if (answer == null) {
-                System.out.println("❌ User answer not found");
-                return false;
+    public boolean gradeEssayAnswer(Integer userAnswerId, Integer score, String feedback, Integer instructorId) {
+        System.out.println("=== Grading essay answer: " + userAnswerId + " ===");
+        System.out.println("Score: " + score + ", Feedback: " + feedback);
+
+        // Lỗi khi ghi điểm/tính lại điểm attempt phải ném ra để transaction rollback,
+        // không thì điểm câu trả lời được commit còn điểm attempt và snapshot vẫn cũ
+        Map<String, Object> result = gradeEssayAnswers(List.of(new EssayGradeDTO(userAnswerId, score, feedback)),
+                instructorId);
+        if ((Integer) result.get("gradedCount") == 0) {
+            System.out.println("❌ Essay answer not found");
+            return false;
+        }
+
+        // ✅ Chấm lẻ thường được xem ngay: ghi lại snapshot kết quả luôn (lỗi khi ghi thì trang kết quả tự chấm lại)
+        @SuppressWarnings("unchecked")
+        List<Integer> attemptIds = (List<Integer>) result.get("attemptIds");
+        for (Integer attemptId : attemptIds) {
+            try {
+                quizResultService.getAttemptResult(attemptId);
+            } catch (Exception e) {
+                System.err.println("⚠️ Could not refresh result snapshot for attempt " + attemptId + ": " + e.getMessage());
             }
-            
-            System.out.println("Found answer for attempt ID: " + answer.getAttempt().getId());
-            
-            // Get the attempt with full information
-            UserQuizAttempt attempt = userQuizAttemptMapper.findById(answer.getAttempt().getId());
-            if (attempt == null) {
-                System.out.println("❌ Attempt not found");
-                return false;
+        }
+
+        System.out.println("✅ Essay graded successfully");
+        return true;
+    }
+
+    /**
+     * Grade many essay answers in one transaction
+     * @param instructorId - giảng viên chấm bài, null nếu là admin (chấm được mọi khóa học)
+     * @return gradedCount, attemptIds (các attempt đã tính lại điểm), notFound (userAnswerId không tồn tại)
+     *         và notEssay (câu trả lời của câu trắc nghiệm, không được chấm tay)
+     * @throws AccessDeniedException nếu có bài làm thuộc khóa học giảng viên không dạy (không chấm câu nào)
+     */
+    @Transactional
+    public Map<String, Object> gradeEssayAnswers(List<EssayGradeDTO> grades, Integer instructorId) {
+        // userAnswerId trùng thì lấy entry cuối cùng
+        Map<Integer, EssayGradeDTO> gradesByAnswer = new LinkedHashMap<>();
+        for (EssayGradeDTO grade : grades) {
+            if (grade == null || grade.getUserAnswerId() == null || grade.getScore() == null) {
+                throw new IllegalArgumentException("userAnswerId và score là bắt buộc");
             }
-            
-            System.out.println("Found attempt with quiz ID: " + attempt.getQuiz().getQuizId());
-            
-            // Update the answer with manual score and feedback
-            answer.setManualScore(score);
-            answer.setInstructorFeedback(feedback);
-            answer.setIsCorrect(score > 0); // Consider it correct if score > 0
-            
-            userAnswerMapper.updateUserAnswer(answer);
-            System.out.println("✅ Updated answer with manualScore: " + answer.getManualScore());
-            
-            // Force a reload to verify the update was saved
-            UserAnswer verifyAnswer = userAnswerMapper.findById(userAnswerId);
-            System.out.println("✅ Verification: reloaded answer manualScore = " + 
-                (verifyAnswer != null ? verifyAnswer.getManualScore() : "null"));
-            
-            // Update the overall attempt score
-            // Reload ALL answers to get updated data
-            List<UserAnswer> allAnswers = userAnswerMapper.findByAttemptId(attempt.getId());
-            List<Questions> allQuestions = questionsMapper.findByQuizId(attempt.getQuiz().getQuizId());
-            
-            // Calculate actual score: sum of actual points earned
-            int totalActualScore = 0;
-            int totalMaxScore = 0;
-            int totalQuestions = allQuestions.size();
-            
-            System.out.println("Debug: Found " + allAnswers.size() + " answers for " + totalQuestions + " questions");
-            
-            for (UserAnswer ans : allAnswers) {
-                System.out.println("Answer ID " + ans.getId() + ": manualScore = " + ans.getManualScore());
-                
-                // Get the question's maximum points
-                Questions question = ans.getQuestion();
-                int maxPoints = (question != null && question.getPoints() != null) ? question.getPoints() : 1;
-                totalMaxScore += maxPoints;
-                
-                if (ans.getManualScore() != null) {
-                    // Cap the actual score to max points for this question
-                    int actualScore = Math.min(ans.getManualScore(), maxPoints);
-                    totalActualScore += actualScore;
-                    
-                    // Update isCorrect based on 50% threshold for individual question
-                    boolean isCorrect = actualScore >= (maxPoints * 0.5);
-                    ans.setIsCorrect(isCorrect);
-                    userAnswerMapper.updateUserAnswer(ans);
-                    
-                    System.out.println("✓ Question scored " + actualScore + "/" + maxPoints + " points (isCorrect: " + isCorrect + ")");
-                } else {
-                    System.out.println("✗ Question not graded yet (0/" + maxPoints + " points)");
+            if (grade.getScore() < 0) {
+                throw new IllegalArgumentException("Điểm không được âm (userAnswerId " + grade.getUserAnswerId() + ")");
+            }
+            gradesByAnswer.put(grade.getUserAnswerId(), grade);
+        }
+        System.out.println("=== Bulk grading " + gradesByAnswer.size() + " essay answers ===");
+
+        List<Integer> answerIds = new ArrayList<>(gradesByAnswer.keySet());
+        List<EssayGradeDTO> found = new ArrayList<>();
+        List<Integer> notEssay = new ArrayList<>();
+        Set<Integer> attemptIds = new LinkedHashSet<>();
+        Set<Integer> courseIds = new LinkedHashSet<>();
+        for (int from = 0; from < answerIds.size(); from += GRADE_BATCH_SIZE) {
+            List<Integer> chunk = answerIds.subList(from, Math.min(from + GRADE_BATCH_SIZE, answerIds.size()));
+            for (UserAnswer ref : userAnswerMapper.findAttemptRefs(chunk)) {
+                EssayGradeDTO grade = gradesByAnswer.remove(ref.getId());
+                courseIds.add(ref.getAttempt().getQuiz().getCourseId());
+                if (ref.getQuestion().getType() != Questions.Type.ESSAY) {
+                    notEssay.add(ref.getId());
+                    continue;
+                }
+                found.add(grade);
+                attemptIds.add(ref.getAttempt().getId());
+            }
+        }
+        List<Integer> notFound = new ArrayList<>(gradesByAnswer.keySet());
+
+        // ✅ Giảng viên chỉ chấm được bài của khóa học mình dạy, kiểm tra trước khi ghi câu nào
+        if (instructorId != null) {
+            for (Integer courseId : courseIds) {
+                if (courseId == null || !courseService.isInstructorOfCourse(instructorId, courseId)) {
+                    throw new AccessDeniedException("Bạn không có quyền chấm bài của khóa học " + courseId);
                 }
             }
-            
-            // Save total actual score earned (not count of correct answers)
-            System.out.println("Score calculation: " + totalActualScore + "/" + totalMaxScore + " total points");
-            
-            userQuizAttemptMapper.updateAttemptScore(attempt.getId(), totalActualScore);
-            
-            System.out.println("✅ Essay graded successfully");
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("Error grading essay answer: " + e.getMessage());
-            e.printStackTrace();
-            return false;
         }
+
+        // Ghi điểm theo lô, sau đó tính lại điểm của mỗi attempt liên quan đúng một lần
+        for (int from = 0; from < found.size(); from += GRADE_BATCH_SIZE) {
+            userAnswerMapper.applyEssayGrades(found.subList(from, Math.min(from + GRADE_BATCH_SIZE, found.size())));
+        }
+        List<Integer> affectedAttempts = new ArrayList<>(attemptIds);
+        for (int from = 0; from < affectedAttempts.size(); from += GRADE_BATCH_SIZE) {
+            List<Integer> chunk = affectedAttempts.subList(from, Math.min(from + GRADE_BATCH_SIZE, affectedAttempts.size()));
+            userQuizAttemptMapper.recomputeManualScores(chunk);
+            quizResultSnapshotService.invalidateAll(chunk);
+        }
+        System.out.println("✅ Graded " + found.size() + " answers across " + affectedAttempts.size() + " attempts"
+                + (notFound.isEmpty() ? "" : ", not found: " + notFound)
+                + (notEssay.isEmpty() ? "" : ", not essay: " + notEssay));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("gradedCount", found.size());
+        result.put("attemptIds", affectedAttempts);
+        result.put("notFound", notFound);
+        result.put("notEssay", notEssay);
+        return result;
     }
 
     /**
@@ -316,20 +306,15 @@ public class GradesService {
             // Get quiz details
             Quizzes quiz = attempt.getQuiz();
             
-            // Get all questions for this quiz
+            // Get all questions for this quiz (trả về cùng bài làm để hiển thị)
             List<Questions> questions = questionsMapper.findByQuizId(quiz.getQuizId());
             
-            // Calculate total score and status
-            int totalQuestions = questions.size();
+            // Calculate total score and status, điểm tối đa / số câu lấy từ cache
+            QuizAnswerKeyCache.AnswerKey key = quizAnswerKeyCache.get(quiz.getQuizId());
+            int totalQuestions = key.size();
             int gradedCount = 0;
             int totalScore = 0;
-            int maxScore = 0;
-            
-            // Calculate max possible score from questions
-            for (Questions question : questions) {
-                int questionPoints = (question.getPoints() != null) ? question.getPoints() : 1;
-                maxScore += questionPoints;
-            }
+            int maxScore = key.getTotalPoints();
             
             for (UserAnswer answer : answers) {
                 if (answer.getManualScore() != null) {
@@ -0,0 +1,113 @@
+package org.example.lmsbackend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+
+// ✅ Lưu file trên ổ đĩa local (chạy offline / load test không cần Cloudinary)
+// Đường dẫn: {thư mục}/{2 ký tự đầu của hash}/{hash}{.ext}
+// - Ảnh avatar / khóa học, tài liệu module, CV: app.storage.local.dir, phục vụ công khai qua /uploads/store/**
+// - Còn lại (bài essay, file câu hỏi, đính kèm discussion, video): app.storage.local.private-dir,
+//   nằm ngoài thư mục uploads và chỉ tải được qua /api/files/private/** (cần đăng nhập)
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String URL_PREFIX = "/uploads/store/";
+    public static final String PRIVATE_URL_PREFIX = "/api/files/private/";
+
+    // Folder trước đây đã được permitAll qua /uploads/** và /cvs/**
+    private static final Set<String> PUBLIC_FOLDERS = Set.of("avatars", "imagescourse", "modules", "cvs");
+
+    private final Path rootDir;
+    private final Path privateDir;
+
+    public LocalStorageBackend(@Value("${app.storage.local.dir:uploads/store}") String rootDir,
+                               @Value("${app.storage.local.private-dir:storage/private}") String privateDir) {
+        this.rootDir = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.privateDir = Paths.get(privateDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    // Cùng nội dung nhưng khác quyền truy cập thì lưu thành 2 file, không trả URL public cho file private
+    @Override
+    public String getDedupScope(String folder) {
+        return isPublic(folder) ? "local" : "local-private";
+    }
+
+    @Override
+    public String store(Path localFile, String contentHash, String originalFilename, String folder,
+                        String resourceType, ProgressListener progress) throws IOException {
+        boolean isPublic = isPublic(folder);
+        String relativePath = contentHash.substring(0, 2) + "/" + contentHash + extensionOf(originalFilename);
+        Path target = (isPublic ? rootDir : privateDir).resolve(relativePath);
+        long size = Files.size(localFile);
+
+        if (!Files.exists(target)) {
+            Files.createDirectories(target.getParent());
+            // Copy ra file tạm cùng thư mục rồi move để request khác không đọc được file dở dang
+            Path partial = Files.createTempFile(target.getParent(), contentHash, ".part");
+            try {
+                Files.copy(localFile, partial, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(partial);
+                if (!Files.exists(target)) {
+                    throw e;
+                }
+            }
+        }
+
+        if (progress != null) {
+            progress.onProgress(size, size);
+        }
+        return (isPublic ? URL_PREFIX : PRIVATE_URL_PREFIX) + relativePath;
+    }
+
+    @Override
+    public Path resolveLocalPath(String url) {
+        if (url == null) {
+            return null;
+        }
+        if (url.startsWith(URL_PREFIX)) {
+            return resolveUnder(rootDir, url.substring(URL_PREFIX.length()));
+        }
+        if (url.startsWith(PRIVATE_URL_PREFIX)) {
+            return resolveUnder(privateDir, url.substring(PRIVATE_URL_PREFIX.length()));
+        }
+        return null;
+    }
+
+    public Path getRootDir() {
+        return rootDir;
+    }
+
+    private Path resolveUnder(Path dir, String relativePath) {
+        Path path = dir.resolve(relativePath).normalize();
+        return path.startsWith(dir) ? path : null;
+    }
+
+    private boolean isPublic(String folder) {
+        return folder != null && PUBLIC_FOLDERS.contains(folder);
+    }
+
+    private String extensionOf(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        String extension = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase();
+        // Chỉ giữ extension dạng .abc để không đưa ký tự lạ vào đường dẫn
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.lmsbackend.service;
+
+// Phát ra khi tiến độ của user trong một module thay đổi (xem content, video vượt mốc 90%, làm bài test)
+// courseId != null: tóm tắt hoàn thành khóa học (course_completion) cũng cần tính lại
+public class ModuleProgressChangedEvent {
+    private final Integer userId;
+    private final Integer moduleId;
+    private final Integer courseId;
+    private final String reason;
+
+    public ModuleProgressChangedEvent(Integer userId, Integer moduleId, Integer courseId, String reason) {
+        this.userId = userId;
+        this.moduleId = moduleId;
+        this.courseId = courseId;
+        this.reason = reason;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public Integer getModuleId() {
+        return moduleId;
+    }
+
+    public Integer getCourseId() {
+        return courseId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
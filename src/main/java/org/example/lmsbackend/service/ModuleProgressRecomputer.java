@@ -0,0 +1,119 @@
+package org.example.lmsbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.lmsbackend.repository.ModuleProgressMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// ✅ Tính lại module_progress bất đồng bộ từ ModuleProgressChangedEvent.
+// Các event cùng (user, module) trong app.progress.recompute.debounce-ms được gộp thành một lần tính.
+@Service
+public class ModuleProgressRecomputer {
+
+    private final Map<PendingKey, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+
+    @Autowired
+    private ModuleProgressMapper moduleProgressMapper;
+
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
+    @Value("${app.progress.recompute.debounce-ms:1000}")
+    private long debounceMs;
+
+    private record PendingKey(Integer userId, Integer moduleId) {}
+
+    private static final class Pending {
+        // courseId của event gần nhất yêu cầu tính lại course_completion, null nếu không có
+        volatile Integer courseId;
+    }
+
+    public ModuleProgressRecomputer(@Value("${app.progress.recompute.pool-size:2}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "progress-recompute-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    // Chạy sau khi transaction ghi tiến độ commit (hoặc ngay nếu không có transaction)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProgressChanged(ModuleProgressChangedEvent event) {
+        if (event.getUserId() == null || event.getModuleId() == null) {
+            return;
+        }
+        PendingKey key = new PendingKey(event.getUserId(), event.getModuleId());
+        // Gộp trong compute để không xen giữa với pending.remove của runPending (mất courseId)
+        boolean[] created = new boolean[1];
+        pending.compute(key, (k, existing) -> {
+            Pending target = existing;
+            if (target == null) {
+                target = new Pending();
+                created[0] = true;
+            }
+            if (event.getCourseId() != null) {
+                target.courseId = event.getCourseId();
+            }
+            return target;
+        });
+        if (!created[0]) {
+            return; // Đã có lần tính đang chờ, gộp vào
+        }
+
+        try {
+            executor.schedule(() -> runPending(key), debounceMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Đang tắt server: tính luôn trên thread hiện tại
+            runPending(key);
+        }
+    }
+
+    private void runPending(PendingKey key) {
+        // Bỏ khỏi pending trước khi tính: event đến trong lúc tính sẽ lên lịch lần tính mới
+        Pending entry = pending.remove(key);
+        if (entry == null) {
+            return;
+        }
+        recompute(key.userId(), key.moduleId());
+        if (entry.courseId != null) {
+            courseCompletionService.onProgressRecorded(key.userId(), entry.courseId);
+        }
+    }
+
+    /**
+     * Recompute content / video / test / module flags of a user in a module (đồng bộ)
+     */
+    public void recompute(Integer userId, Integer moduleId) {
+        try {
+            moduleProgressMapper.recomputeFlags(userId, moduleId);
+            System.out.println("✅ Module progress recomputed for userId " + userId + ", moduleId " + moduleId);
+        } catch (Exception e) {
+            System.err.println("❌ Error updating module progress: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Tính nốt các lần đang chờ trước khi tắt để không mất cập nhật
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        List<PendingKey> keys = new ArrayList<>(pending.keySet());
+        for (PendingKey key : keys) {
+            runPending(key);
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package org.example.lmsbackend.service;
 
+import org.example.lmsbackend.dto.ContentViewStateDTO;
+import org.example.lmsbackend.dto.VideoWatchDTO;
 import org.example.lmsbackend.model.*;
 import org.example.lmsbackend.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -20,17 +22,20 @@ public class ModuleProgressService {
     @Autowired
     private ContentProgressRepository contentProgressRepository;
 
+    @Autowired
+    private ContentProgressMapper contentProgressMapper;
+
     @Autowired
     private VideoProgressRepository videoProgressRepository;
 
     @Autowired
-    private ContentRepository contentRepository;
+    private UserQuizAttemptMapper userQuizAttemptMapper;
 
     @Autowired
-    private VideoRepository videoRepository;
+    private VideoWatchBuffer videoWatchBuffer;
 
     @Autowired
-    private UserQuizAttemptMapper userQuizAttemptMapper;
+    private ApplicationEventPublisher eventPublisher;
 
     public ModuleProgress getOrCreateProgress(Integer userId, Integer moduleId) {
         Optional<ModuleProgress> existingProgress = moduleProgressMapper.findByUserAndModule(userId, moduleId);
@@ -39,39 +44,26 @@ public class ModuleProgressService {
             return existingProgress.get();
         }
         
-        // Tạo progress mới
-        ModuleProgress newProgress = new ModuleProgress();
-        User user = new User();
-        user.setUserId(userId);
-        newProgress.setUser(user);
-        
-        Modules module = new Modules();
-        module.setId(moduleId);
-        newProgress.setModule(module);
-        
-        moduleProgressMapper.insert(newProgress);
-        return newProgress;
+        // Tạo progress mới (upsert: request song song không tạo dòng trùng)
+        moduleProgressMapper.insertIfMissing(userId, moduleId);
+        return moduleProgressMapper.findByUserAndModule(userId, moduleId)
+                .orElseThrow(() -> new RuntimeException("Failed to create module progress"));
     }
 
+    // ✅ Mỗi lần ghi cờ là một câu lệnh upsert
     public void updateContentProgress(Integer userId, Integer moduleId, boolean completed) {
-        ModuleProgress progress = getOrCreateProgress(userId, moduleId);
-        progress.setContentCompleted(completed);
-        moduleProgressMapper.update(progress);
+        moduleProgressMapper.upsertFlags(userId, moduleId, completed, null, null);
     }
 
     public void updateVideoProgress(Integer userId, Integer moduleId, boolean completed) {
-        ModuleProgress progress = getOrCreateProgress(userId, moduleId);
-        progress.setVideoCompleted(completed);
-        moduleProgressMapper.update(progress);
+        moduleProgressMapper.upsertFlags(userId, moduleId, null, completed, null);
     }
 
     public void updateTestProgress(Integer userId, Integer moduleId, boolean completed) {
-        ModuleProgress progress = getOrCreateProgress(userId, moduleId);
-        progress.setTestCompleted(completed);
-        moduleProgressMapper.update(progress);
+        moduleProgressMapper.upsertFlags(userId, moduleId, null, null, completed);
 
-        // Update overall module progress
-        updateModuleProgressFromContent(userId, moduleId);
+        // Update overall module progress (bất đồng bộ)
+        eventPublisher.publishEvent(new ModuleProgressChangedEvent(userId, moduleId, null, "test progress"));
     }
 
     public boolean isTestUnlocked(Integer userId, Integer moduleId) {
@@ -107,39 +99,18 @@ public class ModuleProgressService {
 
     // Individual Content Progress Methods
     public void markContentAsViewed(Integer userId, Integer contentId) {
-        Optional<ContentProgress> existingProgress = contentProgressRepository.findByUserIdAndContentId(userId, contentId);
-
-        ContentProgress progress;
-        if (existingProgress.isPresent()) {
-            progress = existingProgress.get();
-            progress.setStatus("completed");
-            progress.setCompletedAt(java.time.Instant.now());
-            contentProgressRepository.save(progress);
-        } else {
-            // Create new progress
-            progress = new ContentProgress();
-
-            User user = new User();
-            user.setUserId(userId);
-            progress.setUser(user);
-
-            Content content = contentRepository.findById(contentId).orElse(null);
-            if (content != null) {
-                progress.setContent(content);
-                progress.setStatus("completed");
-                progress.setAccessedAt(java.time.Instant.now());
-                progress.setCompletedAt(java.time.Instant.now());
-                contentProgressRepository.save(progress);
-
-                // Update module progress after content completion
-                updateModuleProgressFromContent(userId, content.getModule().getId());
-            }
+        ContentViewStateDTO state = contentProgressMapper.findViewState(userId, contentId);
+        if (state == null) {
+            return; // Content không tồn tại
         }
 
-        // If content exists and we have progress, update module progress
-        if (progress != null && progress.getContent() != null) {
-            updateModuleProgressFromContent(userId, progress.getContent().getModule().getId());
-        }
+        contentProgressMapper.upsertCompleted(userId, contentId, java.time.Instant.now());
+
+        // Update module progress (bất đồng bộ, một lần)
+        // Only a first-time completion changes the course completion summary
+        boolean newlyCompleted = !Boolean.TRUE.equals(state.getCompleted());
+        eventPublisher.publishEvent(new ModuleProgressChangedEvent(userId, state.getModuleId(),
+                newlyCompleted ? state.getCourseId() : null, "content " + contentId + " viewed"));
     }
 
     public Map<String, Object> getContentProgress(Integer userId, Integer contentId) {
@@ -164,48 +135,37 @@ public class ModuleProgressService {
     }
 
     // Individual Video Progress Methods
+    // ✅ Heartbeat của player chỉ cập nhật VideoWatchBuffer (ghi xuống DB theo lô);
+    // tiến độ module / khóa học chỉ tính lại khi video vượt hoặc rớt khỏi mốc 90%
     public void updateVideoWatchProgress(Integer userId, Integer videoId, Double watchedDuration,
                                        Double totalDuration, Double watchedPercentage, Boolean completed) {
-        Optional<VideoProgress> existingProgress = videoProgressRepository.findByUserIdAndVideoId(userId, videoId);
+        VideoWatchBuffer.ThresholdCrossing crossing = videoWatchBuffer.record(userId, videoId,
+                watchedDuration.intValue(), totalDuration.intValue());
 
-        VideoProgress progress;
-        Video video = null;
-
-        if (existingProgress.isPresent()) {
-            progress = existingProgress.get();
-            progress.setWatchedDuration(watchedDuration.intValue());
-            progress.setTotalDuration(totalDuration.intValue());
-            progress.setLastWatchedAt(LocalDateTime.now());
-            videoProgressRepository.save(progress);
-            video = progress.getVideo();
-        } else {
-            // Create new progress
-            progress = new VideoProgress();
-
-            User user = new User();
-            user.setUserId(userId);
-            progress.setUser(user);
-
-            video = videoRepository.findById(videoId.longValue()).orElse(null);
-            if (video != null) {
-                progress.setVideo(video);
-                progress.setWatchedDuration(watchedDuration.intValue());
-                progress.setTotalDuration(totalDuration.intValue());
-                progress.setLastWatchedAt(LocalDateTime.now());
-                videoProgressRepository.save(progress);
-            }
-        }
-
-        // Update module progress if video belongs to a module
-        if (video != null && video.getModule() != null) {
-            updateModuleProgressFromContent(userId, video.getModule().getId());
+        if (crossing != null && crossing.moduleId() != null) {
+            eventPublisher.publishEvent(new ModuleProgressChangedEvent(userId, crossing.moduleId(),
+                    crossing.courseId(), "video " + videoId + " watched"));
         }
     }
 
     public Map<String, Object> getVideoProgress(Integer userId, Integer videoId) {
-        Optional<VideoProgress> progress = videoProgressRepository.findByUserIdAndVideoId(userId, videoId);
         Map<String, Object> result = new HashMap<>();
 
+        // Vị trí mới nhất có thể còn nằm trong buffer, chưa được ghi xuống DB
+        VideoWatchDTO buffered = videoWatchBuffer.getBuffered(userId, videoId);
+        if (buffered != null) {
+            double percentage = buffered.getTotalDuration() > 0 ?
+                (double) buffered.getWatchedDuration() / buffered.getTotalDuration() * 100 : 0;
+
+            result.put("watchedDuration", buffered.getWatchedDuration());
+            result.put("totalDuration", buffered.getTotalDuration());
+            result.put("watchedPercentage", percentage);
+            result.put("completed", percentage >= 90); // 90% threshold
+            result.put("lastWatchedAt", buffered.getLastWatchedAt());
+            return result;
+        }
+
+        Optional<VideoProgress> progress = videoProgressRepository.findByUserIdAndVideoId(userId, videoId);
         if (progress.isPresent()) {
             VideoProgress vp = progress.get();
             double percentage = vp.getTotalDuration() > 0 ?
@@ -239,42 +199,6 @@ public class ModuleProgressService {
         }
     }
 
-    // Automatically update module progress based on individual content/video/test completion
-    public void updateModuleProgressFromContent(Integer userId, Integer moduleId) {
-        try {
-            System.out.println("🔄 Updating module progress for userId: " + userId + ", moduleId: " + moduleId);
-
-            ModuleProgress progress = getOrCreateProgress(userId, moduleId);
-
-            // Check actual content completion status
-            boolean contentCompleted = hasCompletedContent(userId, moduleId);
-            boolean videoCompleted = hasCompletedVideos(userId, moduleId);
-            boolean testCompleted = hasPassedQuizzes(userId, moduleId);
-
-            // Update progress flags
-            progress.setContentCompleted(contentCompleted);
-            progress.setVideoCompleted(videoCompleted);
-            progress.setTestCompleted(testCompleted);
-
-            // Determine overall module completion
-            boolean allCompleted = contentCompleted && videoCompleted && testCompleted;
-            progress.setModuleCompleted(allCompleted);
-
-            if (allCompleted && progress.getCompletedAt() == null) {
-                progress.setCompletedAt(LocalDateTime.now());
-            }
-
-            // Save updated progress
-            moduleProgressMapper.update(progress);
-
-            System.out.println("✅ Module progress updated: " + contentCompleted + "/" + videoCompleted + "/" + testCompleted);
-
-        } catch (Exception e) {
-            System.err.println("❌ Error updating module progress: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
     // Check if user has completed at least one content in the module
     public boolean hasCompletedContent(Integer userId, Integer moduleId) {
         // Get all content progress for this user and module
@@ -333,17 +257,4 @@ public class ModuleProgressService {
             return false;
         }
     }
-
-    // Check if user has passed at least one quiz in the module
-    private boolean hasPassedQuizzes(Integer userId, Integer moduleId) {
-        try {
-            // For now, use testCompleted flag from module progress as fallback
-            // TODO: Implement proper quiz completion checking
-            ModuleProgress progress = getOrCreateProgress(userId, moduleId);
-            return progress.getTestCompleted() != null && progress.getTestCompleted();
-        } catch (Exception e) {
-            System.err.println("❌ Error checking quiz completion: " + e.getMessage());
-            return false;
-        }
-    }
 }
@@ -6,14 +6,10 @@ import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.model.Modules;
 import org.example.lmsbackend.model.User;
 import org.example.lmsbackend.model.Video;
-import org.example.lmsbackend.model.Quizzes;
 import org.example.lmsbackend.repository.CourseRepository;
 import org.example.lmsbackend.repository.ModulesRepository;
 import org.example.lmsbackend.repository.UserMapper;
 import org.example.lmsbackend.repository.VideoMapper;
-import org.example.lmsbackend.repository.ContentRepository;
-import org.example.lmsbackend.repository.VideoRepository;
-import org.example.lmsbackend.repository.QuizzesRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.util.List;
@@ -26,10 +22,7 @@ public class ModulesService {
     @Autowired private UserMapper userMapper;
     @Autowired private VideoMapper videoMapper;
     @Autowired private QuizzesService quizzesService;
-    @Autowired private ContentRepository contentRepository;
-    @Autowired private VideoRepository videoRepository;
-    @Autowired private QuizzesRepository quizzesRepository;
-    @Autowired private ModuleProgressService moduleProgressService;
+    @Autowired private CourseCompletionService courseCompletionService;
 
     public List<Modules> getModulesByCourseId(int courseId) {
         return modulesRepository.findByCourse_CourseIdOrderByOrderNumber(courseId);
@@ -129,6 +122,7 @@ public class ModulesService {
                           updatedVideoCount + " videos, " + updatedQuizCount + " quizzes");
 
         Modules savedModule = modulesRepository.save(module); // cascade sẽ lưu cả content nếu có @OneToMany(cascade = ...)
+        courseCompletionService.onCourseStructureChanged(module.getCourse().getCourseId());
         
         System.out.println("✅ Module and all content/video/quiz status updated successfully");
         return savedModule;
@@ -170,13 +164,19 @@ public class ModulesService {
             System.out.println("Updated " + updatedContentCount + " content items to match module status");
         }
         
-        return modulesRepository.save(module);
+        Modules savedModule = modulesRepository.save(module);
+        if (statusChanged) {
+            courseCompletionService.onCourseStructureChanged(module.getCourse().getCourseId());
+        }
+        return savedModule;
     }
 
     // ✅ Xóa module
     public void deleteModule(int moduleId) {
         Modules module = getModuleById(moduleId);
+        Integer courseId = module.getCourse().getCourseId();
         modulesRepository.delete(module);
+        courseCompletionService.onCourseStructureChanged(courseId);
     }
 
     public void ensureInstructorOwnsCourse(int courseId, String username) {
@@ -214,108 +214,10 @@ public class ModulesService {
     // ✅ Tính % hoàn thành khóa học cho user
     public CourseCompletionDTO calculateCourseCompletion(Integer courseId, Integer userId) {
         try {
-            // Get course info
-            Course course = courseRepository.findById(courseId)
-                    .orElseThrow(() -> new RuntimeException("Course not found"));
-
-            CourseCompletionDTO dto = new CourseCompletionDTO(courseId, course.getTitle());
-
-            // Get all published modules in course
-            List<Modules> publishedModules = modulesRepository.findByCourse_CourseIdAndPublishedTrueOrderByOrderNumber(courseId);
-            dto.setTotalModules(publishedModules.size());
-
-            int totalItems = 0;
-            int completedItems = 0;
-            int totalContents = 0, completedContents = 0;
-            int totalVideos = 0, completedVideos = 0;
-            int totalQuizzes = 0, completedQuizzes = 0;
-            int completedModules = 0;
-
-            // Loop through each module and calculate completion
-            for (Modules module : publishedModules) {
-                boolean moduleCompleted = true;
-
-                // Count content items
-                List<Content> moduleContents = contentRepository.findByModuleIdAndPublishedTrueOrderByOrderNumber(module.getId());
-                int moduleContentTotal = moduleContents.size();
-                int moduleContentCompleted = 0;
-
-                for (Content content : moduleContents) {
-                    if (moduleProgressService.hasCompletedSpecificContent(userId, content.getId())) {
-                        moduleContentCompleted++;
-                    }
-                }
-
-                totalContents += moduleContentTotal;
-                completedContents += moduleContentCompleted;
-
-                if (moduleContentTotal > 0 && moduleContentCompleted < moduleContentTotal) {
-                    moduleCompleted = false;
-                }
-
-                // Count video items
-                List<org.example.lmsbackend.model.Video> moduleVideos = videoRepository.findByModuleIdAndPublished(module.getId());
-                int moduleVideoTotal = moduleVideos.size();
-                int moduleVideoCompleted = 0;
-
-                for (org.example.lmsbackend.model.Video video : moduleVideos) {
-                    if (moduleProgressService.hasCompletedSpecificVideo(userId, video.getVideoId().intValue())) {
-                        moduleVideoCompleted++;
-                    }
-                }
-
-                totalVideos += moduleVideoTotal;
-                completedVideos += moduleVideoCompleted;
-
-                if (moduleVideoTotal > 0 && moduleVideoCompleted < moduleVideoTotal) {
-                    moduleCompleted = false;
-                }
-
-                // Count quiz items
-                List<Quizzes> moduleQuizzes = quizzesRepository.findByModuleIdAndPublishTrue(module.getId());
-                int moduleQuizTotal = moduleQuizzes.size();
-                int moduleQuizCompleted = 0;
-
-                for (Quizzes quiz : moduleQuizzes) {
-                    if (moduleProgressService.hasCompletedSpecificQuiz(userId, quiz.getQuizId())) {
-                        moduleQuizCompleted++;
-                    }
-                }
-
-                totalQuizzes += moduleQuizTotal;
-                completedQuizzes += moduleQuizCompleted;
-
-                if (moduleQuizTotal > 0 && moduleQuizCompleted < moduleQuizTotal) {
-                    moduleCompleted = false;
-                }
-
-                // If all items in module are completed
-                if (moduleCompleted) {
-                    completedModules++;
-                }
-            }
-
-            // Calculate totals
-            totalItems = totalContents + totalVideos + totalQuizzes;
-            completedItems = completedContents + completedVideos + completedQuizzes;
-
-            // Set results
-            dto.setCompletedModules(completedModules);
-            dto.setTotalItems(totalItems);
-            dto.setCompletedItems(completedItems);
-            dto.setTotalContents(totalContents);
-            dto.setCompletedContents(completedContents);
-            dto.setTotalVideos(totalVideos);
-            dto.setCompletedVideos(completedVideos);
-            dto.setTotalQuizzes(totalQuizzes);
-            dto.setCompletedQuizzes(completedQuizzes);
-
-            // Calculate completion percentage
-            double completionPercentage = totalItems > 0 ? (double) completedItems * 100.0 / totalItems : 0.0;
-            dto.setCompletionPercentage(completionPercentage);
+            CourseCompletionDTO dto = courseCompletionService.getCourseCompletion(courseId, userId);
 
             System.out.println("📊 Course " + courseId + " completion for user " + userId + ": " +
-                String.format("%.1f", completionPercentage) + "% (" + completedItems + "/" + totalItems + ")");
+                String.format("%.1f", dto.getCompletionPercentage()) + "% (" + dto.getCompletedItems() + "/" + dto.getTotalItems() + ")");
 
             return dto;
         } catch (Exception e) {
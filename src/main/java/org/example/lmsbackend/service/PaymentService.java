@@ -1,6 +1,7 @@
 package org.example.lmsbackend.service;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.dto.PaymentDTO;
 import org.example.lmsbackend.dto.PaymentRequest;
 import org.example.lmsbackend.dto.PaymentResponse;
@@ -9,6 +10,7 @@ import org.example.lmsbackend.model.Payment;
 import org.example.lmsbackend.model.User;
 import org.example.lmsbackend.repository.PaymentMapper;
 import org.example.lmsbackend.repository.UserRepository;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -180,6 +182,13 @@ public class PaymentService {
         return paymentMapper.getAllPayments();
     }
 
+    // Phân trang keyset theo payment_id (mới nhất trước)
+    public PageResponse<PaymentDTO> getPaymentsPage(String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<PaymentDTO> rows = paymentMapper.getPaymentsPage(PageCursor.decode(cursor), pageSize + 1);
+        return PageResponse.of(rows, pageSize, PaymentDTO::getPaymentId);
+    }
+
     /**
      * Lấy danh sách thanh toán của khóa học (cho instructor/admin)
      */
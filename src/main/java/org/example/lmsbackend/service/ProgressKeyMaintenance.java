@@ -0,0 +1,38 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.repository.ProgressMaintenanceMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+// ✅ Các bảng tiến độ dùng upsert (INSERT ... ON DUPLICATE KEY UPDATE) nên cần unique key (user_id, ...).
+// Hibernate ddl-auto không thêm được key khi bảng đã có dòng trùng từ trước, nên lúc khởi động
+// gộp + xóa dòng trùng rồi tự thêm key còn thiếu.
+@Service
+public class ProgressKeyMaintenance {
+
+    @Autowired
+    private ProgressMaintenanceMapper progressMaintenanceMapper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureUniqueKeys() {
+        ensureUniqueKey("module_progress", "module_id", "uk_module_progress_user_module", progressMaintenanceMapper::mergeDuplicateModuleProgress);
+        ensureUniqueKey("content_progress", "content_id", "uk_content_progress_user_content", progressMaintenanceMapper::mergeDuplicateContentProgress);
+        ensureUniqueKey("video_progress", "video_id", "uk_video_progress_user_video", progressMaintenanceMapper::mergeDuplicateVideoProgress);
+    }
+
+    private void ensureUniqueKey(String table, String column, String index, Runnable mergeDuplicates) {
+        try {
+            if (progressMaintenanceMapper.countIndex(table, index) > 0) {
+                return;
+            }
+            mergeDuplicates.run();
+            int deleted = progressMaintenanceMapper.deleteDuplicates(table, column);
+            progressMaintenanceMapper.addUniqueKey(table, index, column);
+            System.out.println("✅ Added unique key " + index + " on " + table + " (removed " + deleted + " duplicate rows)");
+        } catch (Exception e) {
+            System.err.println("❌ Error adding unique key " + index + " on " + table + ": " + e.getMessage());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.example.lmsbackend.dto.QuizUpdateDTO;
 import org.example.lmsbackend.repository.QuestionsMapper;
 import org.example.lmsbackend.repository.AnswerMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +25,9 @@ public class QuestionsService {
     @Autowired
     private AnswerMapper answerMapper;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // Tạo mới câu hỏi với answers và trả về DTO với ID
     @Transactional
     public QuestionsDTO createQuestionWithReturn(QuestionsDTO dto) {
@@ -65,6 +69,8 @@ public class QuestionsService {
                 }
             }
 
+            eventPublisher.publishEvent(new QuizQuestionsChangedEvent(dto.getQuizId(), "question " + question.getQuestionId() + " created"));
+
             // Convert to DTO and return with ID
             return convertToDTO(question);
         } catch (Exception e) {
@@ -125,6 +131,7 @@ public class QuestionsService {
                 answerMapper.deleteByQuestionId(questionId);
             }
 
+            publishQuestionsChanged(existingQuestion, "question " + questionId + " updated");
             return true;
         } catch (Exception e) {
             System.err.println("Error updating question: " + e.getMessage());
@@ -146,7 +153,8 @@ public class QuestionsService {
             
             // Xóa câu hỏi
             questionsMapper.deleteQuestion(questionId);
-            
+
+            publishQuestionsChanged(existingQuestion, "question " + questionId + " deleted");
             return true;
         } catch (Exception e) {
             System.err.println("Error deleting question: " + e.getMessage());
@@ -212,6 +220,12 @@ public class QuestionsService {
         }
     }
 
+    private void publishQuestionsChanged(Questions question, String reason) {
+        if (question.getQuiz() != null) {
+            eventPublisher.publishEvent(new QuizQuestionsChangedEvent(question.getQuiz().getQuizId(), reason));
+        }
+    }
+
     // Convert Questions entity to DTO với answers
     private QuestionsDTO convertToDTO(Questions question) {
         QuestionsDTO dto = new QuestionsDTO();
@@ -0,0 +1,257 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.model.Answer;
+import org.example.lmsbackend.model.Questions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ✅ Đáp án của mỗi quiz (điểm, id / text đáp án đúng) dựng sẵn thành mảng bất biến để chấm bài trong bộ nhớ,
+// kèm điểm tối đa / số câu hỏi dùng cho bảng điểm.
+// Mỗi quiz có version riêng, tăng khi có QuizQuestionsChangedEvent; key có version cũ sẽ được nạp lại.
+@Service
+public class QuizAnswerKeyCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    // Câu hỏi chưa nhập điểm được tính 1 điểm (giống chấm essay và recomputeManualScores)
+    private static final int DEFAULT_POINTS = 1;
+
+    private final Map<Integer, AnswerKey> keys = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private QuizAnswerKeyLoader quizAnswerKeyLoader;
+
+    public AnswerKey get(int quizId) {
+        return getAll(List.of(quizId)).get(quizId);
+    }
+
+    /**
+     * Answer keys of many quizzes, các quiz chưa có trong cache được nạp cùng lúc
+     * (quiz không tồn tại / chưa có câu hỏi trả về key rỗng)
+     */
+    public Map<Integer, AnswerKey> getAll(Collection<Integer> quizIds) {
+        Map<Integer, AnswerKey> result = new HashMap<>();
+        Map<Integer, Long> missing = new HashMap<>();
+        for (Integer quizId : new LinkedHashSet<>(quizIds)) {
+            if (quizId == null) {
+                continue;
+            }
+            // Đọc version trước khi nạp: invalidate xảy ra trong lúc nạp thì key mang version cũ và sẽ bị nạp lại
+            long version = versions.getOrDefault(quizId, 0L);
+            AnswerKey cached = keys.get(quizId);
+            if (cached != null && cached.version == version) {
+                result.put(quizId, cached);
+            } else {
+                missing.put(quizId, version);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Integer, AnswerKey> loaded = load(missing);
+        if (keys.size() + loaded.size() > MAX_ENTRIES) {
+            keys.clear();
+        }
+        keys.putAll(loaded);
+        result.putAll(loaded);
+        return result;
+    }
+
+    // Điểm tối đa của quiz (tổng điểm các câu hỏi)
+    public int getMaxScore(Integer quizId) {
+        return quizId != null ? get(quizId).getTotalPoints() : 0;
+    }
+
+    // Chạy sau khi transaction sửa câu hỏi commit, tránh nạp lại dữ liệu cũ trước khi commit
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onQuestionsChanged(QuizQuestionsChangedEvent event) {
+        if (event.getQuizId() != null) {
+            invalidate(event.getQuizId());
+            System.out.println("🔄 Answer key invalidated for quiz " + event.getQuizId() + " (" + event.getReason() + ")");
+        }
+    }
+
+    public void invalidate(int quizId) {
+        versions.merge(quizId, 1L, Long::sum);
+        keys.remove(quizId);
+    }
+
+    private Map<Integer, AnswerKey> load(Map<Integer, Long> quizVersions) {
+        QuizAnswerKeyLoader.Rows rows = quizAnswerKeyLoader.load(new ArrayList<>(quizVersions.keySet()));
+
+        Map<Integer, List<Questions>> questionsByQuiz = new HashMap<>();
+        Map<Integer, Integer> quizByQuestion = new HashMap<>();
+        for (Questions question : rows.questions()) {
+            Integer quizId = question.getQuiz().getQuizId();
+            questionsByQuiz.computeIfAbsent(quizId, id -> new ArrayList<>()).add(question);
+            quizByQuestion.put(question.getQuestionId(), quizId);
+        }
+        Map<Integer, List<Answer>> answersByQuiz = new HashMap<>();
+        for (Answer answer : rows.answers()) {
+            Integer quizId = quizByQuestion.get(answer.getQuestion().getQuestionId());
+            if (quizId != null) {
+                answersByQuiz.computeIfAbsent(quizId, id -> new ArrayList<>()).add(answer);
+            }
+        }
+
+        Map<Integer, AnswerKey> loaded = new HashMap<>();
+        for (Map.Entry<Integer, Long> e : quizVersions.entrySet()) {
+            loaded.put(e.getKey(), build(e.getKey(), e.getValue(),
+                    questionsByQuiz.getOrDefault(e.getKey(), List.of()),
+                    answersByQuiz.getOrDefault(e.getKey(), List.of())));
+        }
+        return loaded;
+    }
+
+    private AnswerKey build(int quizId, long version, List<Questions> questions, List<Answer> answers) {
+        int size = questions.size();
+        int[] questionIds = new int[size];
+        int[] points = new int[size];
+        boolean[] multipleChoice = new boolean[size];
+        boolean[] essay = new boolean[size];
+        String[] questionTexts = new String[size];
+        for (int i = 0; i < size; i++) {
+            Questions question = questions.get(i);
+            questionIds[i] = question.getQuestionId();
+            points[i] = question.getPoints() != null ? question.getPoints() : DEFAULT_POINTS;
+            multipleChoice[i] = question.getType() == Questions.Type.MULTIPLE_CHOICE;
+            essay[i] = question.getType() == Questions.Type.ESSAY;
+            questionTexts[i] = question.getQuestionText();
+        }
+
+        // Câu hỏi đã sắp theo question_id nên tra cứu bằng binary search
+        List<List<Integer>> correctIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            correctIds.add(new ArrayList<>());
+        }
+        String[] correctTexts = new String[size];
+        for (Answer answer : answers) {
+            if (!Boolean.TRUE.equals(answer.getIsCorrect())) {
+                continue;
+            }
+            int index = Arrays.binarySearch(questionIds, answer.getQuestion().getQuestionId());
+            if (index < 0) {
+                continue;
+            }
+            correctIds.get(index).add(answer.getAnswerId());
+            if (correctTexts[index] == null) {
+                correctTexts[index] = answer.getAnswerText(); // Đáp án đúng đầu tiên theo order_number
+            }
+        }
+        int[][] correctAnswerIds = new int[size][];
+        for (int i = 0; i < size; i++) {
+            correctAnswerIds[i] = correctIds.get(i).stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+
+        return new AnswerKey(quizId, version, questionIds, points, multipleChoice, essay, questionTexts,
+                correctAnswerIds, correctTexts);
+    }
+
+    /**
+     * Immutable answer key of a quiz, phần tử thứ i của các mảng ứng với câu hỏi thứ i (theo question_id)
+     */
+    public static final class AnswerKey {
+        private final int quizId;
+        private final long version;
+        private final int[] questionIds;
+        private final int[] points;
+        private final boolean[] multipleChoice;
+        private final String[] questionTexts;
+        private final int[][] correctAnswerIds;
+        private final String[] correctAnswerTexts;
+        private final int totalPoints;
+        private final int multipleChoiceCount;
+        private final int essayCount;
+
+        private AnswerKey(int quizId, long version, int[] questionIds, int[] points, boolean[] multipleChoice,
+                          boolean[] essay, String[] questionTexts, int[][] correctAnswerIds,
+                          String[] correctAnswerTexts) {
+            this.quizId = quizId;
+            this.version = version;
+            this.questionIds = questionIds;
+            this.points = points;
+            this.multipleChoice = multipleChoice;
+            this.questionTexts = questionTexts;
+            this.correctAnswerIds = correctAnswerIds;
+            this.correctAnswerTexts = correctAnswerTexts;
+            int total = 0;
+            int multipleChoices = 0;
+            int essays = 0;
+            for (int i = 0; i < questionIds.length; i++) {
+                total += points[i];
+                if (multipleChoice[i]) multipleChoices++;
+                if (essay[i]) essays++;
+            }
+            this.totalPoints = total;
+            this.multipleChoiceCount = multipleChoices;
+            this.essayCount = essays;
+        }
+
+        public int getQuizId() {
+            return quizId;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return questionIds.length;
+        }
+
+        // Điểm tối đa của quiz
+        public int getTotalPoints() {
+            return totalPoints;
+        }
+
+        public int getMultipleChoiceCount() {
+            return multipleChoiceCount;
+        }
+
+        public int getEssayCount() {
+            return essayCount;
+        }
+
+        // Vị trí của câu hỏi trong key, -1 nếu câu hỏi không thuộc quiz
+        public int indexOf(int questionId) {
+            int index = Arrays.binarySearch(questionIds, questionId);
+            return index >= 0 ? index : -1;
+        }
+
+        public int getQuestionId(int index) {
+            return questionIds[index];
+        }
+
+        public int getPoints(int index) {
+            return points[index];
+        }
+
+        public boolean isMultipleChoice(int index) {
+            return multipleChoice[index];
+        }
+
+        public String getQuestionText(int index) {
+            return questionTexts[index];
+        }
+
+        public boolean isCorrectAnswer(int index, int answerId) {
+            return Arrays.binarySearch(correctAnswerIds[index], answerId) >= 0;
+        }
+
+        // null nếu câu trắc nghiệm không có đáp án đúng
+        public String getCorrectAnswerText(int index) {
+            return correctAnswerTexts[index];
+        }
+    }
+}
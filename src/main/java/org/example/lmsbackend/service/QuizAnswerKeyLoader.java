@@ -0,0 +1,32 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.model.Answer;
+import org.example.lmsbackend.model.Questions;
+import org.example.lmsbackend.repository.AnswerMapper;
+import org.example.lmsbackend.repository.QuestionsMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+// ✅ Đọc câu hỏi / đáp án cho QuizAnswerKeyCache ngoài transaction của người gọi.
+// Trong transaction REPEATABLE READ đã mở từ trước, query sẽ thấy snapshot cũ và cache lưu dữ liệu cũ dưới version mới.
+@Service
+public class QuizAnswerKeyLoader {
+
+    @Autowired
+    private QuestionsMapper questionsMapper;
+
+    @Autowired
+    private AnswerMapper answerMapper;
+
+    public record Rows(List<Questions> questions, List<Answer> answers) {}
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Rows load(Collection<Integer> quizIds) {
+        return new Rows(questionsMapper.findPlainByQuizIds(quizIds), answerMapper.findByQuizIds(quizIds));
+    }
+}
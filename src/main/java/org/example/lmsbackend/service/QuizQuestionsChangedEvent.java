@@ -0,0 +1,20 @@
+package org.example.lmsbackend.service;
+
+// Phát ra khi câu hỏi / đáp án của một quiz được thêm, sửa hoặc xóa
+public class QuizQuestionsChangedEvent {
+    private final Integer quizId;
+    private final String reason;
+
+    public QuizQuestionsChangedEvent(Integer quizId, String reason) {
+        this.quizId = quizId;
+        this.reason = reason;
+    }
+
+    public Integer getQuizId() {
+        return quizId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+}
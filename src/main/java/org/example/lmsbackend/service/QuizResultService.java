@@ -1,28 +1,34 @@
 package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.model.Questions;
-import org.example.lmsbackend.model.Answer;
 import org.example.lmsbackend.model.UserAnswer;
 import org.example.lmsbackend.model.UserQuizAttempt;
 import org.example.lmsbackend.dto.QuizResultDTO;
 import org.example.lmsbackend.dto.QuestionResultDTO;
 import org.example.lmsbackend.dto.QuizResultDetailDTO;
-import org.example.lmsbackend.repository.QuestionsMapper;
-import org.example.lmsbackend.repository.AnswerMapper;
+import org.example.lmsbackend.repository.UserAnswerMapper;
+import org.example.lmsbackend.repository.UserQuizAttemptMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class QuizResultService {
 
     @Autowired
-    private QuestionsMapper questionsMapper;
+    private QuizAnswerKeyCache quizAnswerKeyCache;
 
     @Autowired
-    private AnswerMapper answerMapper;
+    private QuizResultSnapshotService quizResultSnapshotService;
+
+    @Autowired
+    private UserAnswerMapper userAnswerMapper;
+
+    @Autowired
+    private UserQuizAttemptMapper userQuizAttemptMapper;
 
     /**
      * Chấm điểm một bài thi của sinh viên
@@ -30,13 +36,20 @@ public class QuizResultService {
      * @param userAnswers Danh sách câu trả lời của sinh viên
      * @return Điểm số và chi tiết kết quả
      */
-    @Transactional(readOnly = true)
     public QuizResultDTO gradeQuiz(UserQuizAttempt attempt, List<UserAnswer> userAnswers) {
         
-        // Lấy tất cả câu hỏi của quiz với đáp án đúng
-        List<Questions> questions = questionsMapper.findByQuizId(attempt.getQuiz().getQuizId());
+        // ✅ Đáp án của quiz lấy từ cache, phần chấm bên dưới không chạy query nào
+        QuizAnswerKeyCache.AnswerKey key = quizAnswerKeyCache.get(attempt.getQuiz().getQuizId());
+
+        // Câu trả lời đầu tiên của sinh viên cho mỗi câu hỏi
+        Map<Integer, UserAnswer> answersByQuestion = new HashMap<>();
+        for (UserAnswer userAnswer : userAnswers) {
+            if (userAnswer.getQuestion() != null && userAnswer.getQuestion().getQuestionId() != null) {
+                answersByQuestion.putIfAbsent(userAnswer.getQuestion().getQuestionId(), userAnswer);
+            }
+        }
         
-        double totalPoints = 0;
+        double totalPoints = key.getTotalPoints();
         double earnedPoints = 0;
         
         QuizResultDTO result = new QuizResultDTO();
@@ -45,45 +58,41 @@ public class QuizResultService {
         result.setUserId(attempt.getUser().getUserId());
         
         // Duyệt qua từng câu hỏi để chấm điểm
-        for (Questions question : questions) {
-            totalPoints += question.getPoints();
+        for (int i = 0; i < key.size(); i++) {
+            int points = key.getPoints(i);
             
             // Tìm câu trả lời của sinh viên cho câu hỏi này
-            UserAnswer userAnswer = userAnswers.stream()
-                .filter(ua -> ua.getQuestion().getQuestionId().equals(question.getQuestionId()))
-                .findFirst()
-                .orElse(null);
+            UserAnswer userAnswer = answersByQuestion.get(key.getQuestionId(i));
             
             if (userAnswer != null) {
                 // Calculate actual earned points for this question
                 double questionEarnedPoints = 0;
                 boolean isCorrect = false;
                 
-                if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
-                    isCorrect = checkAnswer(question, userAnswer);
-                    questionEarnedPoints = isCorrect ? question.getPoints() : 0;
-                } else if (question.getType() == Questions.Type.ESSAY) {
+                if (key.isMultipleChoice(i)) {
+                    isCorrect = userAnswer.getAnswer() != null && userAnswer.getAnswer().getAnswerId() != null
+                            && key.isCorrectAnswer(i, userAnswer.getAnswer().getAnswerId());
+                    questionEarnedPoints = isCorrect ? points : 0;
+                } else if (userAnswer.getManualScore() != null) {
                     // For essay, use manual score if available
-                    if (userAnswer.getManualScore() != null) {
-                        // Cap earned points to max points for this question
-                        questionEarnedPoints = Math.min(userAnswer.getManualScore(), question.getPoints());
-                        // Consider correct if earned at least 50% of max points
-                        isCorrect = questionEarnedPoints >= (question.getPoints() * 0.5);
-                    }
+                    // Cap earned points to max points for this question
+                    questionEarnedPoints = Math.min(userAnswer.getManualScore(), points);
+                    // Consider correct if earned at least 50% of max points
+                    isCorrect = questionEarnedPoints >= (points * 0.5);
                 }
                 
                 earnedPoints += questionEarnedPoints;
                 
                 // Tạo chi tiết kết quả cho từng câu
                 QuestionResultDTO questionResult = new QuestionResultDTO();
-                questionResult.setQuestionId(question.getQuestionId());
-                questionResult.setQuestionText(question.getQuestionText());
-                questionResult.setQuestionType(question.getType().toString());
-                questionResult.setPoints(question.getPoints()); // max points
+                questionResult.setQuestionId(key.getQuestionId(i));
+                questionResult.setQuestionText(key.getQuestionText(i));
+                questionResult.setQuestionType((key.isMultipleChoice(i) ? Questions.Type.MULTIPLE_CHOICE : Questions.Type.ESSAY).toString());
+                questionResult.setPoints(points); // max points
                 questionResult.setEarnedPoints(questionEarnedPoints); // actual earned points
                 questionResult.setCorrect(isCorrect);
-                questionResult.setUserAnswer(getUserAnswerText(question, userAnswer));
-                questionResult.setCorrectAnswer(getCorrectAnswerText(question));
+                questionResult.setUserAnswer(getUserAnswerText(key.isMultipleChoice(i), userAnswer));
+                questionResult.setCorrectAnswer(getCorrectAnswerText(key, i));
                 
                 result.getQuestionResults().add(questionResult);
             }
@@ -96,35 +105,16 @@ public class QuizResultService {
         return result;
     }
     
-    /**
-     * Kiểm tra câu trả lời của sinh viên có đúng không
-     */
-    private boolean checkAnswer(Questions question, UserAnswer userAnswer) {
-        
-        if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
-            // Với trắc nghiệm, kiểm tra answer_id
-            if (userAnswer.getAnswer() != null) {
-                return userAnswer.getAnswer().getIsCorrect();
-            }
-        } else if (question.getType() == Questions.Type.ESSAY) {
-            // Với tự luận, cần giảng viên chấm thủ công
-            // Tạm thời trả về false, sẽ được cập nhật sau
-            return userAnswer.getIsCorrect() != null && userAnswer.getIsCorrect();
-        }
-        
-        return false;
-    }
-    
     /**
      * Lấy text câu trả lời của sinh viên
      */
-    private String getUserAnswerText(Questions question, UserAnswer userAnswer) {
+    private String getUserAnswerText(boolean multipleChoice, UserAnswer userAnswer) {
         
-        if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
+        if (multipleChoice) {
             if (userAnswer.getAnswer() != null) {
                 return userAnswer.getAnswer().getAnswerText();
             }
-        } else if (question.getType() == Questions.Type.ESSAY) {
+        } else {
             return userAnswer.getAnswerText();
         }
         
@@ -134,15 +124,11 @@ public class QuizResultService {
     /**
      * Lấy text đáp án đúng
      */
-    private String getCorrectAnswerText(Questions question) {
+    private String getCorrectAnswerText(QuizAnswerKeyCache.AnswerKey key, int index) {
         
-        if (question.getType() == Questions.Type.MULTIPLE_CHOICE) {
-            List<Answer> answers = answerMapper.findByQuestionId(question.getQuestionId());
-            return answers.stream()
-                .filter(Answer::getIsCorrect)
-                .map(Answer::getAnswerText)
-                .findFirst()
-                .orElse("Không có đáp án đúng");
+        if (key.isMultipleChoice(index)) {
+            String correctText = key.getCorrectAnswerText(index);
+            return correctText != null ? correctText : "Không có đáp án đúng";
         } else {
             return "Câu tự luận - cần chấm thủ công";
         }
@@ -161,8 +147,32 @@ public class QuizResultService {
      * Lấy kết quả của một attempt
      */
     public QuizResultDTO getAttemptResult(Integer attemptId) {
-        // TODO: Implement logic to get attempt result with grading
-        // Tạm thời trả về null, sẽ implement sau
-        return null;
+        QuizResultDTO snapshot = quizResultSnapshotService.find(attemptId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        UserQuizAttempt attempt = userQuizAttemptMapper.findById(attemptId);
+        if (attempt == null) {
+            return null;
+        }
+        return gradeAndSnapshot(attempt);
+    }
+
+    /**
+     * Result of an attempt: đọc snapshot đã lưu, chỉ chấm lại khi chưa có (attempt cũ hoặc vừa chấm tự luận)
+     */
+    public QuizResultDTO getAttemptResult(UserQuizAttempt attempt) {
+        QuizResultDTO snapshot = quizResultSnapshotService.find(attempt.getId());
+        if (snapshot != null) {
+            return snapshot;
+        }
+        return gradeAndSnapshot(attempt);
+    }
+
+    private QuizResultDTO gradeAndSnapshot(UserQuizAttempt attempt) {
+        List<UserAnswer> userAnswers = userAnswerMapper.findByAttemptId(attempt.getId());
+        QuizResultDTO result = gradeQuiz(attempt, userAnswers);
+        quizResultSnapshotService.save(result);
+        return result;
     }
 }
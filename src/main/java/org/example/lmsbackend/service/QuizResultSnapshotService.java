@@ -0,0 +1,65 @@
+package org.example.lmsbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.lmsbackend.dto.QuizResultDTO;
+import org.example.lmsbackend.repository.QuizResultSnapshotMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+// ✅ Kết quả chấm của mỗi attempt (kèm điểm từng câu) được lưu lại một lần khi nộp bài / chấm tự luận,
+// trang kết quả đọc snapshot thay vì chấm lại từ user_answers
+@Service
+public class QuizResultSnapshotService {
+
+    @Autowired
+    private QuizResultSnapshotMapper quizResultSnapshotMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Saved result of an attempt, null nếu chưa có (attempt cũ) hoặc snapshot không đọc được
+     */
+    public QuizResultDTO find(Integer attemptId) {
+        if (attemptId == null) {
+            return null;
+        }
+        String payload = quizResultSnapshotMapper.findPayload(attemptId);
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(payload, QuizResultDTO.class);
+        } catch (JsonProcessingException e) {
+            System.err.println("⚠️ Unreadable result snapshot for attempt " + attemptId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void save(QuizResultDTO result) {
+        if (result == null || result.getAttemptId() == null) {
+            return;
+        }
+        try {
+            quizResultSnapshotMapper.upsert(result.getAttemptId(), objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Error serializing quiz result: " + e.getMessage(), e);
+        }
+    }
+
+    // Điểm của attempt thay đổi: lần xem sau sẽ chấm lại và ghi snapshot mới
+    public void invalidate(Integer attemptId) {
+        if (attemptId != null) {
+            quizResultSnapshotMapper.delete(attemptId);
+        }
+    }
+
+    public void invalidateAll(Collection<Integer> attemptIds) {
+        if (attemptIds != null && !attemptIds.isEmpty()) {
+            quizResultSnapshotMapper.deleteByAttemptIds(attemptIds);
+        }
+    }
+}
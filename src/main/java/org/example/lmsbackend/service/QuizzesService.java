@@ -10,6 +10,7 @@ import org.example.lmsbackend.repository.CourseRepository;
 import org.example.lmsbackend.repository.QuestionsMapper;
 import org.example.lmsbackend.repository.AnswerMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,6 +36,12 @@ public class QuizzesService {
     @Autowired
     private AnswerMapper answerMapper;
 
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public Quizzes createQuiz(QuizzesDTO dto) {
         Quizzes quiz = new Quizzes();
         quiz.setTitle(dto.getTitle());
@@ -64,7 +71,10 @@ public class QuizzesService {
             quiz.setModule(module);
         }
         
-        return quizzesRepository.save(quiz);
+        // courseId là cột chỉ đọc, chưa có trên entity vừa lưu: dùng courseId từ DTO
+        Quizzes saved = quizzesRepository.save(quiz);
+        courseCompletionService.onCourseStructureChanged(dto.getCourseId());
+        return saved;
     }
     public List<QuizzesDTO> getAllQuizzes() {
         List<Quizzes> entities = quizzesRepository.findAll();
@@ -161,7 +171,15 @@ public class QuizzesService {
             quiz.setModule(null);
         }
 
+        // Quiz có thể đổi trạng thái publish hoặc chuyển sang khóa học khác: tính lại cả khóa học cũ
+        Integer previousCourseId = quizzesRepository.findById(dto.getQuizId())
+                .map(Quizzes::getCourseId)
+                .orElse(null);
         quizzesRepository.save(quiz);
+        courseCompletionService.onCourseStructureChanged(dto.getCourseId());
+        if (previousCourseId != null && !previousCourseId.equals(dto.getCourseId())) {
+            courseCompletionService.onCourseStructureChanged(previousCourseId);
+        }
     }
 
     @Transactional
@@ -188,6 +206,8 @@ public class QuizzesService {
             // The UserQuizAttempts should be cascade deleted by database constraint
             // Finally delete the quiz
             quizzesRepository.deleteById(quizId);
+            courseCompletionService.onCourseStructureChanged(quiz.getCourseId());
+            eventPublisher.publishEvent(new QuizQuestionsChangedEvent(quizId, "quiz " + quizId + " deleted"));
         } catch (Exception e) {
             System.err.println("Error deleting quiz: " + e.getMessage());
             e.printStackTrace();
@@ -256,6 +276,7 @@ public class QuizzesService {
         
         quiz.setPublish(publish);
         Quizzes savedQuiz = quizzesRepository.save(quiz);
+        courseCompletionService.onCourseStructureChanged(savedQuiz.getCourseId());
         
         System.out.println("✅ Quiz status updated. New status: " + 
             (savedQuiz.getPublish() ? "Published" : "Not Published"));
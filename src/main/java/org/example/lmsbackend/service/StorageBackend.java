@@ -0,0 +1,47 @@
+package org.example.lmsbackend.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Nơi lưu file upload (Cloudinary hoặc ổ đĩa local), chọn bằng app.storage.backend.
+ * File được đặt tên theo SHA-256 nội dung nên lưu lại cùng một file không tạo bản sao mới.
+ */
+public interface StorageBackend {
+
+    @FunctionalInterface
+    interface ProgressListener {
+        void onProgress(long bytesUploaded, long totalBytes);
+    }
+
+    /**
+     * Tên backend, lưu cùng bản ghi stored_files
+     */
+    String getName();
+
+    /**
+     * Phạm vi dùng lại file trùng nội dung (cột backend của stored_files) cho một folder
+     */
+    default String getDedupScope(String folder) {
+        return getName();
+    }
+
+    /**
+     * Store a local file under its content hash
+     * @param localFile - file tạm đã có trên đĩa
+     * @param contentHash - SHA-256 (hex) của nội dung file
+     * @param folder - folder logic (avatars, videos, modules, ...)
+     * @param resourceType - "image", "video", "raw"
+     * @param progress - nhận số byte đã upload, có thể null
+     * @return URL để lưu vào database
+     */
+    String store(Path localFile, String contentHash, String originalFilename, String folder,
+                 String resourceType, ProgressListener progress) throws IOException;
+
+    /**
+     * Đường dẫn trên đĩa của một URL do backend này trả về, null nếu file không nằm trên máy này
+     */
+    default Path resolveLocalPath(String url) {
+        return null;
+    }
+}
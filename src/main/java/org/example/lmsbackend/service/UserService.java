@@ -2,20 +2,26 @@ package org.example.lmsbackend.service;
 
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.example.lmsbackend.dto.PageResponse;
 import org.example.lmsbackend.dto.UserDTO;
 import org.example.lmsbackend.email.EmailService;
 import org.example.lmsbackend.model.User;
+import org.example.lmsbackend.repository.CourseRatingStatsMapper;
 import org.example.lmsbackend.repository.UserMapper;
+import org.example.lmsbackend.utils.PageCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -24,6 +30,12 @@ public class UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private CourseRatingStatsMapper courseRatingStatsMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -107,6 +119,7 @@ public class UserService {
         User existingUser = userMapper.findById(id);
         if (existingUser == null) return false;
 
+        String previousFullName = existingUser.getFullName();
         existingUser.setUserId(id.intValue());
         existingUser.setUsername(userDTO.getUsername());
         existingUser.setEmail(userDTO.getEmail());
@@ -138,16 +151,21 @@ public class UserService {
             existingUser.setCvUrl(userDTO.getCvUrl());
         }
 
-        return userMapper.updateUser(existingUser) > 0;
+        boolean updated = userMapper.updateUser(existingUser) > 0;
+        // Tên giảng viên hiển thị trên catalog công khai
+        if (updated && !Objects.equals(previousFullName, existingUser.getFullName())) {
+            eventPublisher.publishEvent(new CourseCatalogChangedEvent("user " + id + " renamed"));
+        }
+        return updated;
     }
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
 
     // ✅ Lưu file avatar
     private String saveAvatar(MultipartFile file) {
         try {
-            return cloudinaryService.uploadImage(file, "avatars");
+            return fileStorageService.saveFile(file, "avatars", "image");
         } catch (Exception e) {
             throw new RuntimeException("Lỗi khi lưu file avatar", e);
         }
@@ -163,7 +181,7 @@ public class UserService {
 
     // ✅ Lấy danh sách người dùng theo điều kiện
     public List<User> getUsers(Integer userId, String role, Boolean isVerified, String username) {
-        List<User> users = userMapper.findUsersByConditions(userId, role, isVerified, username);
+        List<User> users = userMapper.findUsersByConditions(userId, role, isVerified, username, null, null);
         // ✅ Đảm bảo tất cả user đều có avatar mặc định
         users.forEach(user -> {
             user.setAvatarUrl(ensureDefaultAvatar(user.getAvatarUrl()));
@@ -171,8 +189,27 @@ public class UserService {
         return users;
     }
 
+    // ✅ Như trên nhưng phân trang keyset theo user_id
+    public PageResponse<User> getUsersPage(Integer userId, String role, Boolean isVerified, String username,
+                                           String cursor, Integer limit) {
+        int pageSize = PageCursor.resolveLimit(limit);
+        List<User> users = userMapper.findUsersByConditions(userId, role, isVerified, username,
+                PageCursor.decode(cursor), pageSize + 1);
+        users.forEach(user -> {
+            user.setAvatarUrl(ensureDefaultAvatar(user.getAvatarUrl()));
+        });
+        return PageResponse.of(users, pageSize, User::getUserId);
+    }
+
     // ✅ Xóa người dùng
+    // Đánh giá của user bị xóa theo ON DELETE CASCADE nên phải trừ khỏi course_rating_stats trong cùng transaction
+    @Transactional
     public boolean deleteUser(int id) {
-        return userMapper.deleteUserById(id) > 0;
+        courseRatingStatsMapper.subtractReviewsOfUser(id);
+        boolean deleted = userMapper.deleteUserById(id) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new CourseCatalogChangedEvent("user " + id + " deleted"));
+        }
+        return deleted;
     }
 }
@@ -0,0 +1,75 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.VideoMetadataDTO;
+import org.example.lmsbackend.utils.VideoMetadataExtractor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// ✅ Đọc thời lượng / độ phân giải / bitrate của video upload trên pool riêng (videoMetadataExecutor)
+// Kết quả cache theo SHA-256 nội dung nên upload lại cùng file không phải chạy ffprobe lần nữa
+@Service
+public class VideoMetadataService {
+
+    private static final int MAX_CACHED_RESULTS = 10_000;
+    // Chờ tối đa sau khi upload xong; quá hạn thì lưu video với metadata rỗng thay vì giữ request
+    private static final long AWAIT_TIMEOUT_SECONDS = 60;
+
+    private final Map<String, VideoMetadataDTO> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    @Qualifier("videoMetadataExecutor")
+    private TaskExecutor videoMetadataExecutor;
+
+    /**
+     * Start probing a local file; file phải còn tồn tại cho tới khi future hoàn thành
+     * @param contentHash - SHA-256 của file, null thì không dùng cache
+     */
+    public CompletableFuture<VideoMetadataDTO> probe(Path file, String contentHash) {
+        if (contentHash != null) {
+            VideoMetadataDTO cached = cache.get(contentHash);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                VideoMetadataDTO metadata = VideoMetadataExtractor.extractVideoMetadata(file.toFile());
+                // Không cache kết quả lỗi để lần upload sau còn thử lại
+                if (contentHash != null && !metadata.isEmpty() && cache.size() < MAX_CACHED_RESULTS) {
+                    cache.put(contentHash, metadata);
+                }
+                return metadata;
+            }, videoMetadataExecutor);
+        } catch (TaskRejectedException e) {
+            System.err.println("⚠️ Video metadata pool is full, skipping probe for " + file.getFileName());
+            return CompletableFuture.completedFuture(VideoMetadataDTO.EMPTY);
+        }
+    }
+
+    /**
+     * Wait for a probe started with {@link #probe}; lỗi hoặc quá hạn trả về VideoMetadataDTO.EMPTY
+     */
+    public VideoMetadataDTO await(CompletableFuture<VideoMetadataDTO> probe) {
+        try {
+            return probe.get(AWAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return VideoMetadataDTO.EMPTY;
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("❌ Failed to probe video metadata: " + e.getMessage());
+            return VideoMetadataDTO.EMPTY;
+        }
+    }
+}
@@ -2,25 +2,24 @@ package org.example.lmsbackend.service;
 
 import org.example.lmsbackend.dto.VideoDTO;
 import org.example.lmsbackend.utils.VideoMapperUtil;
-import org.example.lmsbackend.utils.VideoMetadataExtractor;
+import org.example.lmsbackend.dto.VideoMetadataDTO;
 import org.example.lmsbackend.model.Video;
 import org.example.lmsbackend.model.Course;
 import org.example.lmsbackend.model.User;
 import org.example.lmsbackend.model.Modules;
 import org.example.lmsbackend.repository.VideoMapper;
+import org.example.lmsbackend.security.AccessDecisionCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -50,7 +49,13 @@ public class VideoService {
     }
 
     public int deleteVideo(Long videoId) {
-        return videoMapper.deleteVideo(videoId);
+        Video video = videoMapper.findById(videoId);
+        int rows = videoMapper.deleteVideo(videoId);
+        accessDecisionCache.invalidateVideo(videoId);
+        if (rows > 0 && video != null && video.getCourse() != null) {
+            courseCompletionService.onCourseStructureChanged(video.getCourse().getCourseId());
+        }
+        return rows;
     }
 
     public List<VideoDTO> getVideosByCourse(Integer courseId) {
@@ -86,8 +91,28 @@ public class VideoService {
                 throw new IllegalArgumentException("Module ID is required for video upload");
             }
 
-            String fileUrl = saveFile(file);
+            // Đọc metadata từ file tạm trên videoMetadataExecutor trong lúc upload lên storage
+            String fileUrl;
+            CompletableFuture<VideoMetadataDTO> metadataProbe = null;
+            Path tempFile = fileStorageService.copyToTempFile(file);
+            try {
+                String contentHash = fileStorageService.hashFile(tempFile);
+                metadataProbe = videoMetadataService.probe(tempFile, contentHash);
+                fileUrl = fileStorageService.saveFile(tempFile, contentHash, file.getOriginalFilename(), "videos", "video", null);
+            } finally {
+                // Probe còn đọc file tạm: chỉ xóa khi probe đã xong
+                if (metadataProbe != null) {
+                    metadataProbe.whenComplete((m, e) -> fileStorageService.deleteTempFile(tempFile));
+                } else {
+                    fileStorageService.deleteTempFile(tempFile);
+                }
+            }
             if (fileUrl == null) return null;
+
+            // Không giữ request chờ ffprobe: probe chưa xong thì lưu metadata rỗng và cập nhật khi có kết quả
+            VideoMetadataDTO metadata = metadataProbe.isDone()
+                    ? videoMetadataService.await(metadataProbe)
+                    : VideoMetadataDTO.EMPTY;
             
             Video video = new Video();
             video.setTitle(title);
@@ -96,27 +121,11 @@ public class VideoService {
             video.setFileSize(file.getSize());
             video.setMimeType(file.getContentType());
             video.setPublished(published != null ? published : false); // Set published status
-
-            // Extract video duration (skip for Cloudinary URLs)
-            try {
-                // For Cloudinary URLs, we can't extract duration locally
-                // You might want to use Cloudinary's video analysis API or skip this
-                if (fileUrl.contains("cloudinary.com")) {
-                    video.setDuration(0); // Or implement Cloudinary video analysis
-                    System.out.println("📹 Video uploaded to Cloudinary, duration extraction skipped");
-                } else {
-                    // Construct the full file path for duration extraction (legacy support)
-                    String fileName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
-                    String fullFilePath = "uploads/videos/" + fileName;
-                    long durationInSeconds = VideoMetadataExtractor.extractDuration(fullFilePath);
-                    video.setDuration((int) durationInSeconds);
-                    System.out.println("📹 Video uploaded with duration: " + durationInSeconds + " seconds");
-                }
-            } catch (Exception e) {
-                System.err.println("❌ Failed to extract video duration: " + e.getMessage());
-                // Continue with upload even if duration extraction fails
-                video.setDuration(0);
-            }
+            video.setDuration(metadata.getDurationSeconds());
+            video.setWidth(metadata.getWidth());
+            video.setHeight(metadata.getHeight());
+            video.setBitRate(metadata.getBitRate());
+            System.out.println("📹 Video uploaded with duration: " + metadata.getDurationSeconds() + " seconds");
 
             // Set course và instructor
             Course course = new Course();
@@ -132,6 +141,21 @@ public class VideoService {
                 video.setModule(module);
             
             videoMapper.insertVideo(video);
+            if (!metadataProbe.isDone()) {
+                Integer videoId = video.getVideoId();
+                metadataProbe.thenAccept(m -> {
+                    if (m.isEmpty()) {
+                        return;
+                    }
+                    try {
+                        videoMapper.updateMetadata(videoId, m);
+                        System.out.println("📹 Video " + videoId + " metadata updated: " + m.getDurationSeconds() + " seconds");
+                    } catch (Exception e) {
+                        System.err.println("❌ Failed to save metadata of video " + videoId + ": " + e.getMessage());
+                    }
+                });
+            }
+            courseCompletionService.onCourseStructureChanged(courseId);
             return VideoMapperUtil.toDTO(video);
         } catch (Exception e) {
             e.printStackTrace();
@@ -145,75 +169,56 @@ public class VideoService {
 
     public boolean isInstructorOfVideo(Long videoId, Integer instructorId) {
         System.out.println("🔍 Checking instructor access: videoId=" + videoId + ", instructorId=" + instructorId);
-        boolean result = videoMapper.isInstructorOfVideo(videoId, instructorId);
+        boolean result = accessDecisionCache.check(AccessDecisionCache.Kind.INSTRUCTOR_OF_VIDEO, instructorId, videoId,
+                () -> videoMapper.isInstructorOfVideo(videoId, instructorId));
         System.out.println("🔍 Instructor access result: " + result);
         return result;
     }
 
     public boolean canStudentAccessVideo(Long videoId, Integer userId) {
-        return videoMapper.canStudentAccessVideo(videoId, userId);
+        return accessDecisionCache.check(AccessDecisionCache.Kind.STUDENT_OF_VIDEO, userId, videoId,
+                () -> videoMapper.canStudentAccessVideo(videoId, userId));
     }
 
-    public Resource getVideoResource(Long videoId) {
-        try {
-            Video video = videoMapper.findById(videoId);
-            if (video == null) {
-                System.out.println("❌ Video not found in DB: " + videoId);
-                return null;
-            }
-            
-            System.out.println("🎬 Video from DB: id=" + video.getVideoId() + ", fileUrl=" + video.getFileUrl());
-            
-            if (video.getFileUrl() == null) {
-                System.out.println("❌ FileUrl is null for video: " + videoId);
-                return null;
-            }
-            
-            // Check if it's a Cloudinary URL (starts with http/https)
-            if (video.getFileUrl().startsWith("http://") || video.getFileUrl().startsWith("https://")) {
-                System.out.println("🌐 Video is hosted on Cloudinary: " + video.getFileUrl());
-                // For Cloudinary URLs, create a resource directly from the URL
-                Resource resource = new UrlResource(video.getFileUrl());
-                System.out.println("✅ Created Cloudinary resource");
-                return resource;
-            }
+    public Video findVideo(Long videoId) {
+        return videoMapper.findById(videoId);
+    }
 
-            // Legacy logic for local files
-            // video.getFileUrl() = "/videos/filename.mp4"
-            // Extract just the filename from the fileUrl
-            String fileName = video.getFileUrl().substring(video.getFileUrl().lastIndexOf("/") + 1);
-            
-            // Construct correct path: uploads/videos/filename.mp4
-            Path filePath = Paths.get("uploads/videos/" + fileName);
-            System.out.println("🎯 Looking for local file at: " + filePath.toAbsolutePath());
+    // Video được lưu trên Cloudinary (URL tuyệt đối) hay file local
+    public boolean isRemoteVideo(Video video) {
+        String fileUrl = video.getFileUrl();
+        return fileUrl != null && (fileUrl.startsWith("http://") || fileUrl.startsWith("https://"));
+    }
 
-            if (!Files.exists(filePath)) {
-                System.out.println("❌ Local file does not exist at: " + filePath.toAbsolutePath());
-                return null;
-            }
-            
-            System.out.println("✅ Local file found, creating resource");
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists() && resource.isReadable()) {
-                System.out.println("✅ Local resource is readable");
-                return resource;
-            } else {
-                System.out.println("❌ Local resource exists but not readable");
-                return null;
-            }
-        } catch (Exception e) {
-            System.out.println("❌ Exception in getVideoResource: " + e.getMessage());
-            e.printStackTrace();
-            return null;
+    // video.getFileUrl() = "/api/files/private/ab/<sha256>.mp4" -> file private của local storage backend
+    // video.getFileUrl() = "/videos/filename.mp4" -> uploads/videos/filename.mp4 (dữ liệu cũ)
+    public Path getLocalVideoPath(Video video) {
+        return getLocalVideoPath(video.getFileUrl());
+    }
+
+    private Path getLocalVideoPath(String fileUrl) {
+        Path storedPath = fileStorageService.resolveLocalPath(fileUrl);
+        if (storedPath != null) {
+            return storedPath;
         }
+        String fileName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
+        return Paths.get("uploads/videos/" + fileName);
     }
 
     @Autowired
-    private CloudinaryService cloudinaryService;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    private AccessDecisionCache accessDecisionCache;
 
     public String saveFile(MultipartFile file) {
-        return cloudinaryService.uploadVideo(file, "videos");
+        return fileStorageService.saveFile(file, "videos", "video");
     }
 
     // Video management methods
@@ -223,6 +228,9 @@ public class VideoService {
             if (video != null) {
                 video.setPublished(published);
                 int updated = videoMapper.updateVideo(video);
+                if (video.getCourse() != null) {
+                    courseCompletionService.onCourseStructureChanged(video.getCourse().getCourseId());
+                }
                 return updated > 0;
             }
             return false;
@@ -245,6 +253,9 @@ public class VideoService {
                 }
 
                 int updated = videoMapper.updateVideo(existingVideo);
+                if (updated > 0 && videoDTO.getPublished() != null && existingVideo.getCourse() != null) {
+                    courseCompletionService.onCourseStructureChanged(existingVideo.getCourse().getCourseId());
+                }
                 if (updated > 0) {
                     return VideoMapperUtil.toDTO(existingVideo);
                 }
@@ -0,0 +1,221 @@
+package org.example.lmsbackend.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.lmsbackend.model.Video;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// ✅ Stream video theo HTTP Range (RFC 7233): 206 Partial Content, Content-Range, Accept-Ranges
+@Service
+public class VideoStreamService {
+
+    // Thuộc tính request của Tomcat để gửi file bằng sendfile (zero-copy)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
+
+    @Autowired
+    private VideoService videoService;
+
+    @Autowired
+    private CloudinaryService cloudinaryService;
+
+    // redirect: chuyển hướng tới URL Cloudinary đã ký; proxy: stream bytes qua server (fallback)
+    @Value("${app.video.delivery.mode:redirect}")
+    private String deliveryMode;
+
+    @Value("${app.video.delivery.streaming-profile:}")
+    private String streamingProfile;
+
+    @Value("${app.video.delivery.url-ttl-seconds:300}")
+    private long urlTtlSeconds;
+
+    // Trả về false nếu không tìm thấy file video
+    public boolean streamVideo(Video video, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (video == null || video.getFileUrl() == null || video.getFileUrl().isBlank()) {
+            return false;
+        }
+        // Video đang upload (upload job) hoặc upload lỗi thì chưa có file để stream
+        if (video.getProcessingStatus() != null && video.getProcessingStatus() != Video.ProcessingStatus.READY) {
+            return false;
+        }
+        if (videoService.isRemoteVideo(video)) {
+            if (!"proxy".equalsIgnoreCase(deliveryMode) && redirectToCdn(video, response)) {
+                return true;
+            }
+            proxyRemote(video.getFileUrl(), resolveContentType(video), request, response);
+            return true;
+        }
+
+        Path filePath = videoService.getLocalVideoPath(video);
+        if (!Files.isReadable(filePath)) {
+            System.out.println("❌ Local file does not exist at: " + filePath.toAbsolutePath());
+            return false;
+        }
+        streamLocalFile(filePath, resolveContentType(video), request, response);
+        return true;
+    }
+
+    public void streamLocalFile(Path file, String contentType, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, Files.getLastModifiedTime(file).toMillis());
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = parseSingleRange(request.getHeader(HttpHeaders.RANGE));
+        if (range != null) {
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                // HttpRange không kiểm tra vị trí bắt đầu nằm ngoài file (vd. bytes=50-60 với file 20 byte)
+                if (start >= length || start > end) {
+                    throw new IllegalArgumentException("Range not satisfiable");
+                }
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        // Tomcat tự gửi đoạn file bằng sendfile sau khi handler trả về, không đi qua heap
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().normalize().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    // ✅ Quyền đã được kiểm tra ở controller, trình duyệt tải trực tiếp từ CDN
+    private boolean redirectToCdn(Video video, HttpServletResponse response) {
+        String publicId = cloudinaryService.extractPublicId(video.getFileUrl());
+        if (publicId == null) {
+            return false;
+        }
+        try {
+            String signedUrl = cloudinaryService.buildSignedVideoUrl(publicId, streamingProfile, urlTtlSeconds);
+            response.setStatus(HttpServletResponse.SC_FOUND);
+            response.setHeader(HttpHeaders.LOCATION, signedUrl);
+            // Cho phép trình duyệt dùng lại redirect trong lúc tua, ngắn hơn thời hạn của URL
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + Math.max(0, urlTtlSeconds / 2));
+            return true;
+        } catch (Exception e) {
+            System.err.println("❌ Failed to sign Cloudinary URL, falling back to proxy: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Chuyển tiếp Range tới Cloudinary để seek không phải tải lại toàn bộ file
+    public void proxyRemote(String url, String contentType, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            connection.setRequestProperty(HttpHeaders.RANGE, rangeHeader);
+        }
+
+        try {
+            int status = connection.getResponseCode();
+            response.setStatus(status);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            copyHeader(connection, response, HttpHeaders.CONTENT_RANGE);
+            copyHeader(connection, response, HttpHeaders.LAST_MODIFIED);
+            copyHeader(connection, response, HttpHeaders.ETAG);
+            String upstreamType = connection.getContentType();
+            response.setContentType(upstreamType != null ? upstreamType : contentType);
+            long upstreamLength = connection.getContentLengthLong();
+            if (upstreamLength >= 0) {
+                response.setContentLengthLong(upstreamLength);
+            }
+            if (status >= 400 || "HEAD".equalsIgnoreCase(request.getMethod())) {
+                return;
+            }
+            try (InputStream in = connection.getInputStream()) {
+                in.transferTo(response.getOutputStream());
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // Chỉ hỗ trợ một khoảng; header sai cú pháp hoặc nhiều khoảng thì trả về toàn bộ file (200)
+    private HttpRange parseSingleRange(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String resolveContentType(Video video) {
+        if (video.getMimeType() != null && !video.getMimeType().isBlank()) {
+            return video.getMimeType();
+        }
+        return MediaTypeFactory.getMediaType(video.getFileUrl())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    private void copyHeader(HttpURLConnection connection, HttpServletResponse response, String name) {
+        String value = connection.getHeaderField(name);
+        if (value != null) {
+            response.setHeader(name, value);
+        }
+    }
+}
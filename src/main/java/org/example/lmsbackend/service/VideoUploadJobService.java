@@ -0,0 +1,228 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.VideoMetadataDTO;
+import org.example.lmsbackend.dto.VideoUploadJobDTO;
+import org.example.lmsbackend.model.Course;
+import org.example.lmsbackend.model.Modules;
+import org.example.lmsbackend.model.User;
+import org.example.lmsbackend.model.Video;
+import org.example.lmsbackend.repository.VideoMapper;
+import org.example.lmsbackend.utils.VideoMapperUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ✅ Upload video bất đồng bộ: request chỉ lưu file tạm + tạo video PROCESSING,
+// upload lên Cloudinary và đọc metadata chạy trên videoUploadExecutor
+@Service
+public class VideoUploadJobService {
+
+    // Job đã xong được giữ lại trong bộ nhớ để client poll kết quả
+    private static final long FINISHED_JOB_RETENTION_MINUTES = 60;
+
+    private final Map<Integer, VideoUploadJobDTO> jobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    private VideoMapper videoMapper;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private CourseCompletionService courseCompletionService;
+
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    @Qualifier("videoUploadExecutor")
+    private TaskExecutor videoUploadExecutor;
+
+    // Heartbeat không được cập nhật quá mốc này thì instance chạy job đã dừng
+    @Value("${app.video-upload.stale-after-seconds:300}")
+    private int staleAfterSeconds;
+
+    public VideoUploadJobDTO submit(MultipartFile file, String title, String description, Integer courseId,
+                                    Integer moduleId, Boolean published, Integer instructorId) throws IOException {
+        purgeFinishedJobs();
+
+        // File multipart bị xóa khi request kết thúc nên phải copy ra trước
+        Path tempFile = fileStorageService.copyToTempFile(file);
+        String originalFilename = file.getOriginalFilename();
+
+        Video video = new Video();
+        video.setTitle(title);
+        video.setDescription(description);
+        video.setFileUrl("");
+        video.setFileSize(file.getSize());
+        video.setMimeType(file.getContentType());
+        video.setDuration(0);
+        // Chỉ xuất bản khi upload xong để học viên không thấy video chưa xem được
+        video.setPublished(false);
+        video.setProcessingStatus(Video.ProcessingStatus.PROCESSING);
+
+        Course course = new Course();
+        course.setCourseId(courseId);
+        video.setCourse(course);
+
+        User instructor = new User();
+        instructor.setUserId(instructorId);
+        video.setInstructor(instructor);
+
+        Modules module = new Modules();
+        module.setId(moduleId);
+        video.setModule(module);
+
+        try {
+            videoMapper.insertVideo(video);
+        } catch (RuntimeException e) {
+            fileStorageService.deleteTempFile(tempFile);
+            throw e;
+        }
+
+        Integer videoId = video.getVideoId();
+        VideoUploadJobDTO job = new VideoUploadJobDTO(videoId, instructorId, file.getSize(), VideoUploadJobDTO.STATUS_QUEUED);
+        jobs.put(videoId, job);
+        boolean publishWhenReady = Boolean.TRUE.equals(published);
+
+        try {
+            videoUploadExecutor.execute(() -> process(job, tempFile, originalFilename, courseId, publishWhenReady));
+        } catch (TaskRejectedException e) {
+            // Hàng đợi đầy: hủy video vừa tạo
+            jobs.remove(videoId);
+            videoMapper.deleteVideo(videoId.longValue());
+            fileStorageService.deleteTempFile(tempFile);
+            throw e;
+        }
+
+        System.out.println("📤 Upload job queued: videoId=" + videoId + ", size=" + file.getSize() + " bytes");
+        return job;
+    }
+
+    private void process(VideoUploadJobDTO job, Path tempFile, String originalFilename,
+                         Integer courseId, boolean publishWhenReady) {
+        Integer videoId = job.getVideoId();
+        CompletableFuture<VideoMetadataDTO> metadataProbe = null;
+        try {
+            // File trên storage (Cloudinary) không đọc được metadata nên đọc từ file tạm, song song với upload
+            String contentHash = fileStorageService.hashFile(tempFile);
+            metadataProbe = videoMetadataService.probe(tempFile, contentHash);
+
+            job.setStatus(VideoUploadJobDTO.STATUS_UPLOADING);
+            String fileUrl = fileStorageService.saveFile(tempFile, contentHash, originalFilename, "videos", "video",
+                    job::updateProgress);
+
+            job.setStatus(VideoUploadJobDTO.STATUS_EXTRACTING_METADATA);
+            VideoMetadataDTO metadata = videoMetadataService.await(metadataProbe);
+            int durationInSeconds = metadata.getDurationSeconds();
+
+            videoMapper.completeProcessing(videoId, fileUrl, metadata, publishWhenReady);
+            if (publishWhenReady) {
+                courseCompletionService.onCourseStructureChanged(courseId);
+            }
+
+            job.setVideo(VideoMapperUtil.toDTO(videoMapper.findById(videoId.longValue())));
+            job.setStatus(VideoUploadJobDTO.STATUS_COMPLETED);
+            System.out.println("✅ Upload job completed: videoId=" + videoId + ", duration=" + durationInSeconds + "s");
+        } catch (Exception e) {
+            System.err.println("❌ Upload job failed: videoId=" + videoId + ": " + e.getMessage());
+            job.setError(e.getMessage());
+            job.setStatus(VideoUploadJobDTO.STATUS_FAILED);
+            try {
+                videoMapper.updateProcessingStatus(videoId, Video.ProcessingStatus.FAILED);
+            } catch (Exception updateError) {
+                System.err.println("❌ Failed to mark video " + videoId + " as FAILED: " + updateError.getMessage());
+            }
+        } finally {
+            // Upload lỗi hoặc chờ probe quá hạn thì probe có thể vẫn đang đọc file tạm: xóa khi probe xong
+            if (metadataProbe != null) {
+                metadataProbe.whenComplete((m, e) -> fileStorageService.deleteTempFile(tempFile));
+            } else {
+                fileStorageService.deleteTempFile(tempFile);
+            }
+        }
+    }
+
+    // Job trong bộ nhớ, nếu không có (đã dọn hoặc server restart) thì suy ra từ trạng thái video
+    public VideoUploadJobDTO getJob(Integer videoId) {
+        VideoUploadJobDTO job = jobs.get(videoId);
+        if (job != null) {
+            return job;
+        }
+
+        Video video = videoMapper.findById(videoId.longValue());
+        if (video == null) {
+            return null;
+        }
+        Integer instructorId = video.getInstructor() != null ? video.getInstructor().getUserId() : null;
+        Video.ProcessingStatus processingStatus = video.getProcessingStatus() != null
+                ? video.getProcessingStatus()
+                : Video.ProcessingStatus.READY;
+        String status = switch (processingStatus) {
+            case PROCESSING -> VideoUploadJobDTO.STATUS_PROCESSING;
+            case FAILED -> VideoUploadJobDTO.STATUS_FAILED;
+            case READY -> VideoUploadJobDTO.STATUS_COMPLETED;
+        };
+        VideoUploadJobDTO restored = new VideoUploadJobDTO(videoId, instructorId,
+                video.getFileSize() != null ? video.getFileSize() : 0, status);
+        if (processingStatus == Video.ProcessingStatus.READY) {
+            restored.setVideo(VideoMapperUtil.toDTO(video));
+        }
+        return restored;
+    }
+
+    private void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(FINISHED_JOB_RETENTION_MINUTES);
+        jobs.values().removeIf(job -> job.isFinished() && job.getUpdatedAt().isBefore(cutoff));
+    }
+
+    // ✅ Cập nhật heartbeat cho job đang chạy trong process này, rồi fail video PROCESSING có heartbeat quá hạn
+    // (instance chạy job đã tắt/crash, file tạm đã mất). Job của instance khác vẫn sống thì không bị đụng tới
+    @Scheduled(fixedDelayString = "${app.video-upload.heartbeat-interval-ms:60000}")
+    public void heartbeatAndFailInterrupted() {
+        List<Integer> activeVideoIds = jobs.values().stream()
+                .filter(job -> !job.isFinished())
+                .map(VideoUploadJobDTO::getVideoId)
+                .toList();
+        try {
+            if (!activeVideoIds.isEmpty()) {
+                videoMapper.touchProcessingHeartbeat(activeVideoIds);
+            }
+            failInterruptedJobs(activeVideoIds);
+        } catch (Exception e) {
+            System.err.println("Error updating video upload heartbeats: " + e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobsOnStartup() {
+        try {
+            failInterruptedJobs(new ArrayList<>(jobs.keySet()));
+        } catch (Exception e) {
+            System.err.println("Error marking interrupted video uploads: " + e.getMessage());
+        }
+    }
+
+    private void failInterruptedJobs(List<Integer> activeVideoIds) {
+        int rows = videoMapper.failInterruptedProcessing(activeVideoIds, staleAfterSeconds);
+        if (rows > 0) {
+            System.out.println("⚠️ Marked " + rows + " interrupted video uploads as FAILED");
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.lmsbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.lmsbackend.dto.VideoWatchDTO;
+import org.example.lmsbackend.repository.VideoProgressMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// ✅ Write-behind cho heartbeat xem video: chỉ giữ vị trí mới nhất của mỗi (user, video) trong bộ nhớ
+// và ghi xuống video_progress theo lô mỗi app.video-progress.flush-interval-ms và khi tắt server.
+// Riêng heartbeat làm video vượt / rớt mốc 90% được ghi ngay để tính lại tiến độ module.
+@Service
+public class VideoWatchBuffer {
+
+    private static final int FLUSH_BATCH_SIZE = 500;
+    // Entry không có thay đổi lâu hơn mốc này bị bỏ khỏi bộ nhớ (người xem đã rời video)
+    private static final long IDLE_EVICT_MINUTES = 30;
+
+    private final Map<WatchKey, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    private VideoProgressMapper videoProgressMapper;
+
+    @Value("${app.video-progress.write-behind:true}")
+    private boolean writeBehind;
+
+    private record WatchKey(Integer userId, Integer videoId) {}
+
+    // Heartbeat làm thay đổi trạng thái hoàn thành của video
+    public record ThresholdCrossing(Integer moduleId, Integer courseId, boolean completed) {}
+
+    private static final class Entry {
+        final Integer moduleId;
+        final Integer courseId;
+        int watchedDuration;
+        int totalDuration;
+        LocalDateTime lastWatchedAt;
+        // Trạng thái hoàn thành đã được ghi xuống DB và dùng để tính tiến độ module
+        boolean completed;
+        boolean dirty;
+        long version;
+        boolean evicted;
+
+        Entry(VideoWatchDTO state) {
+            this.moduleId = state.getModuleId();
+            this.courseId = state.getCourseId();
+            this.watchedDuration = state.getWatchedDuration() != null ? state.getWatchedDuration() : 0;
+            this.totalDuration = state.getTotalDuration() != null ? state.getTotalDuration() : 0;
+            this.lastWatchedAt = state.getLastWatchedAt();
+            this.completed = state.isCompleted();
+        }
+
+        VideoWatchDTO toDTO(WatchKey key) {
+            return new VideoWatchDTO(key.userId(), key.videoId(), watchedDuration, totalDuration, lastWatchedAt);
+        }
+    }
+
+    /**
+     * Record a player heartbeat
+     * @return ThresholdCrossing nếu video vừa vượt (hoặc rớt khỏi) mốc 90%, null nếu không;
+     *         cũng trả về null khi video không tồn tại
+     */
+    public ThresholdCrossing record(Integer userId, Integer videoId, int watchedDuration, int totalDuration) {
+        WatchKey key = new WatchKey(userId, videoId);
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                VideoWatchDTO state = videoProgressMapper.findWatchState(userId, videoId);
+                if (state == null) {
+                    return null;
+                }
+                Entry loaded = new Entry(state);
+                entry = entries.putIfAbsent(key, loaded);
+                if (entry == null) {
+                    entry = loaded;
+                }
+            }
+
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue; // Bị dọn trong lúc chờ lock: tạo entry mới
+                }
+                entry.watchedDuration = watchedDuration;
+                entry.totalDuration = totalDuration;
+                // Thời điểm tăng dần theo từng entry: upsertBatch dựa vào nó để bỏ qua lô ghi cũ hơn
+                LocalDateTime now = LocalDateTime.now();
+                if (entry.lastWatchedAt != null && !now.isAfter(entry.lastWatchedAt)) {
+                    now = entry.lastWatchedAt.plusNanos(1000);
+                }
+                entry.lastWatchedAt = now;
+                entry.dirty = true;
+                entry.version++;
+
+                VideoWatchDTO row = entry.toDTO(key);
+                boolean completed = row.isCompleted();
+                if (completed == entry.completed && writeBehind) {
+                    return null;
+                }
+
+                // Ghi ngay để phần tính tiến độ module / khóa học đọc được trạng thái mới
+                videoProgressMapper.upsertBatch(List.of(row));
+                entry.dirty = false;
+                if (completed == entry.completed) {
+                    return null;
+                }
+                entry.completed = completed;
+                return new ThresholdCrossing(entry.moduleId, entry.courseId, completed);
+            }
+        }
+    }
+
+    /**
+     * Latest position of a user in a video, kể cả khi chưa được ghi xuống DB; null nếu không có trong bộ nhớ
+     */
+    public VideoWatchDTO getBuffered(Integer userId, Integer videoId) {
+        WatchKey key = new WatchKey(userId, videoId);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            return entry.evicted ? null : entry.toDTO(key);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.video-progress.flush-interval-ms:5000}")
+    public void flush() {
+        List<VideoWatchDTO> batch = new ArrayList<>();
+        List<Entry> batchEntries = new ArrayList<>();
+        List<Long> batchVersions = new ArrayList<>();
+        LocalDateTime idleCutoff = LocalDateTime.now().minusMinutes(IDLE_EVICT_MINUTES);
+
+        for (Map.Entry<WatchKey, Entry> e : entries.entrySet()) {
+            Entry entry = e.getValue();
+            synchronized (entry) {
+                if (entry.dirty) {
+                    batch.add(entry.toDTO(e.getKey()));
+                    batchEntries.add(entry);
+                    batchVersions.add(entry.version);
+                    entry.dirty = false;
+                } else if (entry.lastWatchedAt == null || entry.lastWatchedAt.isBefore(idleCutoff)) {
+                    entry.evicted = true;
+                    entries.remove(e.getKey(), entry);
+                }
+            }
+            if (batch.size() >= FLUSH_BATCH_SIZE) {
+                writeBatch(batch, batchEntries, batchVersions);
+                batch = new ArrayList<>();
+                batchEntries = new ArrayList<>();
+                batchVersions = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, batchEntries, batchVersions);
+        }
+    }
+
+    private void writeBatch(List<VideoWatchDTO> batch, List<Entry> batchEntries, List<Long> batchVersions) {
+        try {
+            videoProgressMapper.upsertBatch(batch);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to flush " + batch.size() + " video progress rows: " + e.getMessage());
+            // Đánh dấu lại để lần flush sau thử lại (trừ entry đã có heartbeat mới, vốn đã dirty)
+            for (int i = 0; i < batchEntries.size(); i++) {
+                Entry entry = batchEntries.get(i);
+                synchronized (entry) {
+                    if (entry.version == batchVersions.get(i)) {
+                        entry.dirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        System.out.println("💾 Flushing buffered video progress before shutdown");
+        flush();
+    }
+}
@@ -1,27 +1,44 @@
 package org.example.lmsbackend.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import org.example.lmsbackend.model.User;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Component
 public class JwtTokenUtil {
 
+    // Số token đã xác thực được giữ lại tối đa
+    private static final int MAX_CACHED_TOKENS = 10_000;
+
     private final SecretKey secretKey;
+    // JwtParser là immutable & thread-safe, chỉ cần build một lần
+    private final JwtParser jwtParser;
+    // SHA-256(token) -> claims đã xác thực chữ ký, hết hiệu lực theo exp của token
+    private final Map<String, Claims> verifiedClaims = new ConcurrentHashMap<>();
 
     // Inject giá trị từ application.properties
     public JwtTokenUtil(@Value("${jwt.secret}") String rawSecret) {
         this.secretKey = Keys.hmacShaKeyFor(rawSecret.getBytes());
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .build();
     }
 
     public String generateToken(User user) {
@@ -70,12 +87,46 @@ public class JwtTokenUtil {
         return extractUsername(token).equals(username) && !isTokenExpired(token);
     }
 
+    // ✅ Xác thực chữ ký một lần; các lần gọi sau với cùng token lấy từ cache cho đến khi token hết hạn
+    public Claims parseClaims(String token) {
+        String key = digest(token);
+        Claims cached = verifiedClaims.get(key);
+        if (cached != null) {
+            if (!isExpired(cached)) {
+                return cached;
+            }
+            verifiedClaims.remove(key);
+        }
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        // Cache đầy thì chỉ bỏ qua việc cache, token hết hạn được dọn theo lịch (evictExpired)
+        if (claims.getExpiration() != null && verifiedClaims.size() < MAX_CACHED_TOKENS) {
+            verifiedClaims.put(key, claims);
+        }
+        return claims;
+    }
+
+    public boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
+    }
+
+    // Dọn token hết hạn định kỳ thay vì quét cả cache mỗi lần cache đầy
+    @Scheduled(fixedDelayString = "${jwt.claims-cache.evict-interval-ms:60000}")
+    public void evictExpired() {
+        verifiedClaims.values().removeIf(this::isExpired);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
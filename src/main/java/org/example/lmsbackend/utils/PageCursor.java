@@ -0,0 +1,42 @@
+package org.example.lmsbackend.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Cursor phân trang dạng keyset: mã hóa khóa chính của dòng cuối cùng đã trả về
+public class PageCursor {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private PageCursor() {}
+
+    public static String encode(Integer key) {
+        if (key == null) return null;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("id:" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null/blank -> trang đầu tiên
+    public static Integer decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("id:")) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Integer.valueOf(raw.substring(3));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public static int resolveLimit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    // Có truyền cursor hoặc limit thì trả về dạng phân trang, không thì giữ nguyên danh sách cũ
+    public static boolean isRequested(String cursor, Integer limit) {
+        return cursor != null || limit != null;
+    }
+}
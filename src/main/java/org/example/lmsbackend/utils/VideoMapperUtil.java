@@ -11,6 +11,9 @@ public class VideoMapperUtil {
         dto.setDescription(video.getDescription());
         dto.setFileUrl(video.getFileUrl());
         dto.setDuration(video.getDuration());
+        dto.setWidth(video.getWidth());
+        dto.setHeight(video.getHeight());
+        dto.setBitRate(video.getBitRate());
         dto.setFileSize(video.getFileSize());
         dto.setMimeType(video.getMimeType());
         dto.setUploadedAt(video.getUploadedAt());
@@ -33,6 +36,9 @@ public class VideoMapperUtil {
 
         dto.setOrderNumber(video.getOrderNumber());
         dto.setPublished(video.getPublished());
+        dto.setProcessingStatus(video.getProcessingStatus() != null
+                ? video.getProcessingStatus().name()
+                : Video.ProcessingStatus.READY.name());
 
         return dto;
     }    
@@ -1,7 +1,10 @@
 package org.example.lmsbackend.utils;
 
+import org.example.lmsbackend.dto.VideoMetadataDTO;
 import ws.schild.jave.MultimediaObject;
 import ws.schild.jave.info.MultimediaInfo;
+import ws.schild.jave.info.VideoInfo;
+import ws.schild.jave.info.VideoSize;
 import java.io.File;
 
 public class VideoMetadataExtractor {
@@ -43,6 +46,38 @@ public class VideoMetadataExtractor {
         return 0;
     }
     
+    /**
+     * Extract duration, resolution and bitrate from video file
+     * @param videoFile The video file to analyze
+     * @return VideoMetadataDTO, or VideoMetadataDTO.EMPTY if extraction fails
+     */
+    public static VideoMetadataDTO extractVideoMetadata(File videoFile) {
+        MultimediaInfo info = extractMetadata(videoFile);
+        if (info == null) {
+            return VideoMetadataDTO.EMPTY;
+        }
+
+        int durationInSeconds = (int) Math.max(0, info.getDuration() / 1000);
+        Integer width = null;
+        Integer height = null;
+        Integer bitRate = null;
+        VideoInfo video = info.getVideo();
+        if (video != null) {
+            VideoSize size = video.getSize();
+            if (size != null) {
+                width = size.getWidth();
+                height = size.getHeight();
+            }
+            // JAVE trả về -1 khi ffprobe không có bitrate của stream
+            if (video.getBitRate() > 0) {
+                bitRate = video.getBitRate();
+            }
+        }
+        System.out.println("📹 Video metadata extracted: " + durationInSeconds + "s, "
+                + width + "x" + height + ", " + bitRate + " bps");
+        return new VideoMetadataDTO(durationInSeconds, width, height, bitRate);
+    }
+
     /**
      * Extract duration from video file path
      * @param videoFilePath The path to the video file
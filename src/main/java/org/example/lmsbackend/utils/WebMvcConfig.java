@@ -1,5 +1,6 @@
 package org.example.lmsbackend.utils;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.cors.CorsConfiguration;
@@ -13,6 +14,10 @@ import java.util.Arrays;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Value("${app.storage.local.dir:uploads/store}")
+    private String storageLocalDir;
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Base path to 'uploads'
@@ -38,6 +43,10 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/videos/**")
                 .addResourceLocations(uploadBasePath + "videos/");
 
+        // Files public của local storage backend (app.storage.backend=local), file private không được map ở đây
+        registry.addResourceHandler("/uploads/store/**")
+                .addResourceLocations(Paths.get(storageLocalDir).toAbsolutePath().toUri().toString());
+
         // Module content files
         registry.addResourceHandler("/uploads/modules/**")
                 .addResourceLocations(uploadBasePath + "modules/");
@@ -0,0 +1,110 @@
+package org.example.lmsbackend.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessDecisionCacheTest {
+
+    private AccessDecisionCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AccessDecisionCache();
+        ReflectionTestUtils.setField(cache, "allowTtlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "denyTtlSeconds", 10L);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void cachesDecisionPerUserAndTarget() {
+        assertTrue(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, true));
+        assertTrue(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, false));
+        assertEquals(1, loads.get());
+
+        // Khác user hoặc khác loại quyền thì nạp lại
+        assertFalse(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 2, 5, false));
+        assertFalse(check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, 1, 5, false));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void nullIdsAreNeverCached() {
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, null, 5, true);
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, null, 5, true);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void expiredDecisionIsReloaded() {
+        ReflectionTestUtils.setField(cache, "denyTtlSeconds", 0L);
+        assertFalse(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, false));
+        assertTrue(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, true));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictExpiredRemovesOnlyExpiredDecisions() {
+        ReflectionTestUtils.setField(cache, "denyTtlSeconds", 0L);
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, false);
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 6, true);
+
+        cache.evictExpired();
+
+        assertEquals(1, ((Map<?, ?>) ReflectionTestUtils.getField(cache, "decisions")).size());
+        assertTrue(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 6, false));
+    }
+
+    @Test
+    void invalidateUserDropsAllDecisionsOfThatUser() {
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, true);
+        check(AccessDecisionCache.Kind.STUDENT_OF_VIDEO, 1, 7, true);
+        check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 2, 5, true);
+
+        cache.invalidateUser(1);
+
+        assertFalse(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, false));
+        assertFalse(check(AccessDecisionCache.Kind.STUDENT_OF_VIDEO, 1, 7, false));
+        assertTrue(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 2, 5, false));
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void invalidateCourseDropsCourseAndVideoInstructorDecisions() {
+        check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, 1, 5, true);
+        check(AccessDecisionCache.Kind.INSTRUCTOR_OF_VIDEO, 1, 7, true);
+        check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, 1, 6, true);
+
+        cache.invalidateCourse(5);
+
+        assertFalse(check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, 1, 5, false));
+        assertFalse(check(AccessDecisionCache.Kind.INSTRUCTOR_OF_VIDEO, 1, 7, false));
+        assertTrue(check(AccessDecisionCache.Kind.INSTRUCTOR_OF_COURSE, 1, 6, false));
+    }
+
+    @Test
+    void decisionLoadedDuringInvalidationIsNotCached() {
+        // Unenroll xảy ra trong lúc đang đọc quyền từ database: kết quả ALLOW cũ không được giữ lại
+        assertTrue(cache.check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, () -> {
+            loads.incrementAndGet();
+            cache.invalidateUser(1);
+            return true;
+        }));
+
+        assertFalse(check(AccessDecisionCache.Kind.ENROLLED_IN_COURSE, 1, 5, false));
+        assertEquals(2, loads.get());
+    }
+
+    private boolean check(AccessDecisionCache.Kind kind, Integer userId, Number targetId, boolean result) {
+        return cache.check(kind, userId, targetId, () -> {
+            loads.incrementAndGet();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.EssayGradeDTO;
+import org.example.lmsbackend.model.Questions;
+import org.example.lmsbackend.model.Quizzes;
+import org.example.lmsbackend.model.UserAnswer;
+import org.example.lmsbackend.model.UserQuizAttempt;
+import org.example.lmsbackend.repository.UserAnswerMapper;
+import org.example.lmsbackend.repository.UserQuizAttemptMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Chấm nhiều câu tự luận: ghi điểm theo lô và tính lại điểm mỗi attempt một lần
+@ExtendWith(MockitoExtension.class)
+class GradesServiceTest {
+
+    private static final int INSTRUCTOR_ID = 9;
+    private static final int COURSE_ID = 3;
+
+    @Mock
+    private UserAnswerMapper userAnswerMapper;
+
+    @Mock
+    private UserQuizAttemptMapper userQuizAttemptMapper;
+
+    @Mock
+    private QuizResultSnapshotService quizResultSnapshotService;
+
+    @Mock
+    private CourseService courseService;
+
+    @InjectMocks
+    private GradesService gradesService;
+
+    @Test
+    void gradesAnswersAndRecomputesEachAttemptOnce() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(
+                ref(1, 100, COURSE_ID, Questions.Type.ESSAY),
+                ref(2, 100, COURSE_ID, Questions.Type.ESSAY),
+                ref(3, 200, COURSE_ID, Questions.Type.ESSAY)));
+        when(courseService.isInstructorOfCourse(INSTRUCTOR_ID, COURSE_ID)).thenReturn(true);
+
+        Map<String, Object> result = gradesService.gradeEssayAnswers(List.of(
+                new EssayGradeDTO(1, 5, "tốt"),
+                new EssayGradeDTO(2, 3, null),
+                new EssayGradeDTO(3, 0, "chưa đạt")), INSTRUCTOR_ID);
+
+        assertEquals(3, result.get("gradedCount"));
+        assertEquals(List.of(100, 200), result.get("attemptIds"));
+        assertEquals(List.of(), result.get("notFound"));
+        assertEquals(List.of(), result.get("notEssay"));
+        verify(userAnswerMapper, times(1)).applyEssayGrades(argThat(grades -> grades.size() == 3));
+        verify(userQuizAttemptMapper, times(1)).recomputeManualScores(List.of(100, 200));
+        verify(quizResultSnapshotService).invalidateAll(List.of(100, 200));
+        // Quyền được kiểm tra một lần cho mỗi khóa học
+        verify(courseService, times(1)).isInstructorOfCourse(INSTRUCTOR_ID, COURSE_ID);
+    }
+
+    @Test
+    void snapshotsAreInvalidatedOnlyAfterScoresAreRecomputed() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(
+                ref(1, 100, COURSE_ID, Questions.Type.ESSAY),
+                ref(2, 100, COURSE_ID, Questions.Type.ESSAY)));
+
+        gradesService.gradeEssayAnswers(List.of(
+                new EssayGradeDTO(1, 5, null),
+                new EssayGradeDTO(2, 5, null)), null);
+
+        InOrder order = inOrder(userAnswerMapper, userQuizAttemptMapper, quizResultSnapshotService);
+        order.verify(userAnswerMapper).applyEssayGrades(anyList());
+        order.verify(userQuizAttemptMapper).recomputeManualScores(List.of(100));
+        order.verify(quizResultSnapshotService).invalidateAll(List.of(100));
+        order.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void duplicateAnswerKeepsLastGrade() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(ref(1, 100, COURSE_ID, Questions.Type.ESSAY)));
+
+        gradesService.gradeEssayAnswers(List.of(
+                new EssayGradeDTO(1, 2, "lần 1"),
+                new EssayGradeDTO(1, 4, "lần 2")), null);
+
+        verify(userAnswerMapper).findAttemptRefs(List.of(1));
+        verify(userAnswerMapper).applyEssayGrades(argThat(grades ->
+                grades.size() == 1 && grades.get(0).getScore() == 4 && "lần 2".equals(grades.get(0).getFeedback())));
+    }
+
+    @Test
+    void reportsMissingAndNonEssayAnswers() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(
+                ref(1, 100, COURSE_ID, Questions.Type.ESSAY),
+                ref(2, 100, COURSE_ID, Questions.Type.MULTIPLE_CHOICE)));
+
+        Map<String, Object> result = gradesService.gradeEssayAnswers(List.of(
+                new EssayGradeDTO(1, 5, null),
+                new EssayGradeDTO(2, 5, null),
+                new EssayGradeDTO(3, 5, null)), null);
+
+        assertEquals(1, result.get("gradedCount"));
+        assertEquals(List.of(3), result.get("notFound"));
+        assertEquals(List.of(2), result.get("notEssay"));
+        verify(userAnswerMapper).applyEssayGrades(argThat(grades ->
+                grades.size() == 1 && grades.get(0).getUserAnswerId() == 1));
+        // Admin (null) không cần kiểm tra khóa học
+        verifyNoInteractions(courseService);
+    }
+
+    @Test
+    void nothingIsWrittenWhenAllAnswersAreMissing() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of());
+
+        Map<String, Object> result = gradesService.gradeEssayAnswers(List.of(new EssayGradeDTO(1, 5, null)), null);
+
+        assertEquals(0, result.get("gradedCount"));
+        verify(userAnswerMapper, never()).applyEssayGrades(anyList());
+        verify(userQuizAttemptMapper, never()).recomputeManualScores(anyCollection());
+    }
+
+    @Test
+    void instructorOfAnotherCourseIsRejectedBeforeAnyWrite() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(
+                ref(1, 100, COURSE_ID, Questions.Type.ESSAY),
+                ref(2, 300, 8, Questions.Type.ESSAY)));
+        when(courseService.isInstructorOfCourse(INSTRUCTOR_ID, COURSE_ID)).thenReturn(true);
+        when(courseService.isInstructorOfCourse(INSTRUCTOR_ID, 8)).thenReturn(false);
+
+        assertThrows(AccessDeniedException.class, () -> gradesService.gradeEssayAnswers(List.of(
+                new EssayGradeDTO(1, 5, null),
+                new EssayGradeDTO(2, 5, null)), INSTRUCTOR_ID));
+
+        verify(userAnswerMapper, never()).applyEssayGrades(anyList());
+        verify(userQuizAttemptMapper, never()).recomputeManualScores(anyCollection());
+    }
+
+    @Test
+    void invalidGradesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                gradesService.gradeEssayAnswers(List.of(new EssayGradeDTO(1, -1, null)), null));
+        assertThrows(IllegalArgumentException.class, () ->
+                gradesService.gradeEssayAnswers(List.of(new EssayGradeDTO(1, null, null)), null));
+        assertThrows(IllegalArgumentException.class, () ->
+                gradesService.gradeEssayAnswers(List.of(new EssayGradeDTO(null, 1, null)), null));
+        verifyNoInteractions(userAnswerMapper);
+    }
+
+    @Test
+    void singleGradeFailurePropagatesSoTheTransactionRollsBack() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of(ref(1, 100, COURSE_ID, Questions.Type.ESSAY)));
+        doThrow(new IllegalStateException("deadlock")).when(userQuizAttemptMapper).recomputeManualScores(anyCollection());
+
+        assertThrows(IllegalStateException.class, () -> gradesService.gradeEssayAnswer(1, 5, null, null));
+    }
+
+    @Test
+    void singleGradeReturnsFalseWhenAnswerIsMissing() {
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenReturn(List.of());
+
+        assertFalse(gradesService.gradeEssayAnswer(1, 5, null, null));
+        verify(userAnswerMapper, never()).applyEssayGrades(anyList());
+    }
+
+    @Test
+    void largeRequestsAreWrittenInBatches() {
+        List<EssayGradeDTO> grades = new ArrayList<>();
+        for (int id = 1; id <= 1200; id++) {
+            grades.add(new EssayGradeDTO(id, 1, null));
+        }
+        when(userAnswerMapper.findAttemptRefs(anyList())).thenAnswer(invocation -> {
+            List<Integer> ids = invocation.getArgument(0);
+            return ids.stream().map(id -> ref(id, id, COURSE_ID, Questions.Type.ESSAY)).toList();
+        });
+
+        gradesService.gradeEssayAnswers(grades, null);
+
+        verify(userAnswerMapper, times(3)).findAttemptRefs(anyList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EssayGradeDTO>> batches = ArgumentCaptor.forClass(List.class);
+        verify(userAnswerMapper, times(3)).applyEssayGrades(batches.capture());
+        assertEquals(List.of(500, 500, 200), batches.getAllValues().stream().map(List::size).toList());
+        verify(userQuizAttemptMapper, times(3)).recomputeManualScores(anyCollection());
+    }
+
+    private static UserAnswer ref(int userAnswerId, int attemptId, int courseId, Questions.Type type) {
+        Quizzes quiz = new Quizzes();
+        quiz.setCourseId(courseId);
+        UserQuizAttempt attempt = new UserQuizAttempt();
+        attempt.setId(attemptId);
+        attempt.setQuiz(quiz);
+        Questions question = new Questions();
+        question.setType(type);
+        UserAnswer answer = new UserAnswer();
+        answer.setId(userAnswerId);
+        answer.setAttempt(attempt);
+        answer.setQuestion(question);
+        return answer;
+    }
+}
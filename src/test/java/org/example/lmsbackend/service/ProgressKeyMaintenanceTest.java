@@ -0,0 +1,60 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.repository.ProgressMaintenanceMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProgressKeyMaintenanceTest {
+
+    @Mock
+    private ProgressMaintenanceMapper progressMaintenanceMapper;
+
+    @InjectMocks
+    private ProgressKeyMaintenance maintenance;
+
+    @Test
+    void existingKeysAreLeftAlone() {
+        when(progressMaintenanceMapper.countIndex(anyString(), anyString())).thenReturn(1);
+
+        maintenance.ensureUniqueKeys();
+
+        verify(progressMaintenanceMapper, never()).mergeDuplicateModuleProgress();
+        verify(progressMaintenanceMapper, never()).deleteDuplicates(anyString(), anyString());
+        verify(progressMaintenanceMapper, never()).addUniqueKey(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void duplicatesAreMergedBeforeDeletingAndAddingKey() {
+        when(progressMaintenanceMapper.countIndex(anyString(), anyString())).thenReturn(1);
+        when(progressMaintenanceMapper.countIndex("module_progress", "uk_module_progress_user_module")).thenReturn(0);
+
+        maintenance.ensureUniqueKeys();
+
+        InOrder order = inOrder(progressMaintenanceMapper);
+        order.verify(progressMaintenanceMapper).mergeDuplicateModuleProgress();
+        order.verify(progressMaintenanceMapper).deleteDuplicates("module_progress", "module_id");
+        order.verify(progressMaintenanceMapper).addUniqueKey("module_progress", "uk_module_progress_user_module", "module_id");
+        verify(progressMaintenanceMapper, never()).mergeDuplicateContentProgress();
+        verify(progressMaintenanceMapper, never()).mergeDuplicateVideoProgress();
+    }
+
+    @Test
+    void failureOnOneTableDoesNotStopTheOthers() {
+        when(progressMaintenanceMapper.countIndex(anyString(), anyString())).thenReturn(0);
+        when(progressMaintenanceMapper.mergeDuplicateModuleProgress()).thenThrow(new RuntimeException("lock wait timeout"));
+
+        maintenance.ensureUniqueKeys();
+
+        verify(progressMaintenanceMapper, never()).deleteDuplicates("module_progress", "module_id");
+        verify(progressMaintenanceMapper).addUniqueKey("content_progress", "uk_content_progress_user_content", "content_id");
+        verify(progressMaintenanceMapper).addUniqueKey("video_progress", "uk_video_progress_user_video", "video_id");
+    }
+}
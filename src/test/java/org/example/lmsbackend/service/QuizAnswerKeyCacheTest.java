@@ -0,0 +1,153 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.model.Answer;
+import org.example.lmsbackend.model.Questions;
+import org.example.lmsbackend.model.Quizzes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuizAnswerKeyCacheTest {
+
+    @Mock
+    private QuizAnswerKeyLoader quizAnswerKeyLoader;
+
+    @InjectMocks
+    private QuizAnswerKeyCache cache;
+
+    @Test
+    void buildsKeyFromQuestionsAndCorrectAnswers() {
+        when(quizAnswerKeyLoader.load(anyCollection())).thenReturn(new QuizAnswerKeyLoader.Rows(
+                List.of(question(1, 10, Questions.Type.MULTIPLE_CHOICE, 2),
+                        question(1, 20, Questions.Type.MULTIPLE_CHOICE, null),
+                        question(1, 30, Questions.Type.ESSAY, 5)),
+                List.of(answer(100, 10, "A", false), answer(101, 10, "B", true),
+                        answer(200, 20, "C", true), answer(201, 20, "D", true))));
+
+        QuizAnswerKeyCache.AnswerKey key = cache.get(1);
+
+        assertEquals(3, key.size());
+        assertEquals(1, key.indexOf(20));
+        assertEquals(-1, key.indexOf(99));
+        assertTrue(key.isCorrectAnswer(0, 101));
+        assertFalse(key.isCorrectAnswer(0, 100));
+        assertTrue(key.isCorrectAnswer(1, 201));
+        assertEquals("C", key.getCorrectAnswerText(1)); // đáp án đúng đầu tiên
+        assertNull(key.getCorrectAnswerText(2));
+        assertFalse(key.isMultipleChoice(2));
+    }
+
+    @Test
+    void questionWithoutPointsIsWorthOne() {
+        when(quizAnswerKeyLoader.load(anyCollection())).thenReturn(new QuizAnswerKeyLoader.Rows(
+                List.of(question(1, 10, Questions.Type.MULTIPLE_CHOICE, 2),
+                        question(1, 20, Questions.Type.MULTIPLE_CHOICE, null),
+                        question(1, 30, Questions.Type.ESSAY, 5)),
+                List.of()));
+
+        QuizAnswerKeyCache.AnswerKey key = cache.get(1);
+
+        assertEquals(1, key.getPoints(1));
+        assertEquals(8, key.getTotalPoints());
+        assertEquals(8, cache.getMaxScore(1));
+        assertEquals(2, key.getMultipleChoiceCount());
+        assertEquals(1, key.getEssayCount());
+    }
+
+    @Test
+    void keyIsLoadedOnceUntilInvalidated() {
+        when(quizAnswerKeyLoader.load(anyCollection()))
+                .thenReturn(rows(question(1, 10, Questions.Type.ESSAY, 3)))
+                .thenReturn(rows(question(1, 10, Questions.Type.ESSAY, 4)));
+
+        assertEquals(3, cache.get(1).getTotalPoints());
+        assertEquals(3, cache.get(1).getTotalPoints());
+        verify(quizAnswerKeyLoader, times(1)).load(anyCollection());
+
+        cache.onQuestionsChanged(new QuizQuestionsChangedEvent(1, "test"));
+
+        assertEquals(4, cache.get(1).getTotalPoints());
+        verify(quizAnswerKeyLoader, times(2)).load(anyCollection());
+    }
+
+    @Test
+    void invalidationDuringLoadForcesReload() {
+        when(quizAnswerKeyLoader.load(anyCollection()))
+                .thenAnswer(invocation -> {
+                    // Câu hỏi được sửa trong lúc đang nạp: key vừa nạp có thể đã cũ
+                    cache.invalidate(1);
+                    return rows(question(1, 10, Questions.Type.ESSAY, 3));
+                })
+                .thenReturn(rows(question(1, 10, Questions.Type.ESSAY, 4)));
+
+        assertEquals(3, cache.get(1).getTotalPoints());
+        assertEquals(4, cache.get(1).getTotalPoints());
+        assertEquals(4, cache.get(1).getTotalPoints());
+        verify(quizAnswerKeyLoader, times(2)).load(anyCollection());
+    }
+
+    @Test
+    void getAllLoadsOnlyMissingQuizzesInOneCall() {
+        when(quizAnswerKeyLoader.load(anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> quizIds = invocation.getArgument(0);
+            return rows(quizIds.stream().map(id -> question(id, id * 10, Questions.Type.ESSAY, id)).toArray(Questions[]::new));
+        });
+        cache.get(1);
+
+        Map<Integer, QuizAnswerKeyCache.AnswerKey> keys = cache.getAll(List.of(1, 2, 3, 2));
+
+        assertEquals(3, keys.size());
+        assertEquals(3, keys.get(3).getTotalPoints());
+        verify(quizAnswerKeyLoader).load(List.of(1));
+        verify(quizAnswerKeyLoader, times(2)).load(any());
+    }
+
+    @Test
+    void unknownQuizHasEmptyKey() {
+        when(quizAnswerKeyLoader.load(anyCollection())).thenReturn(rows());
+
+        QuizAnswerKeyCache.AnswerKey key = cache.get(404);
+
+        assertEquals(0, key.size());
+        assertEquals(0, key.getTotalPoints());
+    }
+
+    static Questions question(int quizId, int questionId, Questions.Type type, Integer points) {
+        Quizzes quiz = new Quizzes();
+        quiz.setQuizId(quizId);
+        Questions question = new Questions();
+        question.setQuiz(quiz);
+        question.setQuestionId(questionId);
+        question.setType(type);
+        question.setPoints(points);
+        question.setQuestionText("Question " + questionId);
+        return question;
+    }
+
+    static Answer answer(int answerId, int questionId, String text, boolean correct) {
+        Questions question = new Questions();
+        question.setQuestionId(questionId);
+        Answer answer = new Answer();
+        answer.setAnswerId(answerId);
+        answer.setQuestion(question);
+        answer.setAnswerText(text);
+        answer.setIsCorrect(correct);
+        return answer;
+    }
+
+    private static QuizAnswerKeyLoader.Rows rows(Questions... questions) {
+        return new QuizAnswerKeyLoader.Rows(List.of(questions), List.of());
+    }
+}
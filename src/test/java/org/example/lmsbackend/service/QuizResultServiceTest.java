@@ -0,0 +1,130 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.QuestionResultDTO;
+import org.example.lmsbackend.dto.QuizResultDTO;
+import org.example.lmsbackend.model.Answer;
+import org.example.lmsbackend.model.Questions;
+import org.example.lmsbackend.model.Quizzes;
+import org.example.lmsbackend.model.User;
+import org.example.lmsbackend.model.UserAnswer;
+import org.example.lmsbackend.model.UserQuizAttempt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.example.lmsbackend.service.QuizAnswerKeyCacheTest.answer;
+import static org.example.lmsbackend.service.QuizAnswerKeyCacheTest.question;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// Chấm bài bằng answer key trong bộ nhớ (QuizAnswerKeyCache thật, loader giả)
+@ExtendWith(MockitoExtension.class)
+class QuizResultServiceTest {
+
+    private static final int QUIZ_ID = 1;
+
+    @Mock
+    private QuizAnswerKeyLoader quizAnswerKeyLoader;
+
+    private QuizResultService service;
+
+    @BeforeEach
+    void setUp() {
+        QuizAnswerKeyCache cache = new QuizAnswerKeyCache();
+        ReflectionTestUtils.setField(cache, "quizAnswerKeyLoader", quizAnswerKeyLoader);
+        service = new QuizResultService();
+        ReflectionTestUtils.setField(service, "quizAnswerKeyCache", cache);
+
+        when(quizAnswerKeyLoader.load(anyCollection())).thenReturn(new QuizAnswerKeyLoader.Rows(
+                List.of(question(QUIZ_ID, 10, Questions.Type.MULTIPLE_CHOICE, 2),
+                        question(QUIZ_ID, 20, Questions.Type.MULTIPLE_CHOICE, 2),
+                        question(QUIZ_ID, 30, Questions.Type.ESSAY, 4),
+                        question(QUIZ_ID, 40, Questions.Type.MULTIPLE_CHOICE, null)),
+                List.of(answer(101, 10, "B", true), answer(100, 10, "A", false),
+                        answer(200, 20, "C", true), answer(400, 40, "E", true))));
+    }
+
+    @Test
+    void gradesChoicesAndCapsEssayScore() {
+        QuizResultDTO result = service.gradeQuiz(attempt(), List.of(
+                choice(10, 101, "B"),     // đúng: 2 điểm
+                choice(20, 201, "X"),     // sai: 0 điểm
+                essay(30, 9)));           // 9 điểm bị giới hạn ở 4
+
+        assertEquals(9, result.getTotalPoints()); // 2 + 2 + 4 + 1 (câu không có điểm = 1)
+        assertEquals(6, result.getEarnedPoints());
+        assertEquals(6.0 / 9 * 100, result.getScore(), 1e-9);
+        assertEquals(3, result.getQuestionResults().size()); // câu 40 không trả lời thì không có trong chi tiết
+
+        QuestionResultDTO first = result.getQuestionResults().get(0);
+        assertTrue(first.isCorrect());
+        assertEquals("B", first.getCorrectAnswer());
+        QuestionResultDTO essay = result.getQuestionResults().get(2);
+        assertEquals("ESSAY", essay.getQuestionType());
+        assertTrue(essay.isCorrect());
+    }
+
+    @Test
+    void ungradedEssayEarnsNothingAndFirstAnswerWins() {
+        QuizResultDTO result = service.gradeQuiz(attempt(), List.of(
+                choice(10, 100, "A"),
+                choice(10, 101, "B"),     // trả lời lại cùng câu: chỉ câu trả lời đầu tiên được chấm
+                essay(30, null),
+                choice(99, 999, "?")));   // câu không thuộc quiz bị bỏ qua
+
+        assertEquals(0, result.getEarnedPoints());
+        assertEquals(2, result.getQuestionResults().size());
+        assertFalse(result.getQuestionResults().get(0).isCorrect());
+        assertFalse(result.getQuestionResults().get(1).isCorrect());
+    }
+
+    @Test
+    void gradingRepeatedAttemptsLoadsAnswerKeyOnce() {
+        service.gradeQuiz(attempt(), List.of(choice(10, 101, "B")));
+        service.gradeQuiz(attempt(), List.of(choice(20, 200, "C")));
+
+        verify(quizAnswerKeyLoader, times(1)).load(anyCollection());
+    }
+
+    private UserQuizAttempt attempt() {
+        Quizzes quiz = new Quizzes();
+        quiz.setQuizId(QUIZ_ID);
+        User user = new User();
+        user.setUserId(5);
+        UserQuizAttempt attempt = new UserQuizAttempt();
+        attempt.setId(77);
+        attempt.setQuiz(quiz);
+        attempt.setUser(user);
+        return attempt;
+    }
+
+    private UserAnswer choice(int questionId, int answerId, String text) {
+        UserAnswer userAnswer = new UserAnswer();
+        userAnswer.setQuestion(questionRef(questionId));
+        Answer answer = new Answer();
+        answer.setAnswerId(answerId);
+        answer.setAnswerText(text);
+        userAnswer.setAnswer(answer);
+        return userAnswer;
+    }
+
+    private UserAnswer essay(int questionId, Integer manualScore) {
+        UserAnswer userAnswer = new UserAnswer();
+        userAnswer.setQuestion(questionRef(questionId));
+        userAnswer.setAnswerText("Bài làm");
+        userAnswer.setManualScore(manualScore);
+        return userAnswer;
+    }
+
+    private Questions questionRef(int questionId) {
+        Questions question = new Questions();
+        question.setQuestionId(questionId);
+        return question;
+    }
+}
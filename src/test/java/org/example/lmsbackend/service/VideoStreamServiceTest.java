@@ -0,0 +1,132 @@
+package org.example.lmsbackend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VideoStreamServiceTest {
+
+    private static final String CONTENT = "0123456789abcdefghij"; // 20 bytes
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private final VideoStreamService service = new VideoStreamService();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        file = Files.writeString(tempDir.resolve("video.mp4"), CONTENT, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void noRangeReturnsWholeFile() throws Exception {
+        MockHttpServletResponse response = stream(get(null));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(20, response.getContentLengthLong());
+        assertNull(response.getHeader("Content-Range"));
+        assertEquals(CONTENT, response.getContentAsString());
+    }
+
+    @Test
+    void singleRangeReturnsPartialContent() throws Exception {
+        MockHttpServletResponse response = stream(get("bytes=5-9"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 5-9/20", response.getHeader("Content-Range"));
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals("56789", response.getContentAsString());
+    }
+
+    @Test
+    void openEndedAndSuffixRangesAreResolvedAgainstFileLength() throws Exception {
+        MockHttpServletResponse openEnded = stream(get("bytes=15-"));
+        assertEquals(206, openEnded.getStatus());
+        assertEquals("bytes 15-19/20", openEnded.getHeader("Content-Range"));
+        assertEquals("fghij", openEnded.getContentAsString());
+
+        MockHttpServletResponse suffix = stream(get("bytes=-3"));
+        assertEquals(206, suffix.getStatus());
+        assertEquals("bytes 17-19/20", suffix.getHeader("Content-Range"));
+        assertEquals("hij", suffix.getContentAsString());
+    }
+
+    @Test
+    void rangePastEndIsClampedToLastByte() throws Exception {
+        MockHttpServletResponse response = stream(get("bytes=18-100"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 18-19/20", response.getHeader("Content-Range"));
+        assertEquals("ij", response.getContentAsString());
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws Exception {
+        MockHttpServletResponse response = stream(get("bytes=50-60"));
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */20", response.getHeader("Content-Range"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void multipleOrMalformedRangesFallBackToWholeFile() throws Exception {
+        MockHttpServletResponse multiple = stream(get("bytes=0-1,5-6"));
+        assertEquals(200, multiple.getStatus());
+        assertEquals(CONTENT, multiple.getContentAsString());
+
+        MockHttpServletResponse malformed = stream(get("items=0-1"));
+        assertEquals(200, malformed.getStatus());
+        assertEquals(CONTENT, malformed.getContentAsString());
+    }
+
+    @Test
+    void headRequestSendsHeadersOnly() throws Exception {
+        MockHttpServletRequest request = get("bytes=0-3");
+        request.setMethod("HEAD");
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void sendfileHandsRegionToContainer() throws Exception {
+        MockHttpServletRequest request = get("bytes=2-4");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = stream(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(file.toAbsolutePath().normalize().toString(),
+                request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        // end là vị trí sau byte cuối (exclusive)
+        assertEquals(5L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletRequest get(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/1/stream");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse stream(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.streamLocalFile(file, "video/mp4", request, response);
+        return response;
+    }
+}
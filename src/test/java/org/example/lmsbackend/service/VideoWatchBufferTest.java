@@ -0,0 +1,168 @@
+package org.example.lmsbackend.service;
+
+import org.example.lmsbackend.dto.VideoWatchDTO;
+import org.example.lmsbackend.repository.VideoProgressMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VideoWatchBufferTest {
+
+    private static final int USER_ID = 7;
+    private static final int VIDEO_ID = 11;
+    private static final int MODULE_ID = 3;
+    private static final int COURSE_ID = 2;
+
+    @Mock
+    private VideoProgressMapper videoProgressMapper;
+
+    @InjectMocks
+    private VideoWatchBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(buffer, "writeBehind", true);
+        VideoWatchDTO state = new VideoWatchDTO();
+        state.setModuleId(MODULE_ID);
+        state.setCourseId(COURSE_ID);
+        lenient().when(videoProgressMapper.findWatchState(USER_ID, VIDEO_ID)).thenReturn(state);
+    }
+
+    @Test
+    void heartbeatBelowThresholdIsBufferedUntilFlush() {
+        assertNull(buffer.record(USER_ID, VIDEO_ID, 30, 100));
+        assertNull(buffer.record(USER_ID, VIDEO_ID, 40, 100));
+        verify(videoProgressMapper, never()).upsertBatch(anyList());
+
+        VideoWatchDTO buffered = buffer.getBuffered(USER_ID, VIDEO_ID);
+        assertEquals(40, buffered.getWatchedDuration());
+
+        buffer.flush();
+        List<VideoWatchDTO> rows = captureUpserts(1).get(0);
+        assertEquals(1, rows.size());
+        assertEquals(USER_ID, rows.get(0).getUserId());
+        assertEquals(VIDEO_ID, rows.get(0).getVideoId());
+        assertEquals(40, rows.get(0).getWatchedDuration());
+
+        // Không có heartbeat mới thì lần flush sau không ghi gì
+        buffer.flush();
+        verify(videoProgressMapper, times(1)).upsertBatch(anyList());
+        // Trạng thái đã lưu chỉ được đọc một lần cho mỗi entry
+        verify(videoProgressMapper, times(1)).findWatchState(USER_ID, VIDEO_ID);
+    }
+
+    @Test
+    void crossingNinetyPercentIsWrittenImmediately() {
+        buffer.record(USER_ID, VIDEO_ID, 50, 100);
+
+        VideoWatchBuffer.ThresholdCrossing crossing = buffer.record(USER_ID, VIDEO_ID, 90, 100);
+
+        assertNotNull(crossing);
+        assertTrue(crossing.completed());
+        assertEquals(MODULE_ID, crossing.moduleId());
+        assertEquals(COURSE_ID, crossing.courseId());
+        List<VideoWatchDTO> rows = captureUpserts(1).get(0);
+        assertEquals(90, rows.get(0).getWatchedDuration());
+
+        // Đã ghi cùng lúc với lần vượt mốc nên flush không ghi lại
+        buffer.flush();
+        verify(videoProgressMapper, times(1)).upsertBatch(anyList());
+
+        // Tua lại dưới mốc 90% cũng là một lần đổi trạng thái
+        VideoWatchBuffer.ThresholdCrossing dropped = buffer.record(USER_ID, VIDEO_ID, 10, 100);
+        assertNotNull(dropped);
+        assertFalse(dropped.completed());
+        verify(videoProgressMapper, times(2)).upsertBatch(anyList());
+    }
+
+    @Test
+    void staysCompletedWithoutAnotherCrossing() {
+        assertNotNull(buffer.record(USER_ID, VIDEO_ID, 95, 100));
+        assertNull(buffer.record(USER_ID, VIDEO_ID, 99, 100));
+        verify(videoProgressMapper, times(1)).upsertBatch(anyList());
+    }
+
+    @Test
+    void unknownVideoIsIgnored() {
+        when(videoProgressMapper.findWatchState(USER_ID, 999)).thenReturn(null);
+
+        assertNull(buffer.record(USER_ID, 999, 10, 100));
+        assertNull(buffer.getBuffered(USER_ID, 999));
+        buffer.flush();
+        verify(videoProgressMapper, never()).upsertBatch(anyList());
+    }
+
+    @Test
+    void failedFlushIsRetried() {
+        buffer.record(USER_ID, VIDEO_ID, 20, 100);
+        when(videoProgressMapper.upsertBatch(anyList()))
+                .thenThrow(new RuntimeException("connection lost"))
+                .thenReturn(1);
+
+        buffer.flush();
+        buffer.flush();
+
+        List<List<VideoWatchDTO>> batches = captureUpserts(2);
+        assertEquals(20, batches.get(1).get(0).getWatchedDuration());
+        buffer.flush();
+        verify(videoProgressMapper, times(2)).upsertBatch(anyList());
+    }
+
+    @Test
+    void failedFlushKeepsNewerHeartbeat() {
+        buffer.record(USER_ID, VIDEO_ID, 20, 100);
+        when(videoProgressMapper.upsertBatch(anyList())).thenAnswer(invocation -> {
+            // Heartbeat mới tới trong lúc lô đang ghi rồi lô bị lỗi
+            buffer.record(USER_ID, VIDEO_ID, 25, 100);
+            throw new RuntimeException("deadlock");
+        }).thenReturn(1);
+
+        buffer.flush();
+        buffer.flush();
+
+        List<List<VideoWatchDTO>> batches = captureUpserts(2);
+        assertEquals(25, batches.get(1).get(0).getWatchedDuration());
+    }
+
+    @Test
+    void heartbeatTimestampsStrictlyIncrease() {
+        buffer.record(USER_ID, VIDEO_ID, 1, 100);
+        var first = buffer.getBuffered(USER_ID, VIDEO_ID).getLastWatchedAt();
+        buffer.record(USER_ID, VIDEO_ID, 2, 100);
+        var second = buffer.getBuffered(USER_ID, VIDEO_ID).getLastWatchedAt();
+
+        // upsertBatch chỉ ghi đè khi last_watched_at không cũ hơn, nên hai heartbeat không được trùng thời điểm
+        assertTrue(second.isAfter(first));
+    }
+
+    @Test
+    void withoutWriteBehindEveryHeartbeatIsWritten() {
+        ReflectionTestUtils.setField(buffer, "writeBehind", false);
+
+        buffer.record(USER_ID, VIDEO_ID, 10, 100);
+        buffer.record(USER_ID, VIDEO_ID, 20, 100);
+
+        verify(videoProgressMapper, times(2)).upsertBatch(anyList());
+        buffer.flush();
+        verify(videoProgressMapper, times(2)).upsertBatch(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<VideoWatchDTO>> captureUpserts(int expectedCalls) {
+        ArgumentCaptor<List<VideoWatchDTO>> captor = ArgumentCaptor.forClass(List.class);
+        verify(videoProgressMapper, times(expectedCalls)).upsertBatch(captor.capture());
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.lmsbackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageCursorTest {
+
+    @Test
+    void encodeThenDecodeReturnsSameKey() {
+        assertEquals(42, PageCursor.decode(PageCursor.encode(42)));
+        assertEquals(Integer.MAX_VALUE, PageCursor.decode(PageCursor.encode(Integer.MAX_VALUE)));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafeWithoutPadding() {
+        String cursor = PageCursor.encode(1234567);
+        assertFalse(cursor.contains("="));
+        assertFalse(cursor.contains("+"));
+        assertFalse(cursor.contains("/"));
+    }
+
+    @Test
+    void nullOrBlankCursorMeansFirstPage() {
+        assertNull(PageCursor.encode(null));
+        assertNull(PageCursor.decode(null));
+        assertNull(PageCursor.decode(""));
+        assertNull(PageCursor.decode("   "));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64 !"));
+        String wrongPrefix = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("key:5".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(wrongPrefix));
+        String notANumber = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("id:abc".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(notANumber));
+    }
+
+    @Test
+    void limitIsDefaultedAndCapped() {
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.resolveLimit(null));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.resolveLimit(0));
+        assertEquals(PageCursor.DEFAULT_LIMIT, PageCursor.resolveLimit(-3));
+        assertEquals(20, PageCursor.resolveLimit(20));
+        assertEquals(PageCursor.MAX_LIMIT, PageCursor.resolveLimit(PageCursor.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void pagingIsRequestedByCursorOrLimit() {
+        assertFalse(PageCursor.isRequested(null, null));
+        assertTrue(PageCursor.isRequested("", null));
+        assertTrue(PageCursor.isRequested(null, 10));
+    }
+}